@@ -12,6 +12,11 @@ public interface CacheConstants {
      */
     String ONLINE_TOKEN_KEY = "online_tokens:";
 
+    /**
+     * 在线用户索引 redis key (按过期时间排序的 token 有序集合 以及按用户名/IP 划分的 token 集合)
+     */
+    String ONLINE_TOKEN_INDEX_KEY = "online_token_index";
+
     /**
      * 参数管理 cache key
      */
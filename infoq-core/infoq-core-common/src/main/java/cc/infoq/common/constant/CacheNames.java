@@ -3,14 +3,18 @@ package cc.infoq.common.constant;
 /**
  * 缓存组名称常量
  * <p>
- * key 格式为 cacheNames#ttl#maxIdleTime#maxSize#local
+ * key 格式为 cacheNames#ttl#maxIdleTime#maxSize#local#localMaxSize#localTtl#localMaxWeight#refresh
  * <p>
  * ttl 过期时间 如果设置为0则不过期 默认为0
  * maxIdleTime 最大空闲时间 根据LRU算法清理空闲数据 如果设置为0则不检测 默认为0
  * maxSize 组最大长度 根据LRU算法清理溢出数据 如果设置为0则无限长 默认为0
  * local 默认开启本地缓存为1 关闭本地缓存为0
+ * localMaxSize 本地缓存最大条数 每个缓存组独立 默认为1000
+ * localTtl 本地缓存写入后过期时间 默认为30s
+ * localMaxWeight 本地缓存最大权重 大于0时按权重限制容量(集合按元素数计算) 忽略 localMaxSize 默认为0
+ * refresh 提前刷新窗口 剩余存活时间小于该值时返回旧值并异步刷新 需设置 ttl 且使用 @Cacheable(sync = true) 默认为0不刷新
  * <p>
- * 例子: test#60s、test#0#60s、test#0#1m#1000、test#1h#0#500、test#1h#0#500#0
+ * 例子: test#60s、test#0#60s、test#0#1m#1000、test#1h#0#500、test#1h#0#500#0、test#1h#0#0#1#200#10m、test#0#0#0#1#0#5m#10000、test#1d#0#0#1#1000#30s#0#1h
  *
  * @author Lion Li
  */
@@ -39,7 +43,7 @@ public interface CacheNames {
     /**
      * 租户
      */
-    String SYS_TENANT = GlobalConstants.GLOBAL_REDIS_KEY + "sys_tenant#30d";
+    String SYS_TENANT = GlobalConstants.GLOBAL_REDIS_KEY + "sys_tenant#30d#0#0#1#1000#30s#0#1d";
 
     /**
      * 客户端
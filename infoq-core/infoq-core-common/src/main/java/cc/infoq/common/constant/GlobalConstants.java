@@ -26,4 +26,9 @@ public interface GlobalConstants {
      * 限流 redis key
      */
     String RATE_LIMIT_KEY = GLOBAL_REDIS_KEY + "rate_limit:";
+
+    /**
+     * 角色在线账号索引 redis key (角色ID -> 登录账号集合)
+     */
+    String ONLINE_ROLE_KEY = GLOBAL_REDIS_KEY + "online_role:";
 }
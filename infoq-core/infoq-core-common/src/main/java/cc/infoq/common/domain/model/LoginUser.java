@@ -2,8 +2,12 @@ package cc.infoq.common.domain.model;
 
 import cc.infoq.common.domain.dto.PostDTO;
 import cc.infoq.common.domain.dto.RoleDTO;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.io.Serial;
 import java.io.Serializable;
@@ -132,6 +136,56 @@ public class LoginUser implements Serializable {
      */
     private String deviceType;
 
+    /**
+     * 菜单权限匹配器(按需编译 不参与序列化)
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient volatile PermissionMatcher menuPermissionMatcher;
+
+    /**
+     * 角色权限匹配器(按需编译 不参与序列化)
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient volatile PermissionMatcher rolePermissionMatcher;
+
+    public void setMenuPermission(Set<String> menuPermission) {
+        this.menuPermission = menuPermission;
+        this.menuPermissionMatcher = null;
+    }
+
+    public void setRolePermission(Set<String> rolePermission) {
+        this.rolePermission = rolePermission;
+        this.rolePermissionMatcher = null;
+    }
+
+    /**
+     * 获取菜单权限匹配器 同一实例只编译一次
+     */
+    public PermissionMatcher menuPermissionMatcher() {
+        PermissionMatcher matcher = menuPermissionMatcher;
+        if (matcher == null) {
+            matcher = PermissionMatcher.compile(menuPermission);
+            menuPermissionMatcher = matcher;
+        }
+        return matcher;
+    }
+
+    /**
+     * 获取角色权限匹配器 同一实例只编译一次
+     */
+    public PermissionMatcher rolePermissionMatcher() {
+        PermissionMatcher matcher = rolePermissionMatcher;
+        if (matcher == null) {
+            matcher = PermissionMatcher.compile(rolePermission);
+            rolePermissionMatcher = matcher;
+        }
+        return matcher;
+    }
+
     /**
      * 获取登录id
      */
@@ -0,0 +1,190 @@
+package cc.infoq.common.domain.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 权限标识匹配器(编译后不可变)
+ * <p>
+ * 精确标识使用哈希集合匹配 形如 a:b:* 的通配标识编译为按冒号分段的前缀树 匹配复杂度为分段深度
+ * 其余形式的通配标识(如 a*:b)按 * 通配逐个匹配 语义与 sa-token 的模糊匹配一致
+ * <p>
+ * 本身即为原始标识的只读列表 可直接作为 sa-token 的权限列表返回 无需复制
+ *
+ * @author Lion Li
+ */
+public final class PermissionMatcher extends AbstractList<String> {
+
+    private static final char SEPARATOR = ':';
+
+    private static final PermissionMatcher EMPTY = new PermissionMatcher(new ArrayList<>());
+
+    /**
+     * 原始权限标识
+     */
+    private final List<String> patterns;
+
+    /**
+     * 精确权限标识
+     */
+    private final Set<String> exact = new HashSet<>();
+
+    /**
+     * 分段通配前缀树
+     */
+    private final Node root = new Node();
+
+    /**
+     * 其他通配标识
+     */
+    private final List<String> globs = new ArrayList<>();
+
+    private PermissionMatcher(List<String> patterns) {
+        this.patterns = patterns;
+        for (String pattern : patterns) {
+            int star = pattern.indexOf('*');
+            if (star < 0) {
+                exact.add(pattern);
+            } else if (star == pattern.length() - 1 && star == pattern.lastIndexOf('*')
+                && (star == 0 || pattern.charAt(star - 1) == SEPARATOR)) {
+                insert(pattern.substring(0, star));
+            } else {
+                globs.add(pattern);
+            }
+        }
+    }
+
+    /**
+     * 编译权限标识集合
+     *
+     * @param patterns 权限标识集合
+     * @return 匹配器
+     */
+    public static PermissionMatcher compile(Collection<String> patterns) {
+        if (patterns == null || patterns.isEmpty()) {
+            return EMPTY;
+        }
+        List<String> list = new ArrayList<>(patterns.size());
+        for (String pattern : patterns) {
+            if (pattern != null) {
+                list.add(pattern);
+            }
+        }
+        return new PermissionMatcher(list);
+    }
+
+    /**
+     * 判断是否拥有指定权限
+     *
+     * @param permission 权限标识
+     * @return 结果
+     */
+    public boolean matches(String permission) {
+        if (permission == null || patterns.isEmpty()) {
+            return false;
+        }
+        if (exact.contains(permission) || matchTree(permission)) {
+            return true;
+        }
+        for (String glob : globs) {
+            if (matchGlob(glob, permission)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String get(int index) {
+        return patterns.get(index);
+    }
+
+    @Override
+    public int size() {
+        return patterns.size();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof String permission && exact.contains(permission) || super.contains(o);
+    }
+
+    /**
+     * 插入通配前缀 prefix 为去掉结尾 * 的部分 形如 a:b: 或空串
+     */
+    private void insert(String prefix) {
+        Node node = root;
+        int start = 0;
+        int end;
+        while ((end = prefix.indexOf(SEPARATOR, start)) >= 0) {
+            node = node.children.computeIfAbsent(prefix.substring(start, end), k -> new Node());
+            start = end + 1;
+        }
+        node.wildcard = true;
+    }
+
+    /**
+     * 逐段下探 任一经过的节点存在通配即匹配剩余全部内容
+     */
+    private boolean matchTree(String permission) {
+        Node node = root;
+        int start = 0;
+        while (true) {
+            if (node.wildcard) {
+                return true;
+            }
+            int end = permission.indexOf(SEPARATOR, start);
+            if (end < 0 || node.children.isEmpty()) {
+                return false;
+            }
+            node = node.children.get(permission.substring(start, end));
+            if (node == null) {
+                return false;
+            }
+            start = end + 1;
+        }
+    }
+
+    /**
+     * * 通配匹配(可匹配任意长度的任意字符)
+     */
+    private static boolean matchGlob(String pattern, String str) {
+        int p = 0;
+        int s = 0;
+        int star = -1;
+        int mark = 0;
+        while (s < str.length()) {
+            if (p < pattern.length() && pattern.charAt(p) != '*' && pattern.charAt(p) == str.charAt(s)) {
+                p++;
+                s++;
+            } else if (p < pattern.length() && pattern.charAt(p) == '*') {
+                star = p++;
+                mark = s;
+            } else if (star >= 0) {
+                p = star + 1;
+                s = ++mark;
+            } else {
+                return false;
+            }
+        }
+        while (p < pattern.length() && pattern.charAt(p) == '*') {
+            p++;
+        }
+        return p == pattern.length();
+    }
+
+    private static final class Node {
+
+        private final Map<String, Node> children = new HashMap<>();
+
+        private boolean wildcard;
+
+    }
+
+}
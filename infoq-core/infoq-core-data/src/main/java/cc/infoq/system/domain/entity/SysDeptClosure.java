@@ -0,0 +1,39 @@
+package cc.infoq.system.domain.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 部门层级闭包 sys_dept_closure
+ * <p>
+ * 每对 祖先-后代 一行(含自身 depth 为 0) 子树查询通过 ancestor_id 索引完成
+ * <p>
+ * 主键为 (ancestor_id, descendant_id) 联合主键 不声明 @TableId 避免按 ancestor_id 单列误用 *ById 方法
+ *
+ * @author Lion Li
+ */
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName("sys_dept_closure")
+public class SysDeptClosure {
+
+    /**
+     * 祖先部门ID
+     */
+    private Long ancestorId;
+
+    /**
+     * 后代部门ID
+     */
+    private Long descendantId;
+
+    /**
+     * 层级距离 自身为 0
+     */
+    private Integer depth;
+
+}
@@ -0,0 +1,249 @@
+package cc.infoq.system.domain.model;
+
+import cc.infoq.common.constant.SystemConstants;
+import cc.infoq.system.domain.entity.SysDept;
+
+import java.util.*;
+
+/**
+ * 部门树索引(构建后不可变)
+ * <p>
+ * 按先序遍历(欧拉序)为部门重新编号 子树在编号上连续 记录每个节点子树的最后编号
+ * 判断 "X 是否在 Y 之下" 只需比较区间 子树展开为数组的连续切片 均无需访问数据库
+ * <p>
+ * 同级部门按 显示顺序、部门ID 排序 父部门不存在(或成环)的部门不纳入索引
+ *
+ * @author Lion Li
+ */
+public final class DeptTreeIndex {
+
+    private static final DeptTreeIndex EMPTY = new DeptTreeIndex(new ArrayList<>());
+
+    /**
+     * 先序编号 -> 部门ID
+     */
+    private final long[] ids;
+
+    /**
+     * 子树最后一个节点的先序编号(含)
+     */
+    private final int[] exits;
+
+    /**
+     * 父节点先序编号 顶级为 -1
+     */
+    private final int[] parents;
+
+    private final String[] names;
+
+    /**
+     * 截至当前编号(含)的正常状态部门数 用于区间计数
+     */
+    private final int[] normalCounts;
+
+    /**
+     * 部门ID -> 先序编号
+     */
+    private final Map<Long, Integer> positions;
+
+    private DeptTreeIndex(List<SysDept> depts) {
+        int size = depts.size();
+        Map<Long, List<SysDept>> childrenMap = new HashMap<>(size);
+        Set<Long> deptIds = new HashSet<>(size);
+        for (SysDept dept : depts) {
+            deptIds.add(dept.getDeptId());
+        }
+        List<SysDept> roots = new ArrayList<>();
+        for (SysDept dept : depts) {
+            if (dept.getParentId() == null || !deptIds.contains(dept.getParentId())) {
+                roots.add(dept);
+            } else {
+                childrenMap.computeIfAbsent(dept.getParentId(), k -> new ArrayList<>()).add(dept);
+            }
+        }
+        Comparator<SysDept> comparator = Comparator
+            .comparing(SysDept::getOrderNum, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(SysDept::getDeptId);
+        roots.sort(comparator);
+        childrenMap.values().forEach(children -> children.sort(comparator));
+
+        long[] ids = new long[size];
+        int[] parents = new int[size];
+        String[] names = new String[size];
+        boolean[] normal = new boolean[size];
+        Map<Long, Integer> positions = new HashMap<>(size);
+        // 显式栈先序遍历 避免深层级时递归栈溢出
+        Deque<SysDept> stack = new ArrayDeque<>();
+        for (int i = roots.size() - 1; i >= 0; i--) {
+            stack.push(roots.get(i));
+        }
+        int count = 0;
+        while (!stack.isEmpty()) {
+            SysDept dept = stack.pop();
+            int index = count++;
+            ids[index] = dept.getDeptId();
+            Integer parent = positions.get(dept.getParentId());
+            parents[index] = parent == null ? -1 : parent;
+            names[index] = dept.getDeptName();
+            normal[index] = SystemConstants.NORMAL.equals(dept.getStatus());
+            positions.put(dept.getDeptId(), index);
+            List<SysDept> children = childrenMap.get(dept.getDeptId());
+            if (children != null) {
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    stack.push(children.get(i));
+                }
+            }
+        }
+        // 子节点编号均大于父节点 倒序累加即得子树大小
+        int[] subtreeSizes = new int[count];
+        int[] exits = new int[count];
+        for (int i = count - 1; i >= 0; i--) {
+            subtreeSizes[i]++;
+            exits[i] = i + subtreeSizes[i] - 1;
+            if (parents[i] >= 0) {
+                subtreeSizes[parents[i]] += subtreeSizes[i];
+            }
+        }
+        int[] normalCounts = new int[count + 1];
+        for (int i = 0; i < count; i++) {
+            normalCounts[i + 1] = normalCounts[i] + (normal[i] ? 1 : 0);
+        }
+        this.ids = Arrays.copyOf(ids, count);
+        this.parents = Arrays.copyOf(parents, count);
+        this.names = Arrays.copyOf(names, count);
+        this.exits = exits;
+        this.normalCounts = normalCounts;
+        this.positions = positions;
+    }
+
+    /**
+     * 构建部门树索引
+     *
+     * @param depts 部门集合(需包含 部门ID、父部门ID、部门名称、显示顺序、状态)
+     * @return 部门树索引
+     */
+    public static DeptTreeIndex build(Collection<SysDept> depts) {
+        if (depts == null || depts.isEmpty()) {
+            return EMPTY;
+        }
+        return new DeptTreeIndex(new ArrayList<>(depts));
+    }
+
+    /**
+     * 部门是否存在
+     *
+     * @param deptId 部门ID
+     * @return 结果
+     */
+    public boolean contains(Long deptId) {
+        return deptId != null && positions.containsKey(deptId);
+    }
+
+    /**
+     * 部门是否为祖先部门本身或其后代
+     *
+     * @param ancestorId 祖先部门ID
+     * @param deptId     部门ID
+     * @return 结果
+     */
+    public boolean isDescendant(Long ancestorId, Long deptId) {
+        if (ancestorId == null || deptId == null) {
+            return false;
+        }
+        Integer ancestor = positions.get(ancestorId);
+        Integer dept = positions.get(deptId);
+        return ancestor != null && dept != null && dept >= ancestor && dept <= exits[ancestor];
+    }
+
+    /**
+     * 获取部门及以下全部部门ID(先序)
+     *
+     * @param deptId 部门ID
+     * @return 部门ID集合 部门不存在时为空
+     */
+    public List<Long> subtree(Long deptId) {
+        Integer index = deptId == null ? null : positions.get(deptId);
+        if (index == null) {
+            return new ArrayList<>(0);
+        }
+        return slice(index, exits[index] + 1);
+    }
+
+    /**
+     * 获取部门的直接子部门ID
+     *
+     * @param deptId 部门ID
+     * @return 子部门ID集合
+     */
+    public List<Long> children(Long deptId) {
+        Integer index = deptId == null ? null : positions.get(deptId);
+        List<Long> list = new ArrayList<>();
+        if (index == null) {
+            return list;
+        }
+        // 跳过每个子节点的整棵子树 直达下一个兄弟节点
+        for (int child = index + 1; child <= exits[index]; child = exits[child] + 1) {
+            list.add(ids[child]);
+        }
+        return list;
+    }
+
+    /**
+     * 获取部门的祖先部门ID(由顶级到直接上级)
+     *
+     * @param deptId 部门ID
+     * @return 祖先部门ID集合
+     */
+    public List<Long> ancestors(Long deptId) {
+        Integer index = deptId == null ? null : positions.get(deptId);
+        LinkedList<Long> list = new LinkedList<>();
+        if (index == null) {
+            return list;
+        }
+        for (int parent = parents[index]; parent >= 0; parent = parents[parent]) {
+            list.addFirst(ids[parent]);
+        }
+        return list;
+    }
+
+    /**
+     * 统计部门下(不含自身)正常状态的部门数
+     *
+     * @param deptId 部门ID
+     * @return 部门数
+     */
+    public long countNormalDescendants(Long deptId) {
+        Integer index = deptId == null ? null : positions.get(deptId);
+        if (index == null) {
+            return 0;
+        }
+        return normalCounts[exits[index] + 1] - normalCounts[index + 1];
+    }
+
+    /**
+     * 获取部门名称
+     *
+     * @param deptId 部门ID
+     * @return 部门名称 部门不存在时为 null
+     */
+    public String getName(Long deptId) {
+        Integer index = deptId == null ? null : positions.get(deptId);
+        return index == null ? null : names[index];
+    }
+
+    /**
+     * 索引内部门数量
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    private List<Long> slice(int from, int to) {
+        List<Long> list = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            list.add(ids[i]);
+        }
+        return list;
+    }
+
+}
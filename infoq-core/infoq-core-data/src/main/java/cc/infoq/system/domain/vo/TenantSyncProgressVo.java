@@ -0,0 +1,67 @@
+package cc.infoq.system.domain.vo;
+
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 租户同步进度视图对象
+ *
+ * @author Lion Li
+ */
+@Data
+public class TenantSyncProgressVo implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 同步任务(dict 字典 config 参数配置)
+     */
+    private String task;
+
+    /**
+     * 状态(running 同步中 success 成功 failed 部分失败)
+     */
+    private String status;
+
+    /**
+     * 待同步租户数
+     */
+    private int total;
+
+    /**
+     * 已处理租户数(含失败)
+     */
+    private int finished;
+
+    /**
+     * 补齐数据的租户数
+     */
+    private int changed;
+
+    /**
+     * 补齐的数据行数
+     */
+    private long rows;
+
+    /**
+     * 同步失败的租户id 重新执行同步即可继续
+     */
+    private List<String> failedTenantIds = new ArrayList<>();
+
+    /**
+     * 开始时间
+     */
+    private Date startTime;
+
+    /**
+     * 结束时间
+     */
+    private Date endTime;
+
+}
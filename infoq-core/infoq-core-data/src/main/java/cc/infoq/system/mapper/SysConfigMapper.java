@@ -3,6 +3,10 @@ package cc.infoq.system.mapper;
 import cc.infoq.common.mybatis.core.mapper.BaseMapperPlus;
 import cc.infoq.system.domain.entity.SysConfig;
 import cc.infoq.system.domain.vo.SysConfigVo;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
 
 /**
  * 参数配置 数据层
@@ -11,4 +15,13 @@ import cc.infoq.system.domain.vo.SysConfigVo;
  */
 public interface SysConfigMapper extends BaseMapperPlus<SysConfig, SysConfigVo> {
 
+    /**
+     * 查询租户缺少的参数配置(与默认租户做反连接)
+     *
+     * @param defaultTenantId 默认租户id
+     * @param tenantIds       租户id集合
+     * @return 待补齐的参数配置(租户id为目标租户 主键为空)
+     */
+    List<SysConfig> selectMissingConfigs(@Param("defaultTenantId") String defaultTenantId, @Param("tenantIds") Collection<String> tenantIds);
+
 }
@@ -0,0 +1,32 @@
+package cc.infoq.system.mapper;
+
+import cc.infoq.common.mybatis.core.mapper.BaseMapperPlus;
+import cc.infoq.system.domain.entity.SysDeptClosure;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 部门层级闭包 数据层
+ *
+ * @author Lion Li
+ */
+public interface SysDeptClosureMapper extends BaseMapperPlus<SysDeptClosure, SysDeptClosure> {
+
+    /**
+     * 为新部门写入全部祖先关系(不含自身)
+     *
+     * @param deptId   部门ID
+     * @param parentId 父部门ID
+     * @return 结果
+     */
+    int insertAncestors(@Param("deptId") Long deptId, @Param("parentId") Long parentId);
+
+    /**
+     * 将子树挂到新父部门下 写入新父部门的全部祖先(含自身)与子树全部节点的关系
+     *
+     * @param deptId   子树根部门ID
+     * @param parentId 新父部门ID
+     * @return 结果
+     */
+    int insertSubtreeLinks(@Param("deptId") Long deptId, @Param("parentId") Long parentId);
+
+}
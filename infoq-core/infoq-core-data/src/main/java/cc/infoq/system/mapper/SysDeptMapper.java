@@ -5,10 +5,12 @@ import cc.infoq.common.mybatis.annotation.DataPermission;
 import cc.infoq.common.mybatis.core.mapper.BaseMapperPlus;
 import cc.infoq.common.mybatis.helper.DataBaseHelper;
 import cc.infoq.common.utils.StreamUtils;
+import cc.infoq.common.utils.StringUtils;
 import cc.infoq.system.domain.entity.SysDept;
 import cc.infoq.system.domain.vo.SysDeptVo;
 import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 
 import java.util.List;
@@ -56,6 +58,26 @@ public interface SysDeptMapper extends BaseMapperPlus<SysDept, SysDeptVo> {
             """.formatted(roleId);
     }
 
+    /**
+     * 构建部门及其所有子部门ID的 SQL 查询语句(基于部门层级闭包表 走 ancestor_id 索引)
+     *
+     * @param deptId 部门ID
+     * @return 查询部门ID的 SQL 语句字符串
+     */
+    default String buildDeptAndChildSql(Long deptId) {
+        return "select descendant_id from sys_dept_closure where ancestor_id = %d".formatted(deptId);
+    }
+
+    /**
+     * 构建部门所有子部门ID(不含自身)的 SQL 查询语句
+     *
+     * @param deptId 部门ID
+     * @return 查询部门ID的 SQL 语句字符串
+     */
+    default String buildChildSql(Long deptId) {
+        return "select descendant_id from sys_dept_closure where ancestor_id = %d and depth > 0".formatted(deptId);
+    }
+
     /**
      * 查询部门管理数据
      *
@@ -105,7 +127,21 @@ public interface SysDeptMapper extends BaseMapperPlus<SysDept, SysDeptVo> {
     default List<SysDept> selectListByParentId(Long parentId) {
         return this.selectList(new LambdaQueryWrapper<SysDept>()
             .select(SysDept::getDeptId)
-            .apply(DataBaseHelper.findInSet(parentId, "ancestors")));
+            .inSql(SysDept::getDeptId, this.buildChildSql(parentId)));
+    }
+
+    /**
+     * 将部门所有后代的祖级列表前缀由 oldAncestors 改写为 newAncestors(单条 update 语句 按前缀走 ancestors 索引)
+     *
+     * @param deptId       被移动的部门ID
+     * @param oldAncestors 部门移动前的祖级列表
+     * @param newAncestors 部门移动后的祖级列表
+     * @return 更新行数
+     */
+    default int updateChildrenAncestors(Long deptId, String oldAncestors, String newAncestors) {
+        return this.update(null, new LambdaUpdateWrapper<SysDept>()
+            .setSql(DataBaseHelper.replaceAncestorsPrefix("ancestors", oldAncestors, newAncestors))
+            .apply(DataBaseHelper.ancestorsStartWith("ancestors", oldAncestors + StringUtils.SEPARATOR + deptId)));
     }
 
     /**
@@ -4,7 +4,9 @@ import cc.infoq.common.mybatis.core.mapper.BaseMapperPlus;
 import cc.infoq.system.domain.entity.SysDictData;
 import cc.infoq.system.domain.vo.SysDictDataVo;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -26,4 +28,13 @@ public interface SysDictDataMapper extends BaseMapperPlus<SysDictData, SysDictDa
                 .eq(SysDictData::getDictType, dictType)
                 .orderByAsc(SysDictData::getDictSort));
     }
+
+    /**
+     * 查询租户缺少的字典数据(仅默认租户字典类型下的数据 按 字典类型 + 字典键值 判断)(与默认租户做反连接)
+     *
+     * @param defaultTenantId 默认租户id
+     * @param tenantIds       租户id集合
+     * @return 待补齐的字典数据(租户id为目标租户 主键为空)
+     */
+    List<SysDictData> selectMissingDictData(@Param("defaultTenantId") String defaultTenantId, @Param("tenantIds") Collection<String> tenantIds);
 }
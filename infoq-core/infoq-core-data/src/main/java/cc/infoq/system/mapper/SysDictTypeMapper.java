@@ -3,6 +3,10 @@ package cc.infoq.system.mapper;
 import cc.infoq.common.mybatis.core.mapper.BaseMapperPlus;
 import cc.infoq.system.domain.entity.SysDictType;
 import cc.infoq.system.domain.vo.SysDictTypeVo;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
 
 /**
  * 字典表 数据层
@@ -11,4 +15,13 @@ import cc.infoq.system.domain.vo.SysDictTypeVo;
  */
 public interface SysDictTypeMapper extends BaseMapperPlus<SysDictType, SysDictTypeVo> {
 
+    /**
+     * 查询租户缺少的字典类型(与默认租户做反连接)
+     *
+     * @param defaultTenantId 默认租户id
+     * @param tenantIds       租户id集合
+     * @return 待补齐的字典类型(租户id为目标租户 主键为空)
+     */
+    List<SysDictType> selectMissingDictTypes(@Param("defaultTenantId") String defaultTenantId, @Param("tenantIds") Collection<String> tenantIds);
+
 }
@@ -0,0 +1,50 @@
+package cc.infoq.system.config;
+
+import cc.infoq.common.utils.SpringUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 租户数据同步配置
+ *
+ * @author Lion Li
+ */
+@Configuration(proxyBeanMethods = false)
+public class TenantSyncConfig {
+
+    /**
+     * 最大并行批数(所有同步任务共用)
+     */
+    public static final int PARALLELISM = 4;
+
+    /**
+     * 等待执行的批数上限 超出时由提交线程执行
+     */
+    private static final int QUEUE_CAPACITY = 100;
+
+    /**
+     * 租户同步线程池(有界 随容器关闭)
+     * <p>
+     * 不声明为 TaskExecutor 避免被 @Async 当作默认执行器 登录与租户上下文在提交时经任务装饰器传递
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService tenantSyncExecutor() {
+        BasicThreadFactory.Builder builder = new BasicThreadFactory.Builder().daemon(true);
+        if (SpringUtils.isVirtual()) {
+            builder.namingPattern("virtual-tenant-sync-%d").wrappedFactory(new VirtualThreadTaskExecutor().getVirtualThreadFactory());
+        } else {
+            builder.namingPattern("tenant-sync-%d");
+        }
+        // 队列满或已关闭时抛出 RejectedExecutionException 由提交线程执行该批
+        return new ThreadPoolExecutor(PARALLELISM, PARALLELISM, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(QUEUE_CAPACITY), builder.build());
+    }
+
+}
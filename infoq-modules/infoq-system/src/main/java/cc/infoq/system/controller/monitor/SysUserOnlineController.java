@@ -5,13 +5,13 @@ import cc.infoq.common.domain.ApiResult;
 import cc.infoq.common.domain.dto.UserOnlineDTO;
 import cc.infoq.common.log.annotation.Log;
 import cc.infoq.common.log.enums.BusinessType;
+import cc.infoq.common.mybatis.core.page.PageQuery;
 import cc.infoq.common.mybatis.core.page.TableDataInfo;
 import cc.infoq.common.redis.annotation.RepeatSubmit;
 import cc.infoq.common.redis.utils.RedisUtils;
-import cc.infoq.common.utils.StreamUtils;
-import cc.infoq.common.utils.StringUtils;
 import cc.infoq.common.web.core.BaseController;
 import cc.infoq.system.domain.entity.SysUserOnline;
+import cc.infoq.system.service.SysUserOnlineService;
 import cn.dev33.satoken.annotation.SaCheckPermission;
 import cn.dev33.satoken.exception.NotLoginException;
 import cn.dev33.satoken.stp.StpUtil;
@@ -20,9 +20,9 @@ import lombok.AllArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -35,6 +35,8 @@ import java.util.stream.Collectors;
 @RequestMapping("/monitor/online")
 public class SysUserOnlineController extends BaseController {
 
+    private final SysUserOnlineService userOnlineService;
+
     /**
      * 获取在线用户监控列表
      *
@@ -43,36 +45,8 @@ public class SysUserOnlineController extends BaseController {
      */
     @SaCheckPermission("monitor:online:list")
     @GetMapping("/list")
-    public TableDataInfo<SysUserOnline> list(String ipaddr, String userName) {
-        // 获取所有未过期的 token
-        Collection<String> keys = RedisUtils.keys(CacheConstants.ONLINE_TOKEN_KEY + "*");
-        List<UserOnlineDTO> userOnlineDTOList = new ArrayList<>();
-        for (String key : keys) {
-            String token = StringUtils.substringAfterLast(key, ":");
-            // 如果已经过期则跳过
-            if (StpUtil.stpLogic.getTokenActiveTimeoutByToken(token) < -1) {
-                continue;
-            }
-            userOnlineDTOList.add(RedisUtils.getCacheObject(CacheConstants.ONLINE_TOKEN_KEY + token));
-        }
-        if (StringUtils.isNotEmpty(ipaddr) && StringUtils.isNotEmpty(userName)) {
-            userOnlineDTOList = StreamUtils.filter(userOnlineDTOList, userOnline ->
-                StringUtils.equals(ipaddr, userOnline.getIpaddr()) &&
-                    StringUtils.equals(userName, userOnline.getUserName())
-            );
-        } else if (StringUtils.isNotEmpty(ipaddr)) {
-            userOnlineDTOList = StreamUtils.filter(userOnlineDTOList, userOnline ->
-                StringUtils.equals(ipaddr, userOnline.getIpaddr())
-            );
-        } else if (StringUtils.isNotEmpty(userName)) {
-            userOnlineDTOList = StreamUtils.filter(userOnlineDTOList, userOnline ->
-                StringUtils.equals(userName, userOnline.getUserName())
-            );
-        }
-        Collections.reverse(userOnlineDTOList);
-        userOnlineDTOList.removeAll(Collections.singleton(null));
-        List<SysUserOnline> userOnlineList = BeanUtil.copyToList(userOnlineDTOList, SysUserOnline.class);
-        return TableDataInfo.build(userOnlineList);
+    public TableDataInfo<SysUserOnline> list(String ipaddr, String userName, PageQuery pageQuery) {
+        return userOnlineService.selectPageUserOnlineList(ipaddr, userName, pageQuery);
     }
 
     /**
@@ -99,10 +73,12 @@ public class SysUserOnlineController extends BaseController {
     public TableDataInfo<SysUserOnline> getInfo() {
         // 获取指定账号 id 的 token 集合
         List<String> tokenIds = StpUtil.getTokenValueListByLoginId(StpUtil.getLoginIdAsString());
-        List<UserOnlineDTO> userOnlineDTOList = tokenIds.stream()
+        List<String> onlineKeys = tokenIds.stream()
             .filter(token -> StpUtil.stpLogic.getTokenActiveTimeoutByToken(token) >= -1)
-            .map(token -> (UserOnlineDTO) RedisUtils.getCacheObject(CacheConstants.ONLINE_TOKEN_KEY + token))
+            .map(token -> CacheConstants.ONLINE_TOKEN_KEY + token)
             .collect(Collectors.toList());
+        Map<String, UserOnlineDTO> onlineMap = RedisUtils.getMultiCacheObject(onlineKeys);
+        List<UserOnlineDTO> userOnlineDTOList = new ArrayList<>(onlineMap.values());
         //复制和处理 SysUserOnline 对象列表
         Collections.reverse(userOnlineDTOList);
         userOnlineDTOList.removeAll(Collections.singleton(null));
@@ -15,7 +15,9 @@ import cc.infoq.common.validate.EditGroup;
 import cc.infoq.common.web.core.BaseController;
 import cc.infoq.system.domain.bo.SysTenantBo;
 import cc.infoq.system.domain.vo.SysTenantVo;
+import cc.infoq.system.domain.vo.TenantSyncProgressVo;
 import cc.infoq.system.service.SysTenantService;
+import cc.infoq.system.service.SysTenantSyncService;
 import cn.dev33.satoken.annotation.SaCheckPermission;
 import cn.dev33.satoken.annotation.SaCheckRole;
 import com.baomidou.lock.annotation.Lock4j;
@@ -43,6 +45,7 @@ import java.util.List;
 public class SysTenantController extends BaseController {
 
     private final SysTenantService sysTenantService;
+    private final SysTenantSyncService sysTenantSyncService;
 
     /**
      * 查询租户列表
@@ -207,4 +210,15 @@ public class SysTenantController extends BaseController {
         sysTenantService.syncTenantConfig();
         return ApiResult.ok("同步租户参数配置成功");
     }
+
+    /**
+     * 查询租户同步进度
+     *
+     * @param task 同步任务(dict 字典 config 参数配置)
+     */
+    @SaCheckRole(TenantConstants.SUPER_ADMIN_ROLE_KEY)
+    @GetMapping("/syncProgress")
+    public ApiResult<TenantSyncProgressVo> syncProgress(@NotBlank(message = "同步任务不能为空") String task) {
+        return ApiResult.ok(sysTenantSyncService.getProgress(task));
+    }
 }
@@ -1,10 +1,8 @@
 package cc.infoq.system.listener;
 
-import cc.infoq.common.constant.CacheConstants;
 import cc.infoq.common.constant.Constants;
 import cc.infoq.common.domain.dto.UserOnlineDTO;
 import cc.infoq.common.log.event.LoginInfoEvent;
-import cc.infoq.common.redis.utils.RedisUtils;
 import cc.infoq.common.satoken.utils.LoginHelper;
 import cc.infoq.common.tenant.helper.TenantHelper;
 import cc.infoq.common.utils.MessageUtils;
@@ -12,6 +10,7 @@ import cc.infoq.common.utils.ServletUtils;
 import cc.infoq.common.utils.SpringUtils;
 import cc.infoq.common.utils.ip.AddressUtils;
 import cc.infoq.system.service.SysLoginService;
+import cc.infoq.system.service.SysUserOnlineService;
 import cn.dev33.satoken.listener.SaTokenListener;
 import cn.dev33.satoken.stp.StpUtil;
 import cn.dev33.satoken.stp.parameter.SaLoginParameter;
@@ -22,8 +21,6 @@ import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.time.Duration;
-
 /**
  * 用户行为 侦听器的实现
  *
@@ -36,6 +33,8 @@ public class UserActionListener implements SaTokenListener {
 
     private final SysLoginService loginService;
 
+    private final SysUserOnlineService userOnlineService;
+
     /**
      * 每次登录时触发
      */
@@ -57,11 +56,7 @@ public class UserActionListener implements SaTokenListener {
         dto.setDeviceType(loginParameter.getDeviceType());
         dto.setDeptName((String) loginParameter.getExtra(LoginHelper.DEPT_NAME_KEY));
         TenantHelper.dynamic(tenantId, () -> {
-            if(loginParameter.getTimeout() == -1) {
-                RedisUtils.setCacheObject(CacheConstants.ONLINE_TOKEN_KEY + tokenValue, dto);
-            } else {
-                RedisUtils.setCacheObject(CacheConstants.ONLINE_TOKEN_KEY + tokenValue, dto, Duration.ofSeconds(loginParameter.getTimeout()));
-            }
+            userOnlineService.insertUserOnline(dto, loginParameter.getTimeout());
         });
         // 记录登录日志
         LoginInfoEvent loginInfoEvent = new LoginInfoEvent();
@@ -83,8 +78,9 @@ public class UserActionListener implements SaTokenListener {
     public void doLogout(String loginType, Object loginId, String tokenValue) {
         String tenantId = Convert.toStr(StpUtil.getExtra(tokenValue, LoginHelper.TENANT_KEY));
         TenantHelper.dynamic(tenantId, () -> {
-            RedisUtils.deleteObject(CacheConstants.ONLINE_TOKEN_KEY + tokenValue);
+            userOnlineService.deleteUserOnline(tokenValue);
         });
+        LoginHelper.removeRoleIndex(Convert.toStr(loginId), tokenValue);
         log.info("user doLogout, userId:{}, token:{}", loginId, tokenValue);
     }
 
@@ -95,8 +91,9 @@ public class UserActionListener implements SaTokenListener {
     public void doKickout(String loginType, Object loginId, String tokenValue) {
         String tenantId = Convert.toStr(StpUtil.getExtra(tokenValue, LoginHelper.TENANT_KEY));
         TenantHelper.dynamic(tenantId, () -> {
-            RedisUtils.deleteObject(CacheConstants.ONLINE_TOKEN_KEY + tokenValue);
+            userOnlineService.deleteUserOnline(tokenValue);
         });
+        LoginHelper.removeRoleIndex(Convert.toStr(loginId), tokenValue);
         log.info("user doKickout, userId:{}, token:{}", loginId, tokenValue);
     }
 
@@ -107,8 +104,9 @@ public class UserActionListener implements SaTokenListener {
     public void doReplaced(String loginType, Object loginId, String tokenValue) {
         String tenantId = Convert.toStr(StpUtil.getExtra(tokenValue, LoginHelper.TENANT_KEY));
         TenantHelper.dynamic(tenantId, () -> {
-            RedisUtils.deleteObject(CacheConstants.ONLINE_TOKEN_KEY + tokenValue);
+            userOnlineService.deleteUserOnline(tokenValue);
         });
+        LoginHelper.removeRoleIndex(Convert.toStr(loginId), tokenValue);
         log.info("user doReplaced, userId:{}, token:{}", loginId, tokenValue);
     }
 
@@ -159,5 +157,9 @@ public class UserActionListener implements SaTokenListener {
      */
     @Override
     public void doRenewTimeout(String loginType, Object loginId, String tokenValue, long timeout) {
+        String tenantId = Convert.toStr(StpUtil.getExtra(tokenValue, LoginHelper.TENANT_KEY));
+        TenantHelper.dynamic(tenantId, () -> {
+            userOnlineService.renewUserOnline(tokenValue, timeout);
+        });
     }
 }
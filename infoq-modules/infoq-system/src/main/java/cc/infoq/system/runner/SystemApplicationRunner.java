@@ -1,12 +1,17 @@
 package cc.infoq.system.runner;
 
+import cc.infoq.common.satoken.utils.LoginHelper;
+import cc.infoq.system.service.SysDeptClosureService;
 import cc.infoq.system.service.SysOssConfigService;
+import cc.infoq.system.service.SysUserOnlineService;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.ScheduledExecutorService;
+
 /**
  * 初始化 system 模块对应业务数据
  *
@@ -18,11 +23,28 @@ import org.springframework.stereotype.Component;
 public class SystemApplicationRunner implements ApplicationRunner {
 
     private final SysOssConfigService ossConfigService;
+    private final SysDeptClosureService deptClosureService;
+    private final SysUserOnlineService userOnlineService;
+    private final ScheduledExecutorService scheduledExecutorService;
 
     @Override
     public void run(ApplicationArguments args) throws Exception {
         ossConfigService.init();
         log.info("初始化OSS配置成功");
+        deptClosureService.initClosure();
+        // 在线 token 较多时耗时较长 异步执行不阻塞启动 已补齐过时直接跳过
+        scheduledExecutorService.execute(() -> {
+            try {
+                log.info("补齐角色在线索引 会话数 => {}", LoginHelper.rebuildRoleIndex());
+            } catch (Exception e) {
+                log.error("补齐角色在线索引失败", e);
+            }
+            try {
+                log.info("补齐在线用户索引 会话数 => {}", userOnlineService.rebuildOnlineIndex());
+            } catch (Exception e) {
+                log.error("补齐在线用户索引失败", e);
+            }
+        });
     }
 
 }
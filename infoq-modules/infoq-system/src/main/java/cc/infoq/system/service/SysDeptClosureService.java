@@ -0,0 +1,47 @@
+package cc.infoq.system.service;
+
+/**
+ * 部门层级闭包 服务层
+ * <p>
+ * 与部门的新增、移动、删除在同一事务内维护 保证闭包表与 parent_id 一致
+ *
+ * @author Lion Li
+ */
+public interface SysDeptClosureService {
+
+    /**
+     * 登记新部门
+     *
+     * @param deptId   部门ID
+     * @param parentId 父部门ID 顶级部门为 0
+     */
+    void insertDept(Long deptId, Long parentId);
+
+    /**
+     * 将部门及其子树移动到新父部门下
+     *
+     * @param deptId      部门ID
+     * @param newParentId 新父部门ID
+     */
+    void moveDept(Long deptId, Long newParentId);
+
+    /**
+     * 移除部门(部门不存在子部门)
+     *
+     * @param deptId 部门ID
+     */
+    void deleteDept(Long deptId);
+
+    /**
+     * 按 parent_id 全量重建闭包表(全部租户)
+     *
+     * @return 写入的关系数
+     */
+    int rebuildClosure();
+
+    /**
+     * 闭包表为空而部门表存在数据时重建 用于存量数据迁移
+     */
+    void initClosure();
+
+}
@@ -0,0 +1,33 @@
+package cc.infoq.system.service;
+
+import cc.infoq.system.domain.model.DeptTreeIndex;
+
+/**
+ * 部门树索引 服务层
+ * <p>
+ * 按租户在本地内存中维护部门树索引 部门变更后经缓存失效总线通知各节点重建
+ *
+ * @author Lion Li
+ */
+public interface SysDeptTreeService {
+
+    /**
+     * 获取当前租户的部门树索引
+     *
+     * @return 部门树索引
+     */
+    DeptTreeIndex getIndex();
+
+    /**
+     * 失效当前租户的部门树索引(存在事务时在事务提交后执行)
+     */
+    void invalidate();
+
+    /**
+     * 失效指定租户的部门树索引(存在事务时在事务提交后执行)
+     *
+     * @param tenantId 租户ID
+     */
+    void invalidate(String tenantId);
+
+}
@@ -213,8 +213,7 @@ public interface SysRoleService {
      *
      * <p>
      * 先判断角色是否绑定用户，若无绑定则直接返回
-     * 然后遍历当前所有在线Token，查找拥有该角色的用户并强制登出
-     * 注意：在线用户量过大时，操作可能导致 Redis 阻塞，需谨慎调用
+     * 然后通过登录时维护的角色索引找到拥有该角色的在线账号并强制登出
      * </p>
      *
      * @param roleId 角色ID
@@ -225,8 +224,7 @@ public interface SysRoleService {
      * 根据用户ID列表清除对应在线用户的登录状态（踢出指定用户）
      *
      * <p>
-     * 遍历当前所有在线Token，匹配用户ID列表中的用户，强制登出
-     * 注意：在线用户量过大时，操作可能导致 Redis 阻塞，需谨慎调用
+     * 按用户ID直接定位账号会话下的全部 token 强制登出 无需遍历全部在线 token
      * </p>
      *
      * @param userIds 需要清除的用户ID列表
@@ -0,0 +1,66 @@
+package cc.infoq.system.service;
+
+import cc.infoq.system.domain.vo.TenantSyncProgressVo;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 租户数据同步 服务层
+ * <p>
+ * 将默认租户的字典与参数配置补齐到其他租户 按租户分批并行执行 每批独立事务
+ * 缺失数据由反连接查询得出 同步可重复执行 失败后重新执行即从未完成的部分继续
+ *
+ * @author Lion Li
+ */
+public interface SysTenantSyncService {
+
+    /**
+     * 字典同步任务
+     */
+    String TASK_DICT = "dict";
+
+    /**
+     * 参数配置同步任务
+     */
+    String TASK_CONFIG = "config";
+
+    /**
+     * 同步租户字典
+     *
+     * @return 同步进度
+     */
+    TenantSyncProgressVo syncDict();
+
+    /**
+     * 同步租户参数配置
+     *
+     * @return 同步进度
+     */
+    TenantSyncProgressVo syncConfig();
+
+    /**
+     * 查询最近一次同步的进度
+     *
+     * @param task 同步任务
+     * @return 同步进度 未执行过返回 null
+     */
+    TenantSyncProgressVo getProgress(String task);
+
+    /**
+     * 补齐一批租户的字典(独立事务)
+     *
+     * @param tenantIds 租户id集合
+     * @return 补齐的数据行数 按租户id分组
+     */
+    Map<String, Integer> syncDictChunk(List<String> tenantIds);
+
+    /**
+     * 补齐一批租户的参数配置(独立事务)
+     *
+     * @param tenantIds 租户id集合
+     * @return 补齐的数据行数 按租户id分组
+     */
+    Map<String, Integer> syncConfigChunk(List<String> tenantIds);
+
+}
@@ -0,0 +1,57 @@
+package cc.infoq.system.service;
+
+import cc.infoq.common.domain.dto.UserOnlineDTO;
+import cc.infoq.common.mybatis.core.page.PageQuery;
+import cc.infoq.common.mybatis.core.page.TableDataInfo;
+import cc.infoq.system.domain.entity.SysUserOnline;
+
+/**
+ * 在线用户 服务层
+ * <p>
+ * 维护在线会话索引 查询时按索引分页读取 避免扫描全部在线 key
+ *
+ * @author Lion Li
+ */
+public interface SysUserOnlineService {
+
+    /**
+     * 分页查询在线用户列表
+     *
+     * @param ipaddr    IP地址
+     * @param userName  用户名
+     * @param pageQuery 分页参数
+     * @return 在线用户分页列表
+     */
+    TableDataInfo<SysUserOnline> selectPageUserOnlineList(String ipaddr, String userName, PageQuery pageQuery);
+
+    /**
+     * 登记在线会话 (需在会话所属租户下调用)
+     *
+     * @param dto     在线用户信息
+     * @param timeout 会话存活时间 (单位: 秒) -1 永不过期
+     */
+    void insertUserOnline(UserOnlineDTO dto, long timeout);
+
+    /**
+     * 续期在线会话 (需在会话所属租户下调用)
+     *
+     * @param tokenValue token值
+     * @param timeout    会话存活时间 (单位: 秒) -1 永不过期
+     */
+    void renewUserOnline(String tokenValue, long timeout);
+
+    /**
+     * 移除在线会话 (需在会话所属租户下调用)
+     *
+     * @param tokenValue token值
+     */
+    void deleteUserOnline(String tokenValue);
+
+    /**
+     * 补齐索引上线前已登录会话的在线索引 (全部节点只执行一次)
+     *
+     * @return 补齐的会话数
+     */
+    int rebuildOnlineIndex();
+
+}
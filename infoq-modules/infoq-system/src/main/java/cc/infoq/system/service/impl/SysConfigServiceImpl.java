@@ -74,7 +74,7 @@ public class SysConfigServiceImpl implements SysConfigService, ConfigService {
      * @param configKey 参数key
      * @return 参数键值
      */
-    @Cacheable(cacheNames = CacheNames.SYS_CONFIG, key = "#configKey")
+    @Cacheable(cacheNames = CacheNames.SYS_CONFIG, key = "#configKey", sync = true)
     @Override
     public String selectConfigByKey(String configKey) {
         SysConfig retConfig = sysConfigMapper.selectOne(new LambdaQueryWrapper<SysConfig>()
@@ -3,9 +3,9 @@ package cc.infoq.system.service.impl;
 import cc.infoq.common.constant.CacheNames;
 import cc.infoq.common.utils.StreamUtils;
 import cc.infoq.system.domain.entity.SysRoleDept;
-import cc.infoq.system.mapper.SysDeptMapper;
 import cc.infoq.system.mapper.SysRoleDeptMapper;
 import cc.infoq.system.service.SysDataScopeService;
+import cc.infoq.system.service.SysDeptTreeService;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.convert.Convert;
 import cn.hutool.core.util.ObjectUtil;
@@ -29,7 +29,7 @@ import java.util.List;
 public class SysDataScopeServiceImpl implements SysDataScopeService {
 
     private final SysRoleDeptMapper sysRoleDeptMapper;
-    private final SysDeptMapper sysDeptMapper;
+    private final SysDeptTreeService sysDeptTreeService;
 
     /**
      * 获取角色自定义权限
@@ -54,18 +54,17 @@ public class SysDataScopeServiceImpl implements SysDataScopeService {
     }
 
     /**
-     * 获取部门及以下权限
+     * 获取部门及以下权限(由部门树索引的连续区间直接展开)
      *
      * @param deptId 部门Id
      * @return 部门Id组
      */
-    @Cacheable(cacheNames = CacheNames.SYS_DEPT_AND_CHILD, key = "#deptId", condition = "#deptId != null")
     @Override
     public String getDeptAndChild(Long deptId) {
         if (ObjectUtil.isNull(deptId)) {
             return "-1";
         }
-        List<Long> deptIds = sysDeptMapper.selectDeptAndChildById(deptId);
+        List<Long> deptIds = sysDeptTreeService.getIndex().subtree(deptId);
         return CollUtil.isNotEmpty(deptIds) ? StreamUtils.join(deptIds, Convert::toStr) : "-1";
     }
 
@@ -0,0 +1,181 @@
+package cc.infoq.system.service.impl;
+
+import cc.infoq.common.constant.GlobalConstants;
+import cc.infoq.common.exception.ServiceException;
+import cc.infoq.common.redis.utils.RedisUtils;
+import cc.infoq.common.tenant.helper.TenantHelper;
+import cc.infoq.common.utils.SpringUtils;
+import cc.infoq.system.domain.entity.SysDept;
+import cc.infoq.system.domain.entity.SysDeptClosure;
+import cc.infoq.system.mapper.SysDeptClosureMapper;
+import cc.infoq.system.mapper.SysDeptMapper;
+import cc.infoq.system.service.SysDeptClosureService;
+import cn.hutool.core.collection.CollUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 部门层级闭包 服务层处理
+ * <p>
+ * 闭包表不区分租户(部门ID全局唯一) 已在多租户排除表中配置
+ *
+ * @author Lion Li
+ */
+@Slf4j
+@AllArgsConstructor
+@Service
+public class SysDeptClosureServiceImpl implements SysDeptClosureService {
+
+    /**
+     * 批量写入与 in 条件的分批大小
+     */
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * 闭包表初始化锁
+     */
+    private static final String INIT_LOCK_KEY = GlobalConstants.GLOBAL_REDIS_KEY + "dept_closure_init";
+
+    private final SysDeptClosureMapper baseMapper;
+    private final SysDeptMapper sysDeptMapper;
+
+    /**
+     * 登记新部门
+     *
+     * @param deptId   部门ID
+     * @param parentId 父部门ID 顶级部门为 0
+     */
+    @Override
+    public void insertDept(Long deptId, Long parentId) {
+        baseMapper.insert(new SysDeptClosure(deptId, deptId, 0));
+        baseMapper.insertAncestors(deptId, parentId);
+    }
+
+    /**
+     * 将部门及其子树移动到新父部门下
+     * <p>
+     * 先断开子树与旧祖先的关系 再将新父部门的祖先链与子树做笛卡尔积写入 子树内部关系保持不变
+     *
+     * @param deptId      部门ID
+     * @param newParentId 新父部门ID
+     */
+    @Override
+    public void moveDept(Long deptId, Long newParentId) {
+        List<Long> subtree = baseMapper.selectObjs(new LambdaQueryWrapper<SysDeptClosure>()
+            .select(SysDeptClosure::getDescendantId)
+            .eq(SysDeptClosure::getAncestorId, deptId));
+        if (subtree.contains(newParentId)) {
+            throw new ServiceException("不能将部门移动到自身或其子部门下");
+        }
+        List<Long> oldAncestors = baseMapper.selectObjs(new LambdaQueryWrapper<SysDeptClosure>()
+            .select(SysDeptClosure::getAncestorId)
+            .eq(SysDeptClosure::getDescendantId, deptId)
+            .gt(SysDeptClosure::getDepth, 0));
+        if (CollUtil.isNotEmpty(oldAncestors)) {
+            for (List<Long> part : CollUtil.split(subtree, BATCH_SIZE)) {
+                baseMapper.delete(new LambdaQueryWrapper<SysDeptClosure>()
+                    .in(SysDeptClosure::getAncestorId, oldAncestors)
+                    .in(SysDeptClosure::getDescendantId, part));
+            }
+        }
+        baseMapper.insertSubtreeLinks(deptId, newParentId);
+    }
+
+    /**
+     * 移除部门(部门不存在子部门)
+     *
+     * @param deptId 部门ID
+     */
+    @Override
+    public void deleteDept(Long deptId) {
+        baseMapper.delete(new LambdaQueryWrapper<SysDeptClosure>()
+            .eq(SysDeptClosure::getDescendantId, deptId)
+            .or()
+            .eq(SysDeptClosure::getAncestorId, deptId));
+    }
+
+    /**
+     * 按 parent_id 全量重建闭包表(全部租户)
+     *
+     * @return 写入的关系数
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public int rebuildClosure() {
+        List<SysDept> depts = TenantHelper.ignore(() -> sysDeptMapper.selectList(new LambdaQueryWrapper<SysDept>()
+            .select(SysDept::getDeptId, SysDept::getParentId)));
+        List<SysDeptClosure> list = buildClosure(depts);
+        baseMapper.delete(new LambdaQueryWrapper<>());
+        if (CollUtil.isNotEmpty(list)) {
+            baseMapper.insertBatch(list, BATCH_SIZE);
+        }
+        return list.size();
+    }
+
+    /**
+     * 闭包表为空而部门表存在数据时重建 用于存量数据迁移
+     * <p>
+     * 多节点同时启动时以分布式锁串行 锁在重建事务提交后才释放 后续节点重新检查时即可看到已写入的数据
+     */
+    @Override
+    public void initClosure() {
+        if (baseMapper.exists(new LambdaQueryWrapper<>())) {
+            return;
+        }
+        RLock lock = RedisUtils.getClient().getLock(INIT_LOCK_KEY);
+        lock.lock();
+        try {
+            if (baseMapper.exists(new LambdaQueryWrapper<>())) {
+                return;
+            }
+            boolean hasDept = TenantHelper.ignore(() -> sysDeptMapper.exists(new LambdaQueryWrapper<>()));
+            if (hasDept) {
+                int rows = SpringUtils.getAopProxy(this).rebuildClosure();
+                log.info("部门层级闭包表初始化完成 关系数 => {}", rows);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 由 部门ID => 父部门ID 计算全部 祖先-后代 关系
+     * <p>
+     * 每个部门沿父链向上 复杂度为 部门数 * 平均深度
+     *
+     * @param depts 部门列表(需包含 deptId 与 parentId)
+     * @return 闭包关系列表
+     */
+    public static List<SysDeptClosure> buildClosure(Collection<SysDept> depts) {
+        Map<Long, Long> parentMap = new HashMap<>(depts.size() * 2);
+        for (SysDept dept : depts) {
+            parentMap.put(dept.getDeptId(), dept.getParentId());
+        }
+        List<SysDeptClosure> list = new ArrayList<>(depts.size() * 4);
+        for (Long deptId : parentMap.keySet()) {
+            list.add(new SysDeptClosure(deptId, deptId, 0));
+            Long parentId = parentMap.get(deptId);
+            int depth = 1;
+            // 父部门已删除或为顶级时结束
+            while (parentMap.containsKey(parentId)) {
+                if (depth > parentMap.size()) {
+                    throw new ServiceException("部门层级存在循环 => " + deptId);
+                }
+                list.add(new SysDeptClosure(parentId, deptId, depth++));
+                parentId = parentMap.get(parentId);
+            }
+        }
+        return list;
+    }
+
+}
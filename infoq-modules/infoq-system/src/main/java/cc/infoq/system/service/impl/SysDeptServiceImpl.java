@@ -3,10 +3,12 @@ package cc.infoq.system.service.impl;
 import cc.infoq.common.constant.CacheNames;
 import cc.infoq.common.constant.SystemConstants;
 import cc.infoq.common.domain.dto.DeptDTO;
+import cc.infoq.common.domain.dto.RoleDTO;
+import cc.infoq.common.domain.model.LoginUser;
 import cc.infoq.common.exception.ServiceException;
+import cc.infoq.common.mybatis.enums.DataScopeType;
 import cc.infoq.common.mybatis.core.page.PageQuery;
 import cc.infoq.common.mybatis.core.page.TableDataInfo;
-import cc.infoq.common.mybatis.helper.DataBaseHelper;
 import cc.infoq.common.redis.utils.CacheUtils;
 import cc.infoq.common.satoken.utils.LoginHelper;
 import cc.infoq.common.service.DeptService;
@@ -15,11 +17,15 @@ import cc.infoq.system.domain.bo.SysDeptBo;
 import cc.infoq.system.domain.entity.SysDept;
 import cc.infoq.system.domain.entity.SysRole;
 import cc.infoq.system.domain.entity.SysUser;
+import cc.infoq.system.domain.model.DeptTreeIndex;
 import cc.infoq.system.domain.vo.SysDeptVo;
 import cc.infoq.system.mapper.SysDeptMapper;
 import cc.infoq.system.mapper.SysRoleMapper;
 import cc.infoq.system.mapper.SysUserMapper;
+import cc.infoq.system.service.SysDataScopeService;
+import cc.infoq.system.service.SysDeptClosureService;
 import cc.infoq.system.service.SysDeptService;
+import cc.infoq.system.service.SysDeptTreeService;
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.convert.Convert;
@@ -32,7 +38,6 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import lombok.AllArgsConstructor;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -50,6 +55,9 @@ public class SysDeptServiceImpl implements SysDeptService, DeptService {
     private final SysDeptMapper sysDeptMapper;
     private final SysRoleMapper sysRoleMapper;
     private final SysUserMapper sysUserMapper;
+    private final SysDeptClosureService sysDeptClosureService;
+    private final SysDeptTreeService sysDeptTreeService;
+    private final SysDataScopeService sysDataScopeService;
 
     /**
      * 分页查询部门管理数据
@@ -106,10 +114,7 @@ public class SysDeptServiceImpl implements SysDeptService, DeptService {
         lqw.orderByAsc(SysDept::getDeptId);
         if (ObjectUtil.isNotNull(bo.getBelongDeptId())) {
             //部门树搜索
-            lqw.and(x -> {
-                List<Long> deptIds = sysDeptMapper.selectDeptAndChildById(bo.getBelongDeptId());
-                x.in(SysDept::getDeptId, deptIds);
-            });
+            lqw.inSql(SysDept::getDeptId, sysDeptMapper.buildDeptAndChildSql(bo.getBelongDeptId()));
         }
         return lqw;
     }
@@ -185,11 +190,12 @@ public class SysDeptServiceImpl implements SysDeptService, DeptService {
      */
     @Override
     public String selectDeptNameByIds(String deptIds) {
+        DeptTreeIndex index = sysDeptTreeService.getIndex();
         List<String> list = new ArrayList<>();
-        for (Long id : StringUtils.splitTo(deptIds, Convert::toLong)) {
-            SysDeptVo vo = SpringUtils.getAopProxy(this).selectDeptById(id);
-            if (ObjectUtil.isNotNull(vo)) {
-                list.add(vo.getDeptName());
+        for (Long deptId : new LinkedHashSet<>(StringUtils.splitTo(deptIds, Convert::toLong))) {
+            String deptName = index.getName(deptId);
+            if (deptName != null) {
+                list.add(deptName);
             }
         }
         return StringUtils.joinComma(list);
@@ -228,9 +234,7 @@ public class SysDeptServiceImpl implements SysDeptService, DeptService {
      */
     @Override
     public long selectNormalChildrenDeptById(Long deptId) {
-        return sysDeptMapper.selectCount(new LambdaQueryWrapper<SysDept>()
-            .eq(SysDept::getStatus, SystemConstants.NORMAL)
-            .apply(DataBaseHelper.findInSet(deptId, "ancestors")));
+        return sysDeptTreeService.getIndex().countNormalDescendants(deptId);
     }
 
     /**
@@ -285,19 +289,56 @@ public class SysDeptServiceImpl implements SysDeptService, DeptService {
         if (LoginHelper.isSuperAdmin()) {
             return;
         }
-        if (sysDeptMapper.countDeptById(deptId) == 0) {
+        if (!hasDeptDataScope(deptId)) {
             throw new ServiceException("没有权限访问部门数据！");
         }
     }
 
+    /**
+     * 按当前用户的角色数据范围在部门树索引上判断 语义与部门表的数据权限过滤一致
+     * <p>
+     * 部门表不存在用户列 仅本人数据权限的角色不可访问任何部门
+     *
+     * @param deptId 部门id
+     * @return 结果
+     */
+    private boolean hasDeptDataScope(Long deptId) {
+        DeptTreeIndex index = sysDeptTreeService.getIndex();
+        if (!index.contains(deptId)) {
+            return false;
+        }
+        LoginUser user = LoginHelper.getLoginUser();
+        if (LoginHelper.isTenantAdmin() || user == null || CollUtil.isEmpty(user.getRoles())) {
+            return true;
+        }
+        for (RoleDTO role : user.getRoles()) {
+            DataScopeType type = DataScopeType.findCode(role.getDataScope());
+            if (ObjectUtil.isNull(type)) {
+                throw new ServiceException("角色数据范围异常 => " + role.getDataScope());
+            }
+            boolean matched = switch (type) {
+                case ALL -> true;
+                case CUSTOM -> StringUtils.splitList(sysDataScopeService.getRoleCustom(role.getRoleId()))
+                    .contains(deptId.toString());
+                case DEPT -> deptId.equals(user.getDeptId());
+                case DEPT_AND_CHILD, DEPT_AND_CHILD_OR_SELF -> index.isDescendant(user.getDeptId(), deptId);
+                default -> false;
+            };
+            if (matched) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * 新增保存部门信息
      *
      * @param bo 部门信息
      * @return 结果
      */
-    @CacheEvict(cacheNames = CacheNames.SYS_DEPT_AND_CHILD, allEntries = true)
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public int insertDept(SysDeptBo bo) {
         SysDept info = sysDeptMapper.selectById(bo.getParentId());
         // 如果父节点不为正常状态,则不允许新增子节点
@@ -306,7 +347,10 @@ public class SysDeptServiceImpl implements SysDeptService, DeptService {
         }
         SysDept dept = MapstructUtils.convert(bo, SysDept.class);
         dept.setAncestors(info.getAncestors() + StringUtils.SEPARATOR + dept.getParentId());
-        return sysDeptMapper.insert(dept);
+        int rows = sysDeptMapper.insert(dept);
+        sysDeptClosureService.insertDept(dept.getDeptId(), dept.getParentId());
+        sysDeptTreeService.invalidate();
+        return rows;
     }
 
     /**
@@ -315,10 +359,7 @@ public class SysDeptServiceImpl implements SysDeptService, DeptService {
      * @param bo 部门信息
      * @return 结果
      */
-    @Caching(evict = {
-        @CacheEvict(cacheNames = CacheNames.SYS_DEPT, key = "#bo.deptId"),
-        @CacheEvict(cacheNames = CacheNames.SYS_DEPT_AND_CHILD, allEntries = true)
-    })
+    @CacheEvict(cacheNames = CacheNames.SYS_DEPT, key = "#bo.deptId")
     @Override
     @Transactional(rollbackFor = Exception.class)
     public int updateDept(SysDeptBo bo) {
@@ -336,6 +377,7 @@ public class SysDeptServiceImpl implements SysDeptService, DeptService {
                 String oldAncestors = oldDept.getAncestors();
                 dept.setAncestors(newAncestors);
                 updateDeptChildren(dept.getDeptId(), newAncestors, oldAncestors);
+                sysDeptClosureService.moveDept(dept.getDeptId(), dept.getParentId());
             }
         } else {
             dept.setAncestors(oldDept.getAncestors());
@@ -348,6 +390,7 @@ public class SysDeptServiceImpl implements SysDeptService, DeptService {
             // 如果该部门是启用状态，则启用该部门的所有上级部门
             updateParentDeptStatusNormal(dept);
         }
+        sysDeptTreeService.invalidate();
         return result;
     }
 
@@ -372,20 +415,14 @@ public class SysDeptServiceImpl implements SysDeptService, DeptService {
      * @param oldAncestors 旧的父ID集合
      */
     private void updateDeptChildren(Long deptId, String newAncestors, String oldAncestors) {
-        List<SysDept> children = sysDeptMapper.selectList(new LambdaQueryWrapper<SysDept>()
-            .apply(DataBaseHelper.findInSet(deptId, "ancestors")));
-        List<SysDept> list = new ArrayList<>();
-        for (SysDept child : children) {
-            SysDept dept = new SysDept();
-            dept.setDeptId(child.getDeptId());
-            dept.setAncestors(child.getAncestors().replaceFirst(oldAncestors, newAncestors));
-            list.add(dept);
-        }
-        if (CollUtil.isNotEmpty(list)) {
-            if (sysDeptMapper.updateBatchById(list)) {
-                list.forEach(dept -> CacheUtils.evict(CacheNames.SYS_DEPT, dept.getDeptId()));
-            }
+        // 子树部门ID由闭包表索引取得 仅用于失效对应的部门缓存
+        List<Long> childIds = StreamUtils.toList(sysDeptMapper.selectListByParentId(deptId), SysDept::getDeptId);
+        if (CollUtil.isEmpty(childIds)) {
+            return;
         }
+        // 后代的祖级均以 旧祖级 + 自身ID 开头 在数据库内一次性替换前缀 不再逐行读取与回写
+        sysDeptMapper.updateChildrenAncestors(deptId, oldAncestors, newAncestors);
+        CacheUtils.evictAll(CacheNames.SYS_DEPT, childIds);
     }
 
     /**
@@ -394,12 +431,12 @@ public class SysDeptServiceImpl implements SysDeptService, DeptService {
      * @param deptId 部门ID
      * @return 结果
      */
-    @Caching(evict = {
-        @CacheEvict(cacheNames = CacheNames.SYS_DEPT, key = "#deptId"),
-        @CacheEvict(cacheNames = CacheNames.SYS_DEPT_AND_CHILD, key = "#deptId")
-    })
+    @CacheEvict(cacheNames = CacheNames.SYS_DEPT, key = "#deptId")
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public int deleteDeptById(Long deptId) {
+        sysDeptClosureService.deleteDept(deptId);
+        sysDeptTreeService.invalidate();
         return sysDeptMapper.deleteById(deptId);
     }
 
@@ -415,12 +452,15 @@ public class SysDeptServiceImpl implements SysDeptService, DeptService {
         if (CollUtil.isEmpty(deptIds)) {
             return Collections.emptyMap();
         }
-        List<SysDept> list = sysDeptMapper.selectList(
-            new LambdaQueryWrapper<SysDept>()
-                .select(SysDept::getDeptId, SysDept::getDeptName)
-                .in(SysDept::getDeptId, deptIds)
-        );
-        return StreamUtils.toMap(list, SysDept::getDeptId, SysDept::getDeptName);
+        DeptTreeIndex index = sysDeptTreeService.getIndex();
+        Map<Long, String> map = new HashMap<>(deptIds.size());
+        for (Long deptId : deptIds) {
+            String deptName = index.getName(deptId);
+            if (deptName != null) {
+                map.put(deptId, deptName);
+            }
+        }
+        return map;
     }
 
 }
@@ -0,0 +1,104 @@
+package cc.infoq.system.service.impl;
+
+import cc.infoq.common.redis.manager.CacheInvalidateBus;
+import cc.infoq.common.tenant.helper.TenantHelper;
+import cc.infoq.common.utils.StringUtils;
+import cc.infoq.system.domain.entity.SysDept;
+import cc.infoq.system.domain.model.DeptTreeIndex;
+import cc.infoq.system.mapper.SysDeptMapper;
+import cc.infoq.system.service.SysDeptTreeService;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 部门树索引 服务层处理
+ * <p>
+ * 索引按租户惰性构建(一次查询租户下全部部门) 部门变更时整租户失效 下次访问重建
+ * 失效经 {@link CacheInvalidateBus} 广播 加载期间收到失效消息的结果不会写回
+ *
+ * @author Lion Li
+ */
+@RequiredArgsConstructor
+@Service
+public class SysDeptTreeServiceImpl implements SysDeptTreeService {
+
+    /**
+     * 索引缓存组名称
+     */
+    public static final String CACHE_NAME = "sys_dept_tree";
+
+    private final SysDeptMapper sysDeptMapper;
+    private final CacheInvalidateBus cacheInvalidateBus;
+
+    private final Cache<Object, Object> indexes = Caffeine.newBuilder()
+        .expireAfterAccess(1, TimeUnit.HOURS)
+        .maximumSize(1000)
+        .build();
+
+    @PostConstruct
+    public void init() {
+        cacheInvalidateBus.register(CACHE_NAME, indexes);
+    }
+
+    /**
+     * 获取当前租户的部门树索引
+     *
+     * @return 部门树索引
+     */
+    @Override
+    public DeptTreeIndex getIndex() {
+        return (DeptTreeIndex) cacheInvalidateBus.get(indexes, CACHE_NAME, buildKey(TenantHelper.getTenantId()), this::load);
+    }
+
+    /**
+     * 失效当前租户的部门树索引(存在事务时在事务提交后执行)
+     */
+    @Override
+    public void invalidate() {
+        invalidate(TenantHelper.getTenantId());
+    }
+
+    /**
+     * 失效指定租户的部门树索引(存在事务时在事务提交后执行)
+     *
+     * @param tenantId 租户ID
+     */
+    @Override
+    public void invalidate(String tenantId) {
+        String key = buildKey(tenantId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cacheInvalidateBus.invalidate(CACHE_NAME, key);
+                }
+            });
+        } else {
+            cacheInvalidateBus.invalidate(CACHE_NAME, key);
+        }
+    }
+
+    private DeptTreeIndex load() {
+        List<SysDept> depts = sysDeptMapper.selectList(new LambdaQueryWrapper<SysDept>()
+            .select(SysDept::getDeptId, SysDept::getParentId, SysDept::getDeptName,
+                SysDept::getOrderNum, SysDept::getStatus));
+        return DeptTreeIndex.build(depts);
+    }
+
+    /**
+     * 缓存 key 在总线内全局唯一 带上缓存组名称
+     */
+    private static String buildKey(String tenantId) {
+        return CACHE_NAME + ":" + StringUtils.blankToDefault(tenantId, "");
+    }
+
+}
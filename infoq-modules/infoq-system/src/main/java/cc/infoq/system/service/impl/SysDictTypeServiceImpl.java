@@ -101,7 +101,7 @@ public class SysDictTypeServiceImpl implements SysDictTypeService, DictService {
      * @param dictType 字典类型
      * @return 字典数据集合信息
      */
-    @Cacheable(cacheNames = CacheNames.SYS_DICT, key = "#dictType")
+    @Cacheable(cacheNames = CacheNames.SYS_DICT, key = "#dictType", sync = true)
     @Override
     public List<SysDictDataVo> selectDictDataByType(String dictType) {
         List<SysDictDataVo> dictDatas = sysDictDataMapper.selectDictDataByType(dictType);
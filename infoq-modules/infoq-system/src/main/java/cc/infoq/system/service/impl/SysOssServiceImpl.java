@@ -10,6 +10,7 @@ import cc.infoq.common.oss.core.OssClient;
 import cc.infoq.common.oss.entity.UploadResult;
 import cc.infoq.common.oss.enums.AccessPolicyType;
 import cc.infoq.common.oss.factory.OssFactory;
+import cc.infoq.common.redis.utils.CacheUtils;
 import cc.infoq.common.service.OssService;
 import cc.infoq.common.utils.MapstructUtils;
 import cc.infoq.common.utils.SpringUtils;
@@ -79,9 +80,7 @@ public class SysOssServiceImpl implements SysOssService, OssService {
     @Override
     public List<SysOssVo> listByIds(Collection<Long> ossIds) {
         List<SysOssVo> list = new ArrayList<>();
-        SysOssServiceImpl ossService = SpringUtils.getAopProxy(this);
-        for (Long id : ossIds) {
-            SysOssVo vo = ossService.getById(id);
+        for (SysOssVo vo : getByIds(ossIds)) {
             if (ObjectUtil.isNotNull(vo)) {
                 try {
                     list.add(this.matchingUrl(vo));
@@ -103,9 +102,7 @@ public class SysOssServiceImpl implements SysOssService, OssService {
     @Override
     public String selectUrlByIds(String ossIds) {
         List<String> list = new ArrayList<>();
-        SysOssServiceImpl ossService = SpringUtils.getAopProxy(this);
-        for (Long id : StringUtils.splitTo(ossIds, Convert::toLong)) {
-            SysOssVo vo = ossService.getById(id);
+        for (SysOssVo vo : getByIds(StringUtils.splitTo(ossIds, Convert::toLong))) {
             if (ObjectUtil.isNotNull(vo)) {
                 try {
                     list.add(this.matchingUrl(vo).getUrl());
@@ -121,8 +118,7 @@ public class SysOssServiceImpl implements SysOssService, OssService {
     @Override
     public List<OssDTO> selectByIds(String ossIds) {
         List<OssDTO> list = new ArrayList<>();
-        for (Long id : StringUtils.splitTo(ossIds, Convert::toLong)) {
-            SysOssVo vo = SpringUtils.getAopProxy(this).getById(id);
+        for (SysOssVo vo : getByIds(StringUtils.splitTo(ossIds, Convert::toLong))) {
             if (ObjectUtil.isNotNull(vo)) {
                 try {
                     vo.setUrl(this.matchingUrl(vo).getUrl());
@@ -163,6 +159,18 @@ public class SysOssServiceImpl implements SysOssService, OssService {
         return sysOssMapper.selectVoById(ossId);
     }
 
+    /**
+     * 根据一组 ossId 批量从缓存或数据库中获取 SysOssVo 对象(与 {@link #getById} 共用缓存)
+     *
+     * @param ossIds 文件在数据库中的唯一标识集合
+     * @return SysOssVo 对象列表 按入参顺序 不存在的忽略
+     */
+    private Collection<SysOssVo> getByIds(Collection<Long> ossIds) {
+        Map<Long, SysOssVo> map = CacheUtils.getAll(CacheNames.SYS_OSS, ossIds,
+            ids -> StreamUtils.toIdentityMap(sysOssMapper.selectVoByIds(ids), SysOssVo::getOssId));
+        return map.values();
+    }
+
 
     /**
      * 文件下载方法，支持一次性下载完整文件
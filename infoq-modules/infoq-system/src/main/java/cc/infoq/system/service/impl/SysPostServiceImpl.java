@@ -97,10 +97,7 @@ public class SysPostServiceImpl implements SysPostService, PostService {
             wrapper.eq(SysPost::getDeptId, bo.getDeptId());
         } else if (ObjectUtil.isNotNull(bo.getBelongDeptId())) {
             //部门树搜索
-            wrapper.and(x -> {
-                List<Long> deptIds = sysDeptMapper.selectDeptAndChildById(bo.getBelongDeptId());
-                x.in(SysPost::getDeptId, deptIds);
-            });
+            wrapper.inSql(SysPost::getDeptId, sysDeptMapper.buildDeptAndChildSql(bo.getBelongDeptId()));
         }
         return wrapper;
     }
@@ -3,7 +3,6 @@ package cc.infoq.system.service.impl;
 import cc.infoq.common.constant.CacheNames;
 import cc.infoq.common.constant.SystemConstants;
 import cc.infoq.common.constant.TenantConstants;
-import cc.infoq.common.domain.model.LoginUser;
 import cc.infoq.common.exception.ServiceException;
 import cc.infoq.common.mybatis.core.page.PageQuery;
 import cc.infoq.common.mybatis.core.page.TableDataInfo;
@@ -23,8 +22,6 @@ import cc.infoq.system.mapper.SysRoleMapper;
 import cc.infoq.system.mapper.SysRoleMenuMapper;
 import cc.infoq.system.mapper.SysUserRoleMapper;
 import cc.infoq.system.service.SysRoleService;
-import cn.dev33.satoken.exception.NotLoginException;
-import cn.dev33.satoken.stp.StpUtil;
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.ObjectUtil;
@@ -519,8 +516,7 @@ public class SysRoleServiceImpl implements SysRoleService, RoleService {
      *
      * <p>
      * 先判断角色是否绑定用户，若无绑定则直接返回
-     * 然后遍历当前所有在线Token，查找拥有该角色的用户并强制登出
-     * 注意：在线用户量过大时，操作可能导致 Redis 阻塞，需谨慎调用
+     * 然后通过登录时维护的角色索引找到拥有该角色的在线账号并强制登出
      * </p>
      *
      * @param roleId 角色ID
@@ -532,64 +528,21 @@ public class SysRoleServiceImpl implements SysRoleService, RoleService {
         if (num == 0) {
             return;
         }
-        List<String> keys = StpUtil.searchTokenValue("", 0, -1, false);
-        if (CollUtil.isEmpty(keys)) {
-            return;
-        }
-        // 角色关联的在线用户量过大会导致redis阻塞卡顿 谨慎操作
-        keys.parallelStream().forEach(key -> {
-            String token = StringUtils.substringAfterLast(key, ":");
-            // 如果已经过期则跳过
-            if (StpUtil.stpLogic.getTokenActiveTimeoutByToken(token) < -1) {
-                return;
-            }
-            LoginUser loginUser = LoginHelper.getLoginUser(token);
-            if (ObjectUtil.isNull(loginUser) || CollUtil.isEmpty(loginUser.getRoles())) {
-                return;
-            }
-            if (loginUser.getRoles().stream().anyMatch(r -> r.getRoleId().equals(roleId))) {
-                try {
-                    StpUtil.logoutByTokenValue(token);
-                } catch (NotLoginException ignored) {
-                }
-            }
-        });
+        LoginHelper.logoutByRole(roleId);
     }
 
     /**
      * 根据用户ID列表清除对应在线用户的登录状态（踢出指定用户）
      *
      * <p>
-     * 遍历当前所有在线Token，匹配用户ID列表中的用户，强制登出
-     * 注意：在线用户量过大时，操作可能导致 Redis 阻塞，需谨慎调用
+     * 按用户ID直接定位账号会话下的全部 token 强制登出 无需遍历全部在线 token
      * </p>
      *
      * @param userIds 需要清除的用户ID列表
      */
     @Override
     public void cleanOnlineUser(List<Long> userIds) {
-        List<String> keys = StpUtil.searchTokenValue("", 0, -1, false);
-        if (CollUtil.isEmpty(keys)) {
-            return;
-        }
-        // 角色关联的在线用户量过大会导致redis阻塞卡顿 谨慎操作
-        keys.parallelStream().forEach(key -> {
-            String token = StringUtils.substringAfterLast(key, ":");
-            // 如果已经过期则跳过
-            if (StpUtil.stpLogic.getTokenActiveTimeoutByToken(token) < -1) {
-                return;
-            }
-            LoginUser loginUser = LoginHelper.getLoginUser(token);
-            if (ObjectUtil.isNull(loginUser)) {
-                return;
-            }
-            if (userIds.contains(loginUser.getUserId())) {
-                try {
-                    StpUtil.logoutByTokenValue(token);
-                } catch (NotLoginException ignored) {
-                }
-            }
-        });
+        LoginHelper.logoutByUserIds(userIds);
     }
 
     /**
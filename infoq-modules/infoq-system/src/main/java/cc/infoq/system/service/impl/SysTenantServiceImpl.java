@@ -7,19 +7,19 @@ import cc.infoq.common.constant.TenantConstants;
 import cc.infoq.common.exception.ServiceException;
 import cc.infoq.common.mybatis.core.page.PageQuery;
 import cc.infoq.common.mybatis.core.page.TableDataInfo;
-import cc.infoq.common.redis.utils.CacheUtils;
-import cc.infoq.common.tenant.core.TenantEntity;
-import cc.infoq.common.tenant.helper.TenantHelper;
+import cc.infoq.common.tenant.manager.TenantSpringCacheManager;
 import cc.infoq.common.utils.MapstructUtils;
 import cc.infoq.common.utils.SpringUtils;
-import cc.infoq.common.utils.StreamUtils;
 import cc.infoq.common.utils.StringUtils;
 import cc.infoq.system.domain.bo.SysTenantBo;
 import cc.infoq.system.domain.entity.*;
 import cc.infoq.system.domain.vo.SysTenantVo;
+import cc.infoq.system.domain.vo.TenantSyncProgressVo;
 import cc.infoq.system.mapper.*;
+import cc.infoq.system.service.SysDeptClosureService;
+import cc.infoq.system.service.SysDeptTreeService;
 import cc.infoq.system.service.SysTenantService;
-import cn.hutool.core.bean.BeanUtil;
+import cc.infoq.system.service.SysTenantSyncService;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.convert.Convert;
 import cn.hutool.core.util.ObjectUtil;
@@ -29,6 +29,7 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import lombok.AllArgsConstructor;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
@@ -56,6 +57,10 @@ public class SysTenantServiceImpl implements SysTenantService {
     private final SysDictTypeMapper sysDictTypeMapper;
     private final SysDictDataMapper sysDictDataMapper;
     private final SysConfigMapper sysConfigMapper;
+    private final SysTenantSyncService sysTenantSyncService;
+    private final SysDeptClosureService sysDeptClosureService;
+    private final SysDeptTreeService sysDeptTreeService;
+    private final CacheManager cacheManager;
 
     /**
      * 查询租户
@@ -68,7 +73,7 @@ public class SysTenantServiceImpl implements SysTenantService {
     /**
      * 基于租户ID查询租户
      */
-    @Cacheable(cacheNames = CacheNames.SYS_TENANT, key = "#tenantId")
+    @Cacheable(cacheNames = CacheNames.SYS_TENANT, key = "#tenantId", sync = true)
     @Override
     public SysTenantVo queryByTenantId(String tenantId) {
         return sysTenantMapper.selectVoOne(new LambdaQueryWrapper<SysTenant>().eq(SysTenant::getTenantId, tenantId));
@@ -143,6 +148,8 @@ public class SysTenantServiceImpl implements SysTenantService {
         dept.setAncestors(Constants.TOP_PARENT_ID.toString());
         sysDeptMapper.insert(dept);
         Long deptId = dept.getDeptId();
+        sysDeptClosureService.insertDept(deptId, dept.getParentId());
+        sysDeptTreeService.invalidate(tenantId);
 
         // 角色和部门关联表
         SysRoleDept roleDept = new SysRoleDept();
@@ -318,7 +325,13 @@ public class SysTenantServiceImpl implements SysTenantService {
                 throw new ServiceException("超管租户不能删除");
             }
         }
-        return sysTenantMapper.deleteByIds(ids) > 0;
+        List<SysTenant> tenants = sysTenantMapper.selectByIds(ids);
+        boolean result = sysTenantMapper.deleteByIds(ids) > 0;
+        if (cacheManager instanceof TenantSpringCacheManager tenantCacheManager) {
+            // 租户已删除 其缓存不再使用 按索引整体清理
+            tenants.forEach(tenant -> tenantCacheManager.dropTenantCache(tenant.getTenantId()));
+        }
+        return result;
     }
 
     /**
@@ -397,163 +410,22 @@ public class SysTenantServiceImpl implements SysTenantService {
     /**
      * 同步租户字典
      */
-    @Transactional(rollbackFor = Exception.class)
     @Override
     public void syncTenantDict() {
-        // 查询超管 所有字典数据
-        List<SysDictType> dictTypeList = new ArrayList<>();
-        List<SysDictData> dictDataList = new ArrayList<>();
-        TenantHelper.ignore(() -> {
-            dictTypeList.addAll(sysDictTypeMapper.selectList());
-            dictDataList.addAll(sysDictDataMapper.selectList());
-        });
-        // 所有租户字典类型
-        Map<String, List<SysDictType>> dictTypeMap = StreamUtils.groupByKey(dictTypeList, TenantEntity::getTenantId);
-        // 所有租户字典数据
-        Map<String, Map<String, List<SysDictData>>> dictDataMap = StreamUtils.groupBy2Key(dictDataList, TenantEntity::getTenantId, SysDictData::getDictType);
-
-        // 默认租户字典类型列表
-        List<SysDictType> defaultDictTypeList = dictTypeMap.get(TenantConstants.DEFAULT_TENANT_ID);
-        // 默认租户字典数据
-        Map<String, List<SysDictData>> defaultDictDataMap = dictDataMap.get(TenantConstants.DEFAULT_TENANT_ID);
-
-        // 获取所有租户编号
-        List<String> tenantIds = sysTenantMapper.selectObjs(
-            new LambdaQueryWrapper<SysTenant>().select(SysTenant::getTenantId)
-                .eq(SysTenant::getStatus, SystemConstants.NORMAL), x -> {
-                return Convert.toStr(x);
-            });
-        // 待入库的字典类型和字典数据
-        List<SysDictType> saveTypeList = new ArrayList<>();
-        List<SysDictData> saveDataList = new ArrayList<>();
-        // 待同步的租户编号（用于清除对于租户的字典缓存）
-        Set<String> syncTenantIds = new HashSet<>();
-        // 循环所有租户，处理需要同步的数据
-        for (String tenantId : tenantIds) {
-            // 排除默认租户
-            if (TenantConstants.DEFAULT_TENANT_ID.equals(tenantId)) {
-                continue;
-            }
-            // 根据默认租户的字典类型进行数据同步
-            for (SysDictType dictType : defaultDictTypeList) {
-                // 获取当前租户的字典类型列表
-                List<String> typeList = StreamUtils.toList(dictTypeMap.get(tenantId), SysDictType::getDictType);
-                // 根据字典类型获取默认租户的字典数据
-                List<SysDictData> defaultDictDataList = defaultDictDataMap.get(dictType.getDictType());
-                // 排除不需要同步的字典数据
-                Set<String> excludeDictDataSet = CollUtil.newHashSet();
-                // 处理 存在type不存在data 的情况
-                if (typeList.contains(dictType.getDictType())) {
-                    // 获取租户字典数据
-                    Optional.ofNullable(dictDataMap.get(tenantId))
-                        // 获取租户当前字典类型的字典数据
-                        .map(tenantDictDataMap -> tenantDictDataMap.get(dictType.getDictType()))
-                        // 保存字典数据项的字典键值，用于判断数据是否需要同步
-                        .map(data -> StreamUtils.toSet(data, SysDictData::getDictValue))
-                        // 添加到排除集合中
-                        .ifPresent(excludeDictDataSet::addAll);
-                } else {
-                    // 同步字典类型
-                    SysDictType type = BeanUtil.toBean(dictType, SysDictType.class);
-                    type.setDictId(null);
-                    type.setTenantId(tenantId);
-                    type.setCreateTime(null);
-                    type.setUpdateTime(null);
-                    syncTenantIds.add(tenantId);
-                    saveTypeList.add(type);
-                }
-
-                // 默认租户字典数据不为空再去处理
-                if (CollUtil.isNotEmpty(defaultDictDataList)) {
-                    // 提前优化排除判断if条件语句，对于 && 并联条件，该优化可以避免不必要的 excludeDictDataSet.contains() 函数调用
-                    boolean isExclude = CollUtil.isNotEmpty(excludeDictDataSet);
-                    // 筛选出 dictType 对应的 data
-                    for (SysDictData dictData : defaultDictDataList) {
-                        // 排除不需要同步的字典数据
-                        if (isExclude && excludeDictDataSet.contains(dictData.getDictValue())) {
-                            continue;
-                        }
-                        SysDictData data = BeanUtil.toBean(dictData, SysDictData.class);
-                        // 设置字典编码为 null
-                        data.setDictCode(null);
-                        data.setTenantId(tenantId);
-                        data.setCreateTime(null);
-                        data.setUpdateTime(null);
-                        data.setCreateDept(null);
-                        data.setCreateBy(null);
-                        data.setUpdateBy(null);
-                        syncTenantIds.add(tenantId);
-                        saveDataList.add(data);
-                    }
-                }
-            }
-        }
-        TenantHelper.ignore(() -> {
-            if (CollUtil.isNotEmpty(saveTypeList)) {
-                sysDictTypeMapper.insertBatch(saveTypeList);
-            }
-            if (CollUtil.isNotEmpty(saveDataList)) {
-                sysDictDataMapper.insertBatch(saveDataList);
-            }
-        });
-        for (String tenantId : syncTenantIds) {
-            TenantHelper.dynamic(tenantId, () -> CacheUtils.clear(CacheNames.SYS_DICT));
-        }
+        checkSyncResult(sysTenantSyncService.syncDict());
     }
 
     /**
      * 同步租户参数配置
      */
-    @Transactional(rollbackFor = Exception.class)
     @Override
     public void syncTenantConfig() {
-        // 查询超管 所有参数配置
-        List<SysConfig> configList = TenantHelper.ignore(() -> sysConfigMapper.selectList());
-
-        // 所有租户参数配置
-        Map<String, List<SysConfig>> configMap = StreamUtils.groupByKey(configList, TenantEntity::getTenantId);
-
-        // 默认租户字典类型列表
-        List<SysConfig> defaultConfigList = configMap.get(TenantConstants.DEFAULT_TENANT_ID);
+        checkSyncResult(sysTenantSyncService.syncConfig());
+    }
 
-        // 获取所有租户编号
-        List<String> tenantIds = sysTenantMapper.selectObjs(
-            new LambdaQueryWrapper<SysTenant>().select(SysTenant::getTenantId)
-                .eq(SysTenant::getStatus, SystemConstants.NORMAL), x -> {
-                return Convert.toStr(x);
-            });
-        // 待入库的字典类型和字典数据
-        List<SysConfig> saveConfigList = new ArrayList<>();
-        // 待同步的租户编号（用于清除对于租户的字典缓存）
-        Set<String> syncTenantIds = new HashSet<>();
-        // 循环所有租户，处理需要同步的数据
-        for (String tenantId : tenantIds) {
-            // 排除默认租户
-            if (TenantConstants.DEFAULT_TENANT_ID.equals(tenantId)) {
-                continue;
-            }
-            // 根据默认租户的字典类型进行数据同步
-            for (SysConfig config : defaultConfigList) {
-                // 获取当前租户的字典类型列表
-                List<String> typeList = StreamUtils.toList(configMap.get(tenantId), SysConfig::getConfigKey);
-                if (!typeList.contains(config.getConfigKey())) {
-                    SysConfig type = BeanUtil.toBean(config, SysConfig.class);
-                    type.setConfigId(null);
-                    type.setTenantId(tenantId);
-                    type.setCreateTime(null);
-                    type.setUpdateTime(null);
-                    syncTenantIds.add(tenantId);
-                    saveConfigList.add(type);
-                }
-            }
-        }
-        TenantHelper.ignore(() -> {
-            if (CollUtil.isNotEmpty(saveConfigList)) {
-                sysConfigMapper.insertBatch(saveConfigList);
-            }
-        });
-        for (String tenantId : syncTenantIds) {
-            TenantHelper.dynamic(tenantId, () -> CacheUtils.clear(CacheNames.SYS_CONFIG));
+    private void checkSyncResult(TenantSyncProgressVo progress) {
+        if (CollUtil.isNotEmpty(progress.getFailedTenantIds())) {
+            throw new ServiceException("同步完成 其中 " + progress.getFailedTenantIds().size() + " 个租户同步失败 请重新执行同步");
         }
     }
 
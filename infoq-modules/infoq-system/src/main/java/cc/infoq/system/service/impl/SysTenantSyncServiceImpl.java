@@ -0,0 +1,266 @@
+package cc.infoq.system.service.impl;
+
+import cc.infoq.common.constant.CacheNames;
+import cc.infoq.common.constant.GlobalConstants;
+import cc.infoq.common.constant.SystemConstants;
+import cc.infoq.common.constant.TenantConstants;
+import cc.infoq.common.exception.ServiceException;
+import cc.infoq.common.redis.utils.CacheUtils;
+import cc.infoq.common.redis.utils.RedisUtils;
+import cc.infoq.common.tenant.helper.TenantHelper;
+import cc.infoq.common.tenant.manager.TenantSpringCacheManager;
+import cc.infoq.common.utils.SpringUtils;
+import cc.infoq.system.config.TenantSyncConfig;
+import cc.infoq.system.domain.entity.SysConfig;
+import cc.infoq.system.domain.entity.SysDictData;
+import cc.infoq.system.domain.entity.SysDictType;
+import cc.infoq.system.domain.entity.SysTenant;
+import cc.infoq.system.domain.vo.TenantSyncProgressVo;
+import cc.infoq.system.mapper.SysConfigMapper;
+import cc.infoq.system.mapper.SysDictDataMapper;
+import cc.infoq.system.mapper.SysDictTypeMapper;
+import cc.infoq.system.mapper.SysTenantMapper;
+import cc.infoq.system.service.SysTenantSyncService;
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.collection.ListUtil;
+import cn.hutool.core.convert.Convert;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.support.CompositeTaskDecorator;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * 租户数据同步 服务层处理
+ * <p>
+ * 流程: 查询待同步租户 -> 按 {@link #CHUNK_SIZE} 分批 在共用的租户同步线程池中并行(最多 {@link TenantSyncConfig#PARALLELISM} 批)
+ * -> 每批以反连接查询缺失数据并批量写入(独立事务) -> 全部完成后一次性清空有变化租户的缓存
+ * <p>
+ * 主键为雪花id 由写入时生成 因此缺失数据以 select 反连接得出后批量 insert 而非 insert ... select
+ *
+ * @author Lion Li
+ */
+@Slf4j
+@AllArgsConstructor
+@Service
+public class SysTenantSyncServiceImpl implements SysTenantSyncService {
+
+    /**
+     * 每批租户数
+     */
+    private static final int CHUNK_SIZE = 200;
+
+    private static final String PROGRESS_KEY = GlobalConstants.GLOBAL_REDIS_KEY + "tenant_sync:";
+
+    private static final Duration PROGRESS_TTL = Duration.ofDays(1);
+
+    private final SysTenantMapper sysTenantMapper;
+    private final SysDictTypeMapper sysDictTypeMapper;
+    private final SysDictDataMapper sysDictDataMapper;
+    private final SysConfigMapper sysConfigMapper;
+    private final CacheManager cacheManager;
+    private final ExecutorService tenantSyncExecutor;
+    private final ObjectProvider<TaskDecorator> taskDecorators;
+
+    /**
+     * 同步租户字典
+     *
+     * @return 同步进度
+     */
+    @Override
+    public TenantSyncProgressVo syncDict() {
+        SysTenantSyncService proxy = SpringUtils.getAopProxy(this);
+        return sync(TASK_DICT, proxy::syncDictChunk, CacheNames.SYS_DICT);
+    }
+
+    /**
+     * 同步租户参数配置
+     *
+     * @return 同步进度
+     */
+    @Override
+    public TenantSyncProgressVo syncConfig() {
+        SysTenantSyncService proxy = SpringUtils.getAopProxy(this);
+        return sync(TASK_CONFIG, proxy::syncConfigChunk, CacheNames.SYS_CONFIG);
+    }
+
+    /**
+     * 查询最近一次同步的进度
+     *
+     * @param task 同步任务
+     * @return 同步进度 未执行过返回 null
+     */
+    @Override
+    public TenantSyncProgressVo getProgress(String task) {
+        return RedisUtils.getCacheObject(PROGRESS_KEY + task);
+    }
+
+    /**
+     * 补齐一批租户的字典(独立事务)
+     *
+     * @param tenantIds 租户id集合
+     * @return 补齐的数据行数 按租户id分组
+     */
+    @Transactional(rollbackFor = Exception.class)
+    @Override
+    public Map<String, Integer> syncDictChunk(List<String> tenantIds) {
+        return TenantHelper.ignore(() -> {
+            // 字典类型与字典数据的缺失互不依赖 均以写入前的状态计算
+            List<SysDictType> types = sysDictTypeMapper.selectMissingDictTypes(TenantConstants.DEFAULT_TENANT_ID, tenantIds);
+            List<SysDictData> data = sysDictDataMapper.selectMissingDictData(TenantConstants.DEFAULT_TENANT_ID, tenantIds);
+            if (CollUtil.isNotEmpty(types)) {
+                sysDictTypeMapper.insertBatch(types);
+            }
+            if (CollUtil.isNotEmpty(data)) {
+                sysDictDataMapper.insertBatch(data);
+            }
+            Map<String, Integer> rows = new HashMap<>();
+            types.forEach(type -> rows.merge(type.getTenantId(), 1, Integer::sum));
+            data.forEach(item -> rows.merge(item.getTenantId(), 1, Integer::sum));
+            return rows;
+        });
+    }
+
+    /**
+     * 补齐一批租户的参数配置(独立事务)
+     *
+     * @param tenantIds 租户id集合
+     * @return 补齐的数据行数 按租户id分组
+     */
+    @Transactional(rollbackFor = Exception.class)
+    @Override
+    public Map<String, Integer> syncConfigChunk(List<String> tenantIds) {
+        return TenantHelper.ignore(() -> {
+            List<SysConfig> configs = sysConfigMapper.selectMissingConfigs(TenantConstants.DEFAULT_TENANT_ID, tenantIds);
+            if (CollUtil.isNotEmpty(configs)) {
+                sysConfigMapper.insertBatch(configs);
+            }
+            Map<String, Integer> rows = new HashMap<>();
+            configs.forEach(config -> rows.merge(config.getTenantId(), 1, Integer::sum));
+            return rows;
+        });
+    }
+
+    private TenantSyncProgressVo sync(String task, Function<List<String>, Map<String, Integer>> handler, String cacheName) {
+        // 获取除默认租户外的正常租户 按租户编号排序保证每次分批一致
+        List<String> tenantIds = sysTenantMapper.selectObjs(
+            new LambdaQueryWrapper<SysTenant>().select(SysTenant::getTenantId)
+                .eq(SysTenant::getStatus, SystemConstants.NORMAL)
+                .ne(SysTenant::getTenantId, TenantConstants.DEFAULT_TENANT_ID)
+                .orderByAsc(SysTenant::getTenantId), Convert::toStr);
+        TenantSyncProgressVo progress = new TenantSyncProgressVo();
+        progress.setTask(task);
+        progress.setStatus("running");
+        progress.setTotal(tenantIds.size());
+        progress.setStartTime(new Date());
+        saveProgress(progress);
+        // 经全部任务装饰器(登录上下文 租户等)包装后提交
+        TaskDecorator decorator = new CompositeTaskDecorator(taskDecorators.orderedStream().toList());
+        Set<String> changed = executeChunks(tenantIds, CHUNK_SIZE, tenantSyncExecutor, handler, decorator::decorate,
+            progress, this::saveProgress);
+        clearTenantCache(cacheName, changed);
+        progress.setStatus(progress.getFailedTenantIds().isEmpty() ? "success" : "failed");
+        progress.setEndTime(new Date());
+        saveProgress(progress);
+        return progress;
+    }
+
+    /**
+     * 分批并行执行 单批失败只记录失败的租户 不影响其他批次
+     *
+     * @param tenantIds   租户id集合
+     * @param chunkSize   每批租户数
+     * @param executor    执行线程池(由调用方管理 队列满或已关闭时该批在提交线程执行)
+     * @param handler     单批处理 返回补齐的数据行数(按租户id分组)
+     * @param decorator   任务装饰器(在提交线程调用 用于传递登录与租户上下文)
+     * @param progress    同步进度 每批完成后更新
+     * @param listener    进度更新回调
+     * @return 补齐了数据的租户id
+     */
+    public static Set<String> executeChunks(List<String> tenantIds, int chunkSize, ExecutorService executor,
+                                            Function<List<String>, Map<String, Integer>> handler,
+                                            UnaryOperator<Runnable> decorator, TenantSyncProgressVo progress,
+                                            Consumer<TenantSyncProgressVo> listener) {
+        Set<String> changed = new HashSet<>();
+        if (tenantIds.isEmpty()) {
+            return changed;
+        }
+        List<List<String>> chunks = ListUtil.partition(tenantIds, chunkSize);
+        try {
+            List<Future<?>> futures = new ArrayList<>(chunks.size());
+            for (List<String> chunk : chunks) {
+                Runnable task = () -> {
+                    Map<String, Integer> rows = null;
+                    try {
+                        rows = handler.apply(chunk);
+                    } catch (Exception e) {
+                        log.error("租户同步失败 租户 => {} ~ {}", chunk.get(0), chunk.get(chunk.size() - 1), e);
+                    }
+                    synchronized (progress) {
+                        progress.setFinished(progress.getFinished() + chunk.size());
+                        if (rows == null) {
+                            progress.getFailedTenantIds().addAll(chunk);
+                        } else {
+                            changed.addAll(rows.keySet());
+                            progress.setChanged(changed.size());
+                            progress.setRows(progress.getRows() + rows.values().stream().mapToLong(Integer::longValue).sum());
+                        }
+                        listener.accept(progress);
+                    }
+                };
+                try {
+                    futures.add(executor.submit(decorator.apply(task)));
+                } catch (RejectedExecutionException e) {
+                    // 线程池队列已满或已关闭 在提交线程执行 提交线程自身即带有上下文
+                    task.run();
+                }
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException("租户同步被中断");
+        } catch (ExecutionException e) {
+            throw new ServiceException("租户同步异常 => " + e.getCause().getMessage());
+        }
+        synchronized (progress) {
+            return new HashSet<>(changed);
+        }
+    }
+
+    private void saveProgress(TenantSyncProgressVo progress) {
+        RedisUtils.setCacheObject(PROGRESS_KEY + progress.getTask(), progress, PROGRESS_TTL);
+    }
+
+    /**
+     * 清空有变化租户的缓存 多租户缓存管理器下合并为一次批量删除
+     */
+    private void clearTenantCache(String cacheName, Set<String> tenantIds) {
+        if (tenantIds.isEmpty()) {
+            return;
+        }
+        if (cacheManager instanceof TenantSpringCacheManager tenantCacheManager) {
+            tenantCacheManager.clearTenantCache(cacheName, tenantIds);
+            return;
+        }
+        for (String tenantId : tenantIds) {
+            TenantHelper.dynamic(tenantId, () -> CacheUtils.clear(cacheName));
+        }
+    }
+
+}
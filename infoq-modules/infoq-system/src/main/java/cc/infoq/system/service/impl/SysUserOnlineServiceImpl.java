@@ -0,0 +1,285 @@
+package cc.infoq.system.service.impl;
+
+import cc.infoq.common.constant.CacheConstants;
+import cc.infoq.common.constant.GlobalConstants;
+import cc.infoq.common.domain.dto.UserOnlineDTO;
+import cc.infoq.common.mybatis.core.page.PageQuery;
+import cc.infoq.common.mybatis.core.page.TableDataInfo;
+import cc.infoq.common.redis.utils.RedisUtils;
+import cc.infoq.common.satoken.utils.LoginHelper;
+import cc.infoq.common.tenant.helper.TenantHelper;
+import cc.infoq.common.utils.StringUtils;
+import cc.infoq.system.domain.entity.SysUserOnline;
+import cc.infoq.system.service.SysUserOnlineService;
+import cn.dev33.satoken.stp.StpUtil;
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.convert.Convert;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import org.redisson.api.RBatch;
+import org.redisson.api.RBucketAsync;
+import org.redisson.api.RLock;
+import org.redisson.api.RScoredSortedSet;
+import org.redisson.api.RScoredSortedSetAsync;
+import org.redisson.api.RSet;
+import org.redisson.api.RSetAsync;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 在线用户 服务层处理
+ * <p>
+ * 索引结构(均跟随租户前缀):
+ * <ul>
+ *     <li>online_token_index: 有序集合 成员为 token 分值为过期时间戳</li>
+ *     <li>online_token_index:user:{userName} / online_token_index:ip:{ip}: 对应条件下的 token 集合</li>
+ * </ul>
+ * 已过期的 token 在写入时按分值惰性清理 查询只读取未过期的分值区间
+ *
+ * @author Lion Li
+ */
+@Service
+public class SysUserOnlineServiceImpl implements SysUserOnlineService {
+
+    private static final String USER_INDEX_KEY = CacheConstants.ONLINE_TOKEN_INDEX_KEY + ":user:";
+
+    private static final String IP_INDEX_KEY = CacheConstants.ONLINE_TOKEN_INDEX_KEY + ":ip:";
+
+    /**
+     * 索引补齐完成标记(全局 不区分租户)
+     */
+    private static final String INDEX_READY_KEY = GlobalConstants.GLOBAL_REDIS_KEY + CacheConstants.ONLINE_TOKEN_INDEX_KEY + ":ready";
+
+    /**
+     * 索引补齐锁
+     */
+    private static final String INDEX_LOCK_KEY = GlobalConstants.GLOBAL_REDIS_KEY + CacheConstants.ONLINE_TOKEN_INDEX_KEY + ":rebuild_lock";
+
+    /**
+     * 永不过期会话的分值
+     */
+    private static final double NEVER_EXPIRE_SCORE = Double.MAX_VALUE;
+
+    /**
+     * 分页查询在线用户列表
+     *
+     * @param ipaddr    IP地址
+     * @param userName  用户名
+     * @param pageQuery 分页参数
+     * @return 在线用户分页列表
+     */
+    @Override
+    public TableDataInfo<SysUserOnline> selectPageUserOnlineList(String ipaddr, String userName, PageQuery pageQuery) {
+        long now = System.currentTimeMillis();
+        RScoredSortedSet<String> index = getIndex();
+        Page<SysUserOnline> page = pageQuery.build();
+        long offset = (page.getCurrent() - 1) * page.getSize();
+        long total;
+        List<String> tokens;
+        if (StringUtils.isEmpty(ipaddr) && StringUtils.isEmpty(userName)) {
+            // 只读取未过期的分值区间 过期成员由写入时清理
+            total = index.count(now, false, NEVER_EXPIRE_SCORE, true);
+            if (offset >= total) {
+                return new TableDataInfo<>(new ArrayList<>(), total);
+            }
+            // 按过期时间倒序 即最近登录的排在前面
+            tokens = new ArrayList<>(index.valueRangeReversed(now, false, NEVER_EXPIRE_SCORE, true, (int) offset, (int) page.getSize()));
+        } else {
+            List<String> alive = selectAliveTokens(index, ipaddr, userName, now);
+            total = alive.size();
+            if (offset >= total) {
+                return new TableDataInfo<>(new ArrayList<>(), total);
+            }
+            tokens = alive.subList((int) offset, (int) Math.min(offset + page.getSize(), total));
+        }
+        List<String> keys = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            // 如果已经过期则跳过
+            if (StpUtil.stpLogic.getTokenActiveTimeoutByToken(token) < -1) {
+                continue;
+            }
+            keys.add(CacheConstants.ONLINE_TOKEN_KEY + token);
+        }
+        Map<String, UserOnlineDTO> onlineMap = RedisUtils.getMultiCacheObject(keys);
+        List<SysUserOnline> list = BeanUtil.copyToList(onlineMap.values(), SysUserOnline.class);
+        return new TableDataInfo<>(list, total);
+    }
+
+    /**
+     * 登记在线会话
+     *
+     * @param dto     在线用户信息
+     * @param timeout 会话存活时间 (单位: 秒) -1 永不过期
+     */
+    @Override
+    public void insertUserOnline(UserOnlineDTO dto, long timeout) {
+        RBatch batch = RedisUtils.getClient().createBatch();
+        RBucketAsync<UserOnlineDTO> bucket = batch.getBucket(CacheConstants.ONLINE_TOKEN_KEY + dto.getTokenId());
+        if (timeout == -1) {
+            bucket.setAsync(dto);
+        } else {
+            bucket.setAsync(dto, Duration.ofSeconds(timeout));
+        }
+        indexAsync(batch, dto, timeout);
+        batch.execute();
+    }
+
+    /**
+     * 补齐在线会话索引
+     * <p>
+     * 索引只在登录时写入 索引上线前已登录的会话不在索引中 需遍历一次在线 token 按各自所属租户补齐
+     * 全部节点只需执行一次 由分布式锁保证同一时刻只有一个节点执行 完成后写入标记 之后的启动直接跳过
+     *
+     * @return 补齐的会话数
+     */
+    @Override
+    public int rebuildOnlineIndex() {
+        if (RedisUtils.isExistsObject(INDEX_READY_KEY)) {
+            return 0;
+        }
+        RLock lock = RedisUtils.getClient().getLock(INDEX_LOCK_KEY);
+        // 其他节点正在补齐
+        if (!lock.tryLock()) {
+            return 0;
+        }
+        try {
+            if (RedisUtils.isExistsObject(INDEX_READY_KEY)) {
+                return 0;
+            }
+            int count = 0;
+            for (String key : StpUtil.searchTokenValue("", 0, -1, false)) {
+                String token = StringUtils.substringAfterLast(key, ":");
+                long timeout = StpUtil.getTokenTimeout(token);
+                // 已过期则跳过
+                if (timeout < -1 || StpUtil.stpLogic.getTokenActiveTimeoutByToken(token) < -1) {
+                    continue;
+                }
+                String tenantId = Convert.toStr(StpUtil.getExtra(token, LoginHelper.TENANT_KEY));
+                boolean indexed = TenantHelper.dynamic(tenantId, () -> {
+                    UserOnlineDTO dto = RedisUtils.getCacheObject(CacheConstants.ONLINE_TOKEN_KEY + token);
+                    if (dto == null) {
+                        return false;
+                    }
+                    RBatch batch = RedisUtils.getClient().createBatch();
+                    indexAsync(batch, dto, timeout);
+                    batch.execute();
+                    return true;
+                });
+                if (indexed) {
+                    count++;
+                }
+            }
+            RedisUtils.setCacheObject(INDEX_READY_KEY, System.currentTimeMillis());
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 续期在线会话
+     *
+     * @param tokenValue token值
+     * @param timeout    会话存活时间 (单位: 秒) -1 永不过期
+     */
+    @Override
+    public void renewUserOnline(String tokenValue, long timeout) {
+        UserOnlineDTO dto = RedisUtils.getCacheObject(CacheConstants.ONLINE_TOKEN_KEY + tokenValue);
+        if (dto == null) {
+            return;
+        }
+        insertUserOnline(dto, timeout);
+    }
+
+    /**
+     * 移除在线会话
+     *
+     * @param tokenValue token值
+     */
+    @Override
+    public void deleteUserOnline(String tokenValue) {
+        String onlineKey = CacheConstants.ONLINE_TOKEN_KEY + tokenValue;
+        UserOnlineDTO dto = RedisUtils.getCacheObject(onlineKey);
+        RBatch batch = RedisUtils.getClient().createBatch();
+        batch.getBucket(onlineKey).deleteAsync();
+        batch.getScoredSortedSet(CacheConstants.ONLINE_TOKEN_INDEX_KEY, StringCodec.INSTANCE).removeAsync(tokenValue);
+        if (dto != null) {
+            for (String key : attributeKeys(dto.getIpaddr(), dto.getUserName())) {
+                batch.getSet(key, StringCodec.INSTANCE).removeAsync(tokenValue);
+            }
+        }
+        batch.execute();
+    }
+
+    /**
+     * 按条件集合求交 再以有序集合的分值校验存活 并按过期时间倒序返回
+     */
+    private List<String> selectAliveTokens(RScoredSortedSet<String> index, String ipaddr, String userName, long now) {
+        List<String> keys = attributeKeys(ipaddr, userName);
+        RSet<String> set = RedisUtils.getClient().getSet(keys.get(0), StringCodec.INSTANCE);
+        Set<String> candidates = keys.size() == 1 ? set.readAll() : set.readIntersection(keys.get(1));
+        if (candidates.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<String> members = new ArrayList<>(candidates);
+        List<Double> scores = index.getScore(members);
+        List<Map.Entry<String, Double>> alive = new ArrayList<>(members.size());
+        for (int i = 0; i < members.size(); i++) {
+            Double score = scores.get(i);
+            // 条件集合中残留的过期 token 直接跳过 随集合过期或会话移除时清理
+            if (score != null && score > now) {
+                alive.add(Map.entry(members.get(i), score));
+            }
+        }
+        alive.sort(Map.Entry.<String, Double>comparingByValue(Comparator.reverseOrder()));
+        List<String> tokens = new ArrayList<>(alive.size());
+        for (Map.Entry<String, Double> entry : alive) {
+            tokens.add(entry.getKey());
+        }
+        return tokens;
+    }
+
+    /**
+     * 在批处理中写入会话索引 并顺带清理有序集合中已过期的成员
+     */
+    private static void indexAsync(RBatch batch, UserOnlineDTO dto, long timeout) {
+        long now = System.currentTimeMillis();
+        String token = dto.getTokenId();
+        RScoredSortedSetAsync<String> index = batch.getScoredSortedSet(CacheConstants.ONLINE_TOKEN_INDEX_KEY, StringCodec.INSTANCE);
+        index.addAsync(timeout == -1 ? NEVER_EXPIRE_SCORE : now + timeout * 1000, token);
+        // 保证索引不会无限增长
+        index.removeRangeByScoreAsync(0, true, now, true);
+        for (String key : attributeKeys(dto.getIpaddr(), dto.getUserName())) {
+            RSetAsync<String> set = batch.getSet(key, StringCodec.INSTANCE);
+            set.addAsync(token);
+            if (timeout == -1) {
+                set.clearExpireAsync();
+            } else {
+                // 新建的集合设置过期时间 已存在的集合只延长不缩短
+                RedisUtils.expireIfGreaterAsync(batch, key, Duration.ofSeconds(timeout), true);
+            }
+        }
+    }
+
+    private static List<String> attributeKeys(String ipaddr, String userName) {
+        List<String> keys = new ArrayList<>(2);
+        if (StringUtils.isNotEmpty(userName)) {
+            keys.add(USER_INDEX_KEY + userName);
+        }
+        if (StringUtils.isNotEmpty(ipaddr)) {
+            keys.add(IP_INDEX_KEY + ipaddr);
+        }
+        return keys;
+    }
+
+    private static RScoredSortedSet<String> getIndex() {
+        return RedisUtils.getClient().getScoredSortedSet(CacheConstants.ONLINE_TOKEN_INDEX_KEY, StringCodec.INSTANCE);
+    }
+
+}
@@ -6,6 +6,7 @@ import cc.infoq.common.domain.dto.UserDTO;
 import cc.infoq.common.exception.ServiceException;
 import cc.infoq.common.mybatis.core.page.PageQuery;
 import cc.infoq.common.mybatis.core.page.TableDataInfo;
+import cc.infoq.common.redis.utils.CacheUtils;
 import cc.infoq.common.satoken.utils.LoginHelper;
 import cc.infoq.common.service.UserService;
 import cc.infoq.common.utils.*;
@@ -79,10 +80,8 @@ public class SysUserServiceImpl implements SysUserService, UserService {
             .like(StringUtils.isNotBlank(user.getPhonenumber()), "u.phonenumber", user.getPhonenumber())
             .between(params.get("beginTime") != null && params.get("endTime") != null,
                 "u.create_time", params.get("beginTime"), params.get("endTime"))
-            .and(ObjectUtil.isNotNull(user.getDeptId()), w -> {
-                List<Long> deptIds = sysDeptMapper.selectDeptAndChildById(user.getDeptId());
-                w.in("u.dept_id", deptIds);
-            }).orderByAsc("u.user_id");
+            .inSql(ObjectUtil.isNotNull(user.getDeptId()), "u.dept_id", sysDeptMapper.buildDeptAndChildSql(user.getDeptId()))
+            .orderByAsc("u.user_id");
         return sysUserMapper.selectUserExportList(wrapper);
     }
 
@@ -98,10 +97,8 @@ public class SysUserServiceImpl implements SysUserService, UserService {
             .like(StringUtils.isNotBlank(user.getPhonenumber()), SysUser::getPhonenumber, user.getPhonenumber())
             .between(params.get("beginTime") != null && params.get("endTime") != null,
                 SysUser::getCreateTime, params.get("beginTime"), params.get("endTime"))
-            .and(ObjectUtil.isNotNull(user.getDeptId()), w -> {
-                List<Long> ids = sysDeptMapper.selectDeptAndChildById(user.getDeptId());
-                w.in(SysUser::getDeptId, ids);
-            }).orderByAsc(SysUser::getUserId);
+            .inSql(ObjectUtil.isNotNull(user.getDeptId()), SysUser::getDeptId, sysDeptMapper.buildDeptAndChildSql(user.getDeptId()))
+            .orderByAsc(SysUser::getUserId);
         if (StringUtils.isNotBlank(user.getExcludeUserIds())) {
             wrapper.notIn(SysUser::getUserId, StringUtils.splitTo(user.getExcludeUserIds(), Convert::toLong));
         }
@@ -615,9 +612,11 @@ public class SysUserServiceImpl implements SysUserService, UserService {
      */
     @Override
     public String selectNicknameByIds(String userIds) {
+        // 与 selectNicknameById 共用缓存 未命中部分一次查询
+        Map<Long, String> map = CacheUtils.getAll(CacheNames.SYS_NICKNAME,
+            StringUtils.splitTo(userIds, Convert::toLong), this::selectNicknameMapByIds);
         List<String> list = new ArrayList<>();
-        for (Long id : StringUtils.splitTo(userIds, Convert::toLong)) {
-            String nickname = SpringUtils.getAopProxy(this).selectNicknameById(id);
+        for (String nickname : map.values()) {
             if (StringUtils.isNotBlank(nickname)) {
                 list.add(nickname);
             }
@@ -625,6 +624,22 @@ public class SysUserServiceImpl implements SysUserService, UserService {
         return StringUtils.joinComma(list);
     }
 
+    /**
+     * 批量查询用户昵称
+     *
+     * @param userIds 用户ID集合
+     * @return 用户ID与昵称
+     */
+    private Map<Long, String> selectNicknameMapByIds(Collection<Long> userIds) {
+        List<SysUser> users = sysUserMapper.selectList(new LambdaQueryWrapper<SysUser>()
+            .select(SysUser::getUserId, SysUser::getNickName).in(SysUser::getUserId, userIds));
+        Map<Long, String> map = new HashMap<>(users.size());
+        for (SysUser user : users) {
+            map.put(user.getUserId(), user.getNickName());
+        }
+        return map;
+    }
+
     /**
      * 通过用户ID查询用户手机号
      *
@@ -0,0 +1,259 @@
+package test;
+
+import cc.infoq.common.exception.ServiceException;
+import cc.infoq.system.domain.entity.SysDept;
+import cc.infoq.system.domain.entity.SysDeptClosure;
+import cc.infoq.system.mapper.SysDeptClosureMapper;
+import cc.infoq.system.service.impl.SysDeptClosureServiceImpl;
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.conditions.AbstractWrapper;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 部门层级闭包单元测试
+ * <p>
+ * 闭包表以内存行集合模拟 插入语句与 mapper xml 一致 查询与删除按条件构造器生成的 sql 片段求值
+ * 每次 新增/移动/删除 后与按 parent_id 全量计算的结果比较
+ *
+ * @author Lion Li
+ */
+@DisplayName("部门层级闭包单元测试")
+public class DeptClosureUnitTest {
+
+    private static final Pattern TERM = Pattern.compile("(\\w+)\\s*(=|>|IN)\\s*(.+)", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern PARAM = Pattern.compile("#\\{ew\\.paramNameValuePairs\\.(\\w+)}");
+
+    @BeforeAll
+    public static void initTableInfo() {
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), SysDeptClosure.class);
+    }
+
+    @DisplayName("测试新增 移动 删除部门后闭包关系与全量计算一致")
+    @Test
+    public void testInsertMoveDelete() {
+        ClosureTable table = new ClosureTable();
+        SysDeptClosureServiceImpl service = new SysDeptClosureServiceImpl(table.mapper(), null);
+        Map<Long, Long> depts = new LinkedHashMap<>();
+
+        // 100
+        // ├── 101 ── 103 ── 105
+        // └── 102 ── 104
+        insert(service, depts, 100L, 0L);
+        insert(service, depts, 101L, 100L);
+        insert(service, depts, 102L, 100L);
+        insert(service, depts, 103L, 101L);
+        insert(service, depts, 104L, 102L);
+        insert(service, depts, 105L, 103L);
+        assertClosure(table, depts);
+
+        // 子树 103(含 105) 移到 102 下
+        move(service, depts, 103L, 102L);
+        assertClosure(table, depts);
+
+        // 子树 102 移到 101 下 层级加深
+        move(service, depts, 102L, 101L);
+        assertClosure(table, depts);
+
+        // 子树 103 提升为顶级部门
+        move(service, depts, 103L, 0L);
+        assertClosure(table, depts);
+
+        // 再挂回 100 下
+        move(service, depts, 103L, 100L);
+        assertClosure(table, depts);
+
+        service.deleteDept(105L);
+        depts.remove(105L);
+        assertClosure(table, depts);
+
+        service.deleteDept(104L);
+        depts.remove(104L);
+        assertClosure(table, depts);
+    }
+
+    @DisplayName("测试不能移动到自身或其子部门下")
+    @Test
+    public void testMoveIntoOwnSubtree() {
+        ClosureTable table = new ClosureTable();
+        SysDeptClosureServiceImpl service = new SysDeptClosureServiceImpl(table.mapper(), null);
+        Map<Long, Long> depts = new LinkedHashMap<>();
+        insert(service, depts, 100L, 0L);
+        insert(service, depts, 101L, 100L);
+        insert(service, depts, 102L, 101L);
+
+        Assertions.assertThrows(ServiceException.class, () -> service.moveDept(100L, 102L));
+        Assertions.assertThrows(ServiceException.class, () -> service.moveDept(101L, 101L));
+        // 拒绝后闭包表保持不变
+        assertClosure(table, depts);
+    }
+
+    private static void insert(SysDeptClosureServiceImpl service, Map<Long, Long> depts, Long deptId, Long parentId) {
+        service.insertDept(deptId, parentId);
+        depts.put(deptId, parentId);
+    }
+
+    private static void move(SysDeptClosureServiceImpl service, Map<Long, Long> depts, Long deptId, Long parentId) {
+        service.moveDept(deptId, parentId);
+        depts.put(deptId, parentId);
+    }
+
+    private static void assertClosure(ClosureTable table, Map<Long, Long> depts) {
+        List<SysDept> list = new ArrayList<>();
+        depts.forEach((deptId, parentId) -> {
+            SysDept dept = new SysDept();
+            dept.setDeptId(deptId);
+            dept.setParentId(parentId);
+            list.add(dept);
+        });
+        Assertions.assertEquals(keys(SysDeptClosureServiceImpl.buildClosure(list)), keys(table.rows));
+    }
+
+    private static Set<String> keys(List<SysDeptClosure> rows) {
+        Set<String> keys = new TreeSet<>();
+        for (SysDeptClosure row : rows) {
+            Assertions.assertTrue(keys.add(row.getAncestorId() + "->" + row.getDescendantId() + ":" + row.getDepth()), "重复的关系 => " + row);
+        }
+        return keys;
+    }
+
+    /**
+     * 内存闭包表 实现服务层用到的 mapper 方法
+     */
+    private static final class ClosureTable {
+
+        private final List<SysDeptClosure> rows = new ArrayList<>();
+
+        SysDeptClosureMapper mapper() {
+            return (SysDeptClosureMapper) Proxy.newProxyInstance(SysDeptClosureMapper.class.getClassLoader(),
+                new Class<?>[]{SysDeptClosureMapper.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "insert" -> {
+                        rows.add((SysDeptClosure) args[0]);
+                        yield 1;
+                    }
+                    case "insertAncestors" -> insertAncestors((Long) args[0], (Long) args[1]);
+                    case "insertSubtreeLinks" -> insertSubtreeLinks((Long) args[0], (Long) args[1]);
+                    case "selectObjs" -> selectObjs((AbstractWrapper<?, ?, ?>) args[0]);
+                    case "delete" -> delete((AbstractWrapper<?, ?, ?>) args[0]);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        }
+
+        /**
+         * select ancestor_id, #{deptId}, depth + 1 from sys_dept_closure where descendant_id = #{parentId}
+         */
+        int insertAncestors(Long deptId, Long parentId) {
+            List<SysDeptClosure> insert = new ArrayList<>();
+            for (SysDeptClosure row : rows) {
+                if (row.getDescendantId().equals(parentId)) {
+                    insert.add(new SysDeptClosure(row.getAncestorId(), deptId, row.getDepth() + 1));
+                }
+            }
+            rows.addAll(insert);
+            return insert.size();
+        }
+
+        /**
+         * select a.ancestor_id, d.descendant_id, a.depth + d.depth + 1 from sys_dept_closure a, sys_dept_closure d
+         * where a.descendant_id = #{parentId} and d.ancestor_id = #{deptId}
+         */
+        int insertSubtreeLinks(Long deptId, Long parentId) {
+            List<SysDeptClosure> insert = new ArrayList<>();
+            for (SysDeptClosure a : rows) {
+                if (!a.getDescendantId().equals(parentId)) {
+                    continue;
+                }
+                for (SysDeptClosure d : rows) {
+                    if (d.getAncestorId().equals(deptId)) {
+                        insert.add(new SysDeptClosure(a.getAncestorId(), d.getDescendantId(), a.getDepth() + d.getDepth() + 1));
+                    }
+                }
+            }
+            rows.addAll(insert);
+            return insert.size();
+        }
+
+        List<Long> selectObjs(AbstractWrapper<?, ?, ?> wrapper) {
+            String column = wrapper.getSqlSelect();
+            List<Long> result = new ArrayList<>();
+            for (SysDeptClosure row : rows) {
+                if (matches(wrapper, row)) {
+                    result.add(value(row, column));
+                }
+            }
+            return result;
+        }
+
+        int delete(AbstractWrapper<?, ?, ?> wrapper) {
+            int size = rows.size();
+            rows.removeIf(row -> matches(wrapper, row));
+            return size - rows.size();
+        }
+
+    }
+
+    /**
+     * 按条件构造器生成的 where 片段求值 支持 = > IN 与 AND/OR 组合(AND 优先)
+     */
+    private static boolean matches(AbstractWrapper<?, ?, ?> wrapper, SysDeptClosure row) {
+        String sql = wrapper.getSqlSegment().trim();
+        if (sql.isEmpty()) {
+            return true;
+        }
+        if (sql.startsWith("(") && sql.endsWith(")")) {
+            sql = sql.substring(1, sql.length() - 1);
+        }
+        Map<String, Object> params = wrapper.getParamNameValuePairs();
+        for (String or : sql.split(" OR ")) {
+            boolean all = true;
+            for (String and : or.split(" AND ")) {
+                all &= test(and.trim(), params, row);
+            }
+            if (all) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean test(String term, Map<String, Object> params, SysDeptClosure row) {
+        Matcher matcher = TERM.matcher(term);
+        Assertions.assertTrue(matcher.matches(), "不支持的条件 => " + term);
+        long value = value(row, matcher.group(1));
+        List<Long> args = new ArrayList<>();
+        Matcher param = PARAM.matcher(matcher.group(3));
+        while (param.find()) {
+            args.add(((Number) params.get(param.group(1))).longValue());
+        }
+        return switch (matcher.group(2).toUpperCase()) {
+            case "=" -> value == args.get(0);
+            case ">" -> value > args.get(0);
+            default -> args.contains(value);
+        };
+    }
+
+    private static long value(SysDeptClosure row, String column) {
+        return switch (column.replace("_", "").toLowerCase()) {
+            case "ancestorid" -> row.getAncestorId();
+            case "descendantid" -> row.getDescendantId();
+            case "depth" -> row.getDepth();
+            default -> throw new IllegalArgumentException(column);
+        };
+    }
+
+}
@@ -0,0 +1,167 @@
+package test;
+
+import cc.infoq.common.redis.limiter.LeaseRateLimiter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 混合限流单元测试(两个节点共享同一个限流key)
+ *
+ * @author Lion Li
+ */
+@DisplayName("混合限流单元测试")
+public class LeaseRateLimiterUnitTest {
+
+    private static final int COUNT = 100;
+
+    private static final int TIME = 10;
+
+    /**
+     * 注解配置的预取数等于速率 原实现下单个节点一次即可取走整个周期的令牌
+     */
+    private static final int LEASE = 100;
+
+    @DisplayName("测试单节点预取不会饿死其他节点")
+    @Test
+    public void testNoStarvation() {
+        SharedBucket bucket = new SharedBucket();
+        LeaseRateLimiter nodeA = new LeaseRateLimiter(COUNT, TIME, LEASE, bucket::now);
+        LeaseRateLimiter nodeB = new LeaseRateLimiter(COUNT, TIME, LEASE, bucket::now);
+        Assertions.assertEquals(COUNT * LeaseRateLimiter.MAX_LEASE_PERCENT / 100, nodeA.getMaxPermits());
+
+        int servedA = serve(nodeA, bucket, 30);
+        Assertions.assertEquals(30, servedA);
+        // 节点 A 停止请求 其本地剩余的令牌最多为单次预取上限
+        int servedB = serve(nodeB, bucket, COUNT);
+        Assertions.assertTrue(servedB >= COUNT - servedA - nodeA.getMaxPermits(), "节点 B 被饿死 => " + servedB);
+        Assertions.assertTrue(servedA + servedB <= COUNT);
+        Assertions.assertEquals(COUNT, bucket.granted);
+
+        // 新周期两个节点均可继续获取
+        bucket.advance(TimeUnit.SECONDS.toMillis(TIME));
+        Assertions.assertTrue(nodeA.tryAcquire(bucket::acquire) >= 0);
+        Assertions.assertTrue(nodeB.tryAcquire(bucket::acquire) >= 0);
+    }
+
+    @DisplayName("测试低流量节点不会空耗令牌")
+    @Test
+    public void testLowTrafficNoWaste() {
+        SharedBucket bucket = new SharedBucket();
+        LeaseRateLimiter nodeA = new LeaseRateLimiter(COUNT, TIME, LEASE, bucket::now);
+        LeaseRateLimiter nodeB = new LeaseRateLimiter(COUNT, TIME, LEASE, bucket::now);
+
+        // 节点 A 先有一波突发流量 使预取数增长到上限
+        serve(nodeA, bucket, 30);
+        // 之后两个节点都只有零星请求 间隔大于本地令牌保留时长
+        int served = 0;
+        for (int i = 0; i < 20; i++) {
+            bucket.advance(TimeUnit.SECONDS.toMillis(TIME) / 40);
+            served += serve(nodeA, bucket, 1);
+            served += serve(nodeB, bucket, 1);
+        }
+        Assertions.assertEquals(40, served);
+        // 每次过期作废的令牌不超过单次预取上限 且预取数随之减半 总浪费有限
+        long wasted = bucket.granted - 30 - served;
+        Assertions.assertTrue(wasted <= nodeA.getMaxPermits() * 2L, "浪费令牌过多 => " + wasted);
+    }
+
+    @DisplayName("测试远端预取期间不持有锁")
+    @Test
+    public void testLeaseOutsideMonitor() throws Exception {
+        SharedBucket bucket = new SharedBucket();
+        LeaseRateLimiter limiter = new LeaseRateLimiter(COUNT, TIME, LEASE, bucket::now);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        LeaseRateLimiter.Acquirer slow = permits -> {
+            calls.incrementAndGet();
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (bucket) {
+                return bucket.acquire(permits);
+            }
+        };
+        AtomicLong resultA = new AtomicLong();
+        AtomicLong resultB = new AtomicLong();
+        Thread a = new Thread(() -> resultA.set(limiter.tryAcquire(slow)));
+        a.start();
+        Assertions.assertTrue(entered.await(5, TimeUnit.SECONDS));
+        Thread b = new Thread(() -> resultB.set(limiter.tryAcquire(slow)));
+        b.start();
+        // 预取进行中 其他线程等待预取结果(WAITING) 而不是阻塞在锁上(BLOCKED) 也不会重复预取
+        long deadline = System.currentTimeMillis() + 5000;
+        while (b.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+            Assertions.assertNotEquals(Thread.State.BLOCKED, b.getState());
+            Thread.onSpinWait();
+        }
+        Assertions.assertEquals(Thread.State.WAITING, b.getState());
+        Assertions.assertEquals(1, calls.get());
+        release.countDown();
+        a.join();
+        b.join();
+        Assertions.assertTrue(resultA.get() >= 0);
+        Assertions.assertTrue(resultB.get() >= 0);
+    }
+
+    private static int serve(LeaseRateLimiter limiter, SharedBucket bucket, int requests) {
+        int served = 0;
+        for (int i = 0; i < requests; i++) {
+            if (limiter.tryAcquire(bucket::acquire) >= 0) {
+                served++;
+            }
+        }
+        return served;
+    }
+
+    /**
+     * 模拟 redis 令牌桶(固定窗口) 批量获取语义与 RedisUtils.rateLimiterLease 一致
+     */
+    private static final class SharedBucket {
+
+        private long now = 1_000_000L;
+
+        private long windowStart = now;
+
+        private long available = COUNT;
+
+        private long granted;
+
+        long acquire(int permits) {
+            if (now - windowStart >= TimeUnit.SECONDS.toMillis(TIME)) {
+                windowStart = now;
+                available = COUNT;
+            }
+            if (permits > 1 && available >= permits) {
+                available -= permits;
+                granted += permits;
+                return permits;
+            }
+            if (available >= 1) {
+                available--;
+                granted++;
+                return 1;
+            }
+            return 0;
+        }
+
+        long now() {
+            return now;
+        }
+
+        void advance(long millis) {
+            now += millis;
+        }
+
+    }
+
+}
@@ -0,0 +1,74 @@
+package test;
+
+import cc.infoq.common.constant.GlobalConstants;
+import cc.infoq.common.satoken.utils.LoginHelper;
+import cn.dev33.satoken.SaManager;
+import cn.dev33.satoken.dao.SaTokenDao;
+import cn.dev33.satoken.dao.SaTokenDaoDefaultImpl;
+import cn.dev33.satoken.session.SaSession;
+import cn.dev33.satoken.stp.StpUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+/**
+ * 登录鉴权助手单元测试(租户模式 会话 key 带全局前缀)
+ *
+ * @author Lion Li
+ */
+@DisplayName("登录鉴权助手单元测试")
+public class LoginHelperUnitTest {
+
+    @DisplayName("测试租户模式下按账号会话筛选在线账号")
+    @Test
+    public void testFilterOnlineInTenantMode() {
+        SaTokenDao original = SaManager.getSaTokenDao();
+        TenantMemoryDao dao = new TenantMemoryDao();
+        SaManager.setSaTokenDao(dao);
+        try {
+            String online = "sys_user:1";
+            String sessionKey = StpUtil.stpLogic.splicingKeySession(online);
+            dao.setObject(sessionKey, new SaSession(sessionKey), 3600);
+            // 会话实际存放在带全局前缀的 key 下 直接按原始 key 判断永远不存在
+            Assertions.assertNull(dao.raw(sessionKey));
+            Assertions.assertNotNull(dao.raw(GlobalConstants.GLOBAL_REDIS_KEY + sessionKey));
+
+            List<String> result = LoginHelper.filterOnline(List.of("app_user:1", online, "sys_user:2"));
+            Assertions.assertEquals(List.of(online), result);
+
+            dao.deleteObject(sessionKey);
+            Assertions.assertTrue(LoginHelper.filterOnline(List.of(online)).isEmpty());
+        } finally {
+            SaManager.setSaTokenDao(original);
+        }
+    }
+
+    /**
+     * 内存持久层 与 TenantSaTokenDao 一致为全部 key 加全局前缀
+     */
+    private static final class TenantMemoryDao extends SaTokenDaoDefaultImpl {
+
+        Object raw(String key) {
+            return super.getObject(key);
+        }
+
+        @Override
+        public Object getObject(String key) {
+            return super.getObject(GlobalConstants.GLOBAL_REDIS_KEY + key);
+        }
+
+        @Override
+        public void setObject(String key, Object object, long timeout) {
+            super.setObject(GlobalConstants.GLOBAL_REDIS_KEY + key, object, timeout);
+        }
+
+        @Override
+        public void deleteObject(String key) {
+            super.deleteObject(GlobalConstants.GLOBAL_REDIS_KEY + key);
+        }
+
+    }
+
+}
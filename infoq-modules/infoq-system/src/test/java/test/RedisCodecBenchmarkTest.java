@@ -0,0 +1,146 @@
+package test;
+
+import cc.infoq.common.domain.dto.RoleDTO;
+import cc.infoq.common.domain.model.LoginUser;
+import cc.infoq.common.log.event.OperLogEvent;
+import cc.infoq.common.redis.codec.CodecFactory;
+import cc.infoq.system.domain.vo.SysDictDataVo;
+import io.netty.buffer.ByteBuf;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.redisson.client.codec.Codec;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * redis 序列化对比测试(json 与 fory 二进制 体积与编解码耗时)
+ *
+ * @author Lion Li
+ */
+@DisplayName("redis 序列化对比测试")
+public class RedisCodecBenchmarkTest {
+
+    private static final int WARMUP = 2000;
+
+    private static final int ROUNDS = 20000;
+
+    @DisplayName("测试 json 与 binary 序列化体积与耗时")
+    @Test
+    public void testCodecBenchmark() throws Exception {
+        Map<String, Codec> codecs = new LinkedHashMap<>();
+        codecs.put("json", CodecFactory.json());
+        codecs.put("binary", CodecFactory.binary(null));
+        Map<String, Object> samples = new LinkedHashMap<>();
+        samples.put("LoginUser", buildLoginUser());
+        samples.put("SysDictDataVo", buildDictData());
+        samples.put("OperLogEvent", buildOperLog());
+        for (Map.Entry<String, Object> sample : samples.entrySet()) {
+            for (Map.Entry<String, Codec> codec : codecs.entrySet()) {
+                run(sample.getKey(), codec.getKey(), codec.getValue(), sample.getValue());
+            }
+        }
+    }
+
+    private void run(String sampleName, String codecName, Codec codec, Object value) throws Exception {
+        // 校验往返结果一致
+        ByteBuf buf = codec.getValueEncoder().encode(value);
+        int size = buf.readableBytes();
+        Object decoded = codec.getValueDecoder().decode(buf, null);
+        buf.release();
+        Assertions.assertEquals(value, decoded);
+        for (int i = 0; i < WARMUP; i++) {
+            roundTrip(codec, value);
+        }
+        long encodeNanos = 0;
+        long decodeNanos = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            ByteBuf out = codec.getValueEncoder().encode(value);
+            long mid = System.nanoTime();
+            codec.getValueDecoder().decode(out, null);
+            long end = System.nanoTime();
+            out.release();
+            encodeNanos += mid - start;
+            decodeNanos += end - mid;
+        }
+        System.out.printf("%-14s %-7s size=%5d B  encode=%6d ns/op  decode=%6d ns/op%n",
+            sampleName, codecName, size, encodeNanos / ROUNDS, decodeNanos / ROUNDS);
+    }
+
+    private void roundTrip(Codec codec, Object value) throws Exception {
+        ByteBuf out = codec.getValueEncoder().encode(value);
+        codec.getValueDecoder().decode(out, null);
+        out.release();
+    }
+
+    private LoginUser buildLoginUser() {
+        LoginUser loginUser = new LoginUser();
+        loginUser.setTenantId("000000");
+        loginUser.setUserId(1L);
+        loginUser.setDeptId(103L);
+        loginUser.setDeptName("研发部门");
+        loginUser.setUserType("sys_user");
+        loginUser.setLoginTime(System.currentTimeMillis());
+        loginUser.setExpireTime(System.currentTimeMillis() + 86400000L);
+        loginUser.setIpaddr("127.0.0.1");
+        loginUser.setLoginLocation("内网IP");
+        loginUser.setBrowser("Chrome");
+        loginUser.setOs("Windows 10 or Windows Server 2016");
+        loginUser.setMenuPermission(new HashSet<>(List.of("system:user:list", "system:user:add", "system:user:edit", "system:role:list")));
+        loginUser.setRolePermission(new HashSet<>(List.of("superadmin")));
+        loginUser.setUsername("admin");
+        loginUser.setNickname("疯狂的狮子Li");
+        RoleDTO role = new RoleDTO();
+        role.setRoleId(1L);
+        role.setRoleName("超级管理员");
+        role.setRoleKey("superadmin");
+        role.setDataScope("1");
+        loginUser.setRoles(new ArrayList<>(List.of(role)));
+        loginUser.setClientKey("e5cd7e4891bf95d1d19206ce24a7b32e");
+        loginUser.setDeviceType("pc");
+        return loginUser;
+    }
+
+    private SysDictDataVo buildDictData() {
+        SysDictDataVo data = new SysDictDataVo();
+        data.setDictCode(1L);
+        data.setDictSort(1);
+        data.setDictLabel("男");
+        data.setDictValue("0");
+        data.setDictType("sys_user_sex");
+        data.setListClass("primary");
+        data.setIsDefault("Y");
+        data.setRemark("性别男");
+        data.setCreateTime(new Date());
+        return data;
+    }
+
+    private OperLogEvent buildOperLog() {
+        OperLogEvent event = new OperLogEvent();
+        event.setOperId(1L);
+        event.setTenantId("000000");
+        event.setTitle("用户管理");
+        event.setBusinessType(2);
+        event.setMethod("cc.infoq.system.controller.system.SysUserController.edit()");
+        event.setRequestMethod("PUT");
+        event.setOperatorType(1);
+        event.setOperName("admin");
+        event.setDeptName("研发部门");
+        event.setOperUrl("/system/user");
+        event.setOperIp("127.0.0.1");
+        event.setOperLocation("内网IP");
+        event.setOperParam("{\"userId\":2,\"deptId\":105,\"userName\":\"test\",\"nickName\":\"本部门及以下 密码666666\"}");
+        event.setJsonResult("{\"code\":200,\"msg\":\"操作成功\"}");
+        event.setStatus(0);
+        event.setOperTime(new Date());
+        event.setCostTime(12L);
+        return event;
+    }
+
+}
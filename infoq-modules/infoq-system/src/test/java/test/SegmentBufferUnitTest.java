@@ -0,0 +1,103 @@
+package test;
+
+import cc.infoq.common.redis.sequence.SegmentBuffer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 号段发号器单元测试(模拟 redis 计数器按有效期过期)
+ *
+ * @author Lion Li
+ */
+@DisplayName("号段发号器单元测试")
+public class SegmentBufferUnitTest {
+
+    private static final String KEY = "sequence_segment:test";
+
+    @DisplayName("测试号段使用期间计数器过期")
+    @Test
+    public void testCounterExpireMidSegment() {
+        FakeCounter counter = new FakeCounter();
+        // 业务过期时间仅 1 分钟 且发号间隔远大于该时间
+        SegmentBuffer buffer = new SegmentBuffer(KEY, Duration.ofMinutes(1), counter, Runnable::run, counter::now);
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 500; i++) {
+            long id = buffer.next();
+            Assertions.assertTrue(ids.add(id), "重复序号 => " + id);
+            counter.advance(TimeUnit.SECONDS.toMillis(40));
+        }
+        // 每次分配都续期且有效期不小于下限
+        Assertions.assertTrue(counter.lastTtl.compareTo(SegmentBuffer.MIN_COUNTER_TTL) >= 0);
+        Assertions.assertEquals(0, counter.expired);
+    }
+
+    @DisplayName("测试号段闲置超过最长使用时长后重新获取")
+    @Test
+    public void testIdleSegmentReallocated() {
+        FakeCounter counter = new FakeCounter();
+        SegmentBuffer buffer = new SegmentBuffer(KEY, Duration.ofMinutes(1), counter, Runnable::run, counter::now);
+        long first = buffer.next();
+        int allocations = counter.allocations;
+        // 号段未用完 但闲置超过最长使用时长 计数器在此期间不应过期 下次发号应重新获取号段
+        counter.advance(SegmentBuffer.MAX_SEGMENT_AGE + 1);
+        long second = buffer.next();
+        Assertions.assertTrue(counter.allocations > allocations);
+        Assertions.assertTrue(second > first);
+        Assertions.assertEquals(0, counter.expired);
+
+        // 闲置超过计数器有效期后才会过期重新计数 与 RIdGenerator 按过期时间重新计数的语义一致
+        counter.advance(SegmentBuffer.MIN_COUNTER_TTL.toMillis() + 1);
+        buffer.next();
+        Assertions.assertEquals(1, counter.expired);
+    }
+
+    /**
+     * 模拟 redis 计数器 INCRBY + EXPIRE
+     */
+    private static final class FakeCounter implements SegmentBuffer.Allocator {
+
+        private final Map<String, Long> values = new HashMap<>();
+
+        private final Map<String, Long> expireAt = new HashMap<>();
+
+        private long now = 1_000_000L;
+
+        private int allocations;
+
+        private int expired;
+
+        private Duration lastTtl;
+
+        @Override
+        public long allocate(String key, int size, Duration ttl) {
+            Long deadline = expireAt.get(key);
+            if (deadline != null && now >= deadline) {
+                values.remove(key);
+                expired++;
+            }
+            long end = values.merge(key, (long) size, Long::sum);
+            expireAt.put(key, now + ttl.toMillis());
+            lastTtl = ttl;
+            allocations++;
+            return end;
+        }
+
+        private long now() {
+            return now;
+        }
+
+        private void advance(long millis) {
+            now += millis;
+        }
+
+    }
+
+}
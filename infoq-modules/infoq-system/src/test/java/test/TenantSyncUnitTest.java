@@ -0,0 +1,167 @@
+package test;
+
+import cc.infoq.system.domain.vo.TenantSyncProgressVo;
+import cc.infoq.system.service.impl.SysTenantSyncServiceImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * 租户字典同步单元测试(分批执行 失败后重跑续传 线程池拒绝时由提交线程执行)
+ *
+ * @author Lion Li
+ */
+@DisplayName("租户字典同步单元测试")
+public class TenantSyncUnitTest {
+
+    private static final int TENANT_COUNT = 1000;
+
+    private static final int TYPE_COUNT = 30;
+
+    /**
+     * 每个字典类型的字典数据数
+     */
+    private static final int DATA_COUNT = 6;
+
+    private static final int CHUNK_SIZE = 200;
+
+    private static final int PARALLELISM = 4;
+
+    @DisplayName("测试失败批次重跑续传")
+    @Test
+    public void testResume() {
+        List<String> tenantIds = tenantIds();
+        DictStore store = new DictStore(tenantIds);
+        String broken = tenantIds.get(CHUNK_SIZE * 3 + 7);
+        Function<List<String>, Map<String, Integer>> failing = chunk -> {
+            if (chunk.contains(broken)) {
+                throw new IllegalStateException("模拟数据库异常");
+            }
+            return store.syncChunk(chunk);
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(PARALLELISM);
+        TenantSyncProgressVo first = new TenantSyncProgressVo();
+        TenantSyncProgressVo second = new TenantSyncProgressVo();
+        Set<String> changed;
+        try {
+            SysTenantSyncServiceImpl.executeChunks(tenantIds, CHUNK_SIZE, executor, failing,
+                UnaryOperator.identity(), first, p -> {
+                });
+            // 重跑只会补齐失败批次的数据 线程池由调用方持有 多次同步共用
+            changed = SysTenantSyncServiceImpl.executeChunks(tenantIds, CHUNK_SIZE, executor,
+                store::syncChunk, UnaryOperator.identity(), second, p -> {
+                });
+        } finally {
+            executor.shutdown();
+        }
+        Assertions.assertEquals(tenantIds.size(), first.getFinished());
+        Assertions.assertEquals(CHUNK_SIZE, first.getFailedTenantIds().size());
+        Assertions.assertTrue(first.getFailedTenantIds().contains(broken));
+        Assertions.assertTrue(second.getFailedTenantIds().isEmpty());
+        Assertions.assertTrue(second.getRows() > 0);
+        Assertions.assertTrue(first.getFailedTenantIds().containsAll(changed));
+        Assertions.assertTrue(store.syncChunk(tenantIds).isEmpty());
+    }
+
+    @DisplayName("测试线程池拒绝时在提交线程执行")
+    @Test
+    public void testRejectedRunsOnCaller() {
+        List<String> tenantIds = tenantIds().subList(0, CHUNK_SIZE * 3);
+        DictStore store = new DictStore(tenantIds);
+        ExecutorService executor = Executors.newFixedThreadPool(PARALLELISM);
+        executor.shutdown();
+        TenantSyncProgressVo progress = new TenantSyncProgressVo();
+        SysTenantSyncServiceImpl.executeChunks(tenantIds, CHUNK_SIZE, executor, store::syncChunk,
+            UnaryOperator.identity(), progress, p -> {
+            });
+        Assertions.assertEquals(tenantIds.size(), progress.getFinished());
+        Assertions.assertTrue(progress.getFailedTenantIds().isEmpty());
+        Assertions.assertTrue(store.syncChunk(tenantIds).isEmpty());
+    }
+
+    private List<String> tenantIds() {
+        List<String> tenantIds = new ArrayList<>(TENANT_COUNT);
+        for (int i = 1; i <= TENANT_COUNT; i++) {
+            tenantIds.add(String.format("%06d", i));
+        }
+        return tenantIds;
+    }
+
+    /**
+     * 模拟字典表 以哈希集合代替 (tenant_id, dict_type[, dict_value]) 索引
+     */
+    private static final class DictStore {
+
+        private final List<String> defaultTypes = new ArrayList<>();
+
+        private final Map<String, List<String>> defaultData = new HashMap<>();
+
+        private final Set<String> types = ConcurrentHashMap.newKeySet();
+
+        private final Set<String> data = ConcurrentHashMap.newKeySet();
+
+        private DictStore(List<String> tenantIds) {
+            for (int t = 0; t < TYPE_COUNT; t++) {
+                String type = "dict_type_" + t;
+                defaultTypes.add(type);
+                List<String> values = new ArrayList<>();
+                for (int d = 0; d < DATA_COUNT; d++) {
+                    values.add(String.valueOf(d));
+                }
+                defaultData.put(type, values);
+            }
+            // 固定种子 每个租户已有部分字典类型 已有类型下已有部分字典数据
+            Random random = new Random(42);
+            for (String tenantId : tenantIds) {
+                for (String type : defaultTypes) {
+                    if (random.nextInt(10) < 7) {
+                        types.add(tenantId + ":" + type);
+                        for (String value : defaultData.get(type)) {
+                            if (random.nextInt(10) < 8) {
+                                data.add(tenantId + ":" + type + ":" + value);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * 单批: 反连接得出缺失数据后写入
+         */
+        private Map<String, Integer> syncChunk(List<String> tenantIds) {
+            Map<String, Integer> rows = new HashMap<>();
+            List<String> missingTypes = new ArrayList<>();
+            List<String> missingData = new ArrayList<>();
+            for (String tenantId : tenantIds) {
+                for (String type : defaultTypes) {
+                    String typeKey = tenantId + ":" + type;
+                    if (!types.contains(typeKey)) {
+                        missingTypes.add(typeKey);
+                        rows.merge(tenantId, 1, Integer::sum);
+                    }
+                    for (String value : defaultData.get(type)) {
+                        String dataKey = typeKey + ":" + value;
+                        if (!data.contains(dataKey)) {
+                            missingData.add(dataKey);
+                            rows.merge(tenantId, 1, Integer::sum);
+                        }
+                    }
+                }
+            }
+            types.addAll(missingTypes);
+            data.addAll(missingData);
+            return rows;
+        }
+
+    }
+
+}
@@ -5,7 +5,10 @@ import cc.infoq.common.mybatis.aspect.DataPermissionPointcutAdvisor;
 import cc.infoq.common.mybatis.handler.InjectionMetaObjectHandler;
 import cc.infoq.common.mybatis.handler.MybatisExceptionHandler;
 import cc.infoq.common.mybatis.handler.PlusPostInitTableInfoHandler;
+import cc.infoq.common.mybatis.interceptor.CacheableInnerInterceptor;
 import cc.infoq.common.mybatis.interceptor.PlusDataPermissionInterceptor;
+import cc.infoq.common.mybatis.interceptor.PlusPaginationInnerInterceptor;
+import cc.infoq.common.mybatis.interceptor.PlusSqlRewriteInterceptor;
 import cc.infoq.common.utils.SpringUtils;
 import cn.hutool.core.net.NetUtil;
 import com.baomidou.mybatisplus.core.handlers.MetaObjectHandler;
@@ -24,6 +27,9 @@ import org.springframework.context.annotation.PropertySource;
 import org.springframework.context.annotation.Role;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * mybatis-plus配置类(下方注释有插件介绍)
  *
@@ -38,14 +44,21 @@ public class MybatisPlusConfig {
     @Bean
     public MybatisPlusInterceptor mybatisPlusInterceptor() {
         MybatisPlusInterceptor interceptor = new MybatisPlusInterceptor();
+        List<CacheableInnerInterceptor> rewriters = new ArrayList<>();
         // 多租户插件 必须放到第一位
         try {
             TenantLineInnerInterceptor tenant = SpringUtils.getBean(TenantLineInnerInterceptor.class);
-            interceptor.addInnerInterceptor(tenant);
+            if (tenant instanceof CacheableInnerInterceptor cacheable) {
+                rewriters.add(cacheable);
+            } else {
+                interceptor.addInnerInterceptor(tenant);
+            }
         } catch (BeansException ignore) {
         }
         // 数据权限处理
-        interceptor.addInnerInterceptor(dataPermissionInterceptor());
+        rewriters.add(dataPermissionInterceptor());
+        // 多租户与数据权限的改写结果统一缓存
+        interceptor.addInnerInterceptor(new PlusSqlRewriteInterceptor(rewriters));
         // 分页插件
         interceptor.addInnerInterceptor(paginationInnerInterceptor());
         // 乐观锁插件
@@ -73,7 +86,7 @@ public class MybatisPlusConfig {
      * 分页插件，自动识别数据库类型
      */
     public PaginationInnerInterceptor paginationInnerInterceptor() {
-        PaginationInnerInterceptor paginationInnerInterceptor = new PaginationInnerInterceptor();
+        PaginationInnerInterceptor paginationInnerInterceptor = new PlusPaginationInnerInterceptor();
         // 分页合理化
         paginationInnerInterceptor.setOverflow(true);
         return paginationInnerInterceptor;
@@ -41,9 +41,9 @@ public enum DataScopeType {
     DEPT("3", " #{#deptName} = #{#user.deptId} ", " 1 = 0 "),
 
     /**
-     * 部门及以下数据权限
+     * 部门及以下数据权限(子查询走部门层级闭包表索引)
      */
-    DEPT_AND_CHILD("4", " #{#deptName} IN ( #{@sdss.getDeptAndChild( #user.deptId )} )", " 1 = 0 "),
+    DEPT_AND_CHILD("4", " #{#deptName} IN ( select descendant_id from sys_dept_closure where ancestor_id = #{#user.deptId} )", " 1 = 0 "),
 
     /**
      * 仅本人数据权限
@@ -53,7 +53,7 @@ public enum DataScopeType {
     /**
      * 部门及以下或本人数据权限
      */
-    DEPT_AND_CHILD_OR_SELF("6", " #{#deptName} IN ( #{@sdss.getDeptAndChild( #user.deptId )} ) OR #{#userName} = #{#user.userId} ", " 1 = 0 ");
+    DEPT_AND_CHILD_OR_SELF("6", " #{#deptName} IN ( select descendant_id from sys_dept_closure where ancestor_id = #{#user.deptId} ) OR #{#userName} = #{#user.userId} ", " 1 = 0 ");
 
     private final String code;
 
@@ -1,5 +1,6 @@
 package cc.infoq.common.mybatis.handler;
 
+import cc.infoq.common.constant.CacheNames;
 import cc.infoq.common.domain.dto.RoleDTO;
 import cc.infoq.common.domain.model.LoginUser;
 import cc.infoq.common.exception.ServiceException;
@@ -7,12 +8,15 @@ import cc.infoq.common.mybatis.annotation.DataColumn;
 import cc.infoq.common.mybatis.annotation.DataPermission;
 import cc.infoq.common.mybatis.enums.DataScopeType;
 import cc.infoq.common.mybatis.helper.DataPermissionHelper;
+import cc.infoq.common.redis.manager.CacheInvalidateBus;
 import cc.infoq.common.satoken.utils.LoginHelper;
 import cc.infoq.common.utils.SpringUtils;
 import cc.infoq.common.utils.StreamUtils;
 import cc.infoq.common.utils.StringUtils;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.ObjectUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import net.sf.jsqlparser.JSQLParserException;
@@ -27,10 +31,15 @@ import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
 /**
  * 数据权限过滤
+ * <p>
+ * 过滤条件按 注解 + 语句类型 + 用户/部门 + 角色数据范围 + 忽略列 缓存为已解析的 sql 表达式 命中时无需再执行 spel 与 sql 解析
+ * 角色自定义部门变化时 随 {@link CacheNames#SYS_ROLE_CUSTOM} 的失效在各节点清空 部门层级由模板内的闭包子查询实时求值 无需失效
  *
  * @author Lion Li
  * @version 3.5.0
@@ -38,6 +47,18 @@ import java.util.function.Function;
 @Slf4j
 public class PlusDataPermissionHandler {
 
+    /**
+     * 过滤条件缓存组名称
+     */
+    public static final String SQL_CACHE_NAME = "data_permission_sql";
+
+    private static final CacheInvalidateBus BUS = SpringUtils.getBean(CacheInvalidateBus.class);
+
+    /**
+     * 不追加过滤条件的占位结果
+     */
+    private static final Object NONE = new Object();
+
     /**
      * spel 解析器
      */
@@ -48,6 +69,37 @@ public class PlusDataPermissionHandler {
      */
     private final BeanResolver beanResolver = new BeanFactoryResolver(SpringUtils.getBeanFactory());
 
+    /**
+     * 预编译的数据范围模板
+     */
+    private final Map<DataScopeType, org.springframework.expression.Expression> templates = new EnumMap<>(DataScopeType.class);
+
+    /**
+     * 注解实例编号(弱引用 按实例比较)
+     */
+    private final Cache<DataPermission, Integer> annotationIds = Caffeine.newBuilder().weakKeys().build();
+    private final AtomicInteger annotationSequence = new AtomicInteger();
+
+    /**
+     * 已解析的过滤条件
+     */
+    private final Cache<Object, Object> sqlCache = Caffeine.newBuilder()
+        .expireAfterAccess(30, TimeUnit.MINUTES)
+        .maximumSize(10000)
+        .build();
+
+    public PlusDataPermissionHandler() {
+        for (DataScopeType type : DataScopeType.values()) {
+            if (StringUtils.isNotBlank(type.getSqlTemplate())) {
+                templates.put(type, parser.parseExpression(type.getSqlTemplate(), parserContext));
+            }
+        }
+        String roleCustom = StringUtils.substringBefore(CacheNames.SYS_ROLE_CUSTOM, "#");
+        BUS.register(SQL_CACHE_NAME, sqlCache);
+        // 缓存组名称带有租户前缀 按后缀匹配
+        BUS.addDependency(SQL_CACHE_NAME, name -> name.endsWith(roleCustom));
+    }
+
     /**
      * 获取数据过滤条件的 SQL 片段
      *
@@ -60,44 +112,129 @@ public class PlusDataPermissionHandler {
             // 获取数据权限配置
             DataPermission dataPermission = getDataPermission();
             // 获取当前登录用户信息
-            LoginUser currentUser = DataPermissionHelper.getVariable("user");
-            if (ObjectUtil.isNull(currentUser)) {
-                currentUser = LoginHelper.getLoginUser();
-                DataPermissionHelper.setVariable("user", currentUser);
-            }
+            LoginUser currentUser = getCurrentUser();
             // 如果是超级管理员或租户管理员，则不过滤数据
             if (LoginHelper.isSuperAdmin() || LoginHelper.isTenantAdmin()) {
                 return where;
             }
-            // 构造数据过滤条件的 SQL 片段
-            String dataFilterSql = buildDataFilter(dataPermission, isSelect);
-            if (StringUtils.isBlank(dataFilterSql)) {
+            boolean[] ignored = getIgnoredColumns(dataPermission, currentUser);
+            Object segment;
+            if (DataPermissionHelper.getContext().size() > 1) {
+                // 存在自定义变量 过滤条件不可复用
+                segment = parseDataFilter(dataPermission, isSelect, ignored);
+            } else {
+                String cacheKey = buildCacheKey(dataPermission, isSelect, currentUser, ignored);
+                segment = BUS.get(sqlCache, SQL_CACHE_NAME, cacheKey, () -> parseDataFilter(dataPermission, isSelect, ignored));
+            }
+            if (segment == NONE) {
                 return where;
             }
-            Expression expression = CCJSqlParserUtil.parseExpression(dataFilterSql);
-            // 数据权限使用单独的括号 防止与其他条件冲突
-            ParenthesedExpressionList<Expression> parenthesis = new ParenthesedExpressionList<>(expression);
+            // 缓存的表达式只读 拼接时不修改其内部结构
+            ParenthesedExpressionList<?> parenthesis = (ParenthesedExpressionList<?>) segment;
             if (ObjectUtil.isNotNull(where)) {
                 return new AndExpression(where, parenthesis);
             } else {
                 return parenthesis;
             }
-        } catch (JSQLParserException e) {
-            throw new ServiceException("数据权限解析异常 => " + e.getMessage());
         } finally {
             DataPermissionHelper.removePermission();
         }
     }
 
+    /**
+     * 获取数据过滤条件的缓存key(与 {@link #getSqlSegment} 的结果一一对应)
+     *
+     * @param isSelect 是否为查询语句
+     * @return 缓存key 存在自定义变量而不可缓存时返回 null
+     */
+    public String getCacheKey(boolean isSelect) {
+        LoginUser currentUser = getCurrentUser();
+        if (LoginHelper.isSuperAdmin() || LoginHelper.isTenantAdmin()) {
+            return "*";
+        }
+        if (DataPermissionHelper.getContext().size() > 1) {
+            return null;
+        }
+        DataPermission dataPermission = getDataPermission();
+        return buildCacheKey(dataPermission, isSelect, currentUser, getIgnoredColumns(dataPermission, currentUser));
+    }
+
+    /**
+     * 获取当前登录用户信息 并放入数据权限上下文
+     */
+    private LoginUser getCurrentUser() {
+        LoginUser currentUser = DataPermissionHelper.getVariable("user");
+        if (ObjectUtil.isNull(currentUser)) {
+            currentUser = LoginHelper.getLoginUser();
+            DataPermissionHelper.setVariable("user", currentUser);
+        }
+        return currentUser;
+    }
+
+    /**
+     * 构建并解析数据过滤条件
+     *
+     * @return 数据权限使用单独括号包裹的表达式 无需过滤时返回 {@link #NONE}
+     */
+    private Object parseDataFilter(DataPermission dataPermission, boolean isSelect, boolean[] ignored) {
+        // 构造数据过滤条件的 SQL 片段
+        String dataFilterSql = buildDataFilter(dataPermission, isSelect, ignored);
+        if (StringUtils.isBlank(dataFilterSql)) {
+            return NONE;
+        }
+        try {
+            Expression expression = CCJSqlParserUtil.parseExpression(dataFilterSql);
+            // 数据权限使用单独的括号 防止与其他条件冲突
+            return new ParenthesedExpressionList<>(expression);
+        } catch (JSQLParserException e) {
+            throw new ServiceException("数据权限解析异常 => " + e.getMessage());
+        }
+    }
+
+    /**
+     * 标记用户拥有权限标识而无需过滤的数据列
+     */
+    private boolean[] getIgnoredColumns(DataPermission dataPermission, LoginUser user) {
+        DataColumn[] columns = dataPermission.value();
+        boolean[] ignored = new boolean[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            ignored[i] = StringUtils.isNotBlank(columns[i].permission()) &&
+                CollUtil.contains(user.getMenuPermission(), columns[i].permission());
+        }
+        return ignored;
+    }
+
+    /**
+     * 过滤条件缓存key 注解实例 + 语句类型 + 租户/用户/部门 + 忽略列 + 角色数据范围
+     */
+    private String buildCacheKey(DataPermission dataPermission, boolean isSelect, LoginUser user, boolean[] ignored) {
+        Integer annotationId = annotationIds.get(dataPermission, k -> annotationSequence.incrementAndGet());
+        StringBuilder sb = new StringBuilder(64)
+            .append(annotationId).append(isSelect ? ":s:" : ":m:")
+            .append(user.getTenantId()).append(':')
+            .append(user.getUserId()).append(':')
+            .append(user.getDeptId()).append(':');
+        for (boolean b : ignored) {
+            sb.append(b ? '1' : '0');
+        }
+        if (CollUtil.isNotEmpty(user.getRoles())) {
+            for (RoleDTO role : user.getRoles()) {
+                sb.append(':').append(role.getRoleId()).append('-').append(role.getDataScope());
+            }
+        }
+        return sb.toString();
+    }
+
     /**
      * 构建数据过滤条件的 SQL 语句
      *
      * @param dataPermission 数据权限注解
      * @param isSelect       标志当前操作是否为查询操作，查询操作和更新或删除操作在处理过滤条件时会有不同的处理方式
+     * @param ignored        用户拥有权限标识而无需过滤的数据列
      * @return 构建的数据过滤条件的 SQL 语句
      * @throws ServiceException 如果角色的数据范围异常或者 key 与 value 的长度不匹配，则抛出 ServiceException 异常
      */
-    private String buildDataFilter(DataPermission dataPermission, boolean isSelect) {
+    private String buildDataFilter(DataPermission dataPermission, boolean isSelect, boolean[] ignored) {
         // 更新或删除需满足所有条件
         String joinStr = isSelect ? " OR " : " AND ";
         if (StringUtils.isNotBlank(dataPermission.joinStr())) {
@@ -112,20 +249,19 @@ public class PlusDataPermissionHandler {
         Set<String> conditions = new HashSet<>();
         // 优先设置变量
         List<String> keys = new ArrayList<>();
-        Map<DataColumn, Boolean> ignoreMap = new HashMap<>();
-        for (DataColumn dataColumn : dataPermission.value()) {
+        DataColumn[] columns = dataPermission.value();
+        for (int i = 0; i < columns.length; i++) {
+            DataColumn dataColumn = columns[i];
             if (dataColumn.key().length != dataColumn.value().length) {
                 throw new ServiceException("角色数据范围异常 => key与value长度不匹配");
             }
             // 包含权限标识符 这直接跳过
-            if (StringUtils.isNotBlank(dataColumn.permission()) &&
-                CollUtil.contains(user.getMenuPermission(), dataColumn.permission())) {
-                ignoreMap.put(dataColumn, Boolean.TRUE);
+            if (ignored[i]) {
                 continue;
             }
             // 设置注解变量 key 为表达式变量 value 为变量值
-            for (int i = 0; i < dataColumn.key().length; i++) {
-                context.setVariable(dataColumn.key()[i], dataColumn.value()[i]);
+            for (int j = 0; j < dataColumn.key().length; j++) {
+                context.setVariable(dataColumn.key()[j], dataColumn.value()[j]);
             }
             keys.addAll(Arrays.stream(dataColumn.key()).map(key -> "#" + key).toList());
         }
@@ -142,9 +278,10 @@ public class PlusDataPermissionHandler {
                 return StringUtils.EMPTY;
             }
             boolean isSuccess = false;
-            for (DataColumn dataColumn : dataPermission.value()) {
+            for (int i = 0; i < columns.length; i++) {
+                DataColumn dataColumn = columns[i];
                 // 包含权限标识符 这直接跳过
-                if (ignoreMap.containsKey(dataColumn)) {
+                if (ignored[i]) {
                     // 修复多角色与权限标识符共用问题
                     conditions.add(joinStr + " 1 = 1 ");
                     isSuccess = true;
@@ -160,7 +297,7 @@ public class PlusDataPermissionHandler {
                 }
                 // 忽略数据权限 防止spel表达式内有其他sql查询导致死循环调用
                 String sql = DataPermissionHelper.ignore(() ->
-                    parser.parseExpression(type.getSqlTemplate(), parserContext).getValue(context, String.class)
+                    templates.get(type).getValue(context, String.class)
                 );
                 // 解析sql模板并填充
                 conditions.add(joinStr + sql);
@@ -5,6 +5,8 @@ import cc.infoq.common.mybatis.enums.DataBaseType;
 import cc.infoq.common.utils.SpringUtils;
 import cn.hutool.core.convert.Convert;
 import com.baomidou.dynamic.datasource.DynamicRoutingDataSource;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 
@@ -14,6 +16,7 @@ import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.Pattern;
 
 /**
  * 数据库助手
@@ -25,18 +28,37 @@ public class DataBaseHelper {
 
     private static final DynamicRoutingDataSource DS = SpringUtils.getBean(DynamicRoutingDataSource.class);
 
+    /**
+     * 数据源 => 数据库类型(弱引用 按实例比较 数据源移除后自动回收)
+     */
+    private static final Cache<DataSource, DataBaseType> TYPE_CACHE = Caffeine.newBuilder().weakKeys().build();
+
+    /**
+     * 祖级列表只允许出现数字与逗号
+     */
+    private static final Pattern ANCESTORS_PATTERN = Pattern.compile("[0-9]+(,[0-9]+)*");
+
     /**
      * 获取当前数据源对应的数据库类型
      * <p>
-     * 通过 DynamicRoutingDataSource 获取当前线程绑定的数据源，
-     * 然后从数据源获取数据库连接，利用连接的元数据获取数据库产品名称，
-     * 最后调用 DataBaseType.find 方法将数据库名称转换为对应的枚举类型
+     * 通过 DynamicRoutingDataSource 获取当前线程绑定的数据源(随 @DS 切换)，
+     * 首次访问该数据源时从连接元数据获取数据库产品名称并缓存，之后直接读取缓存 无需再借用连接
      *
      * @return 当前数据库对应的 DataBaseType 枚举，找不到时默认返回 MY_SQL
      * @throws ServiceException 当获取数据库连接或元数据出现异常时抛出业务异常
      */
     public static DataBaseType getDataBaseType() {
         DataSource dataSource = DS.determineDataSource();
+        DataBaseType type = TYPE_CACHE.getIfPresent(dataSource);
+        if (type == null) {
+            // 不在缓存计算中借用连接 避免连接池等待时阻塞其他数据源的读取
+            type = resolveDataBaseType(dataSource);
+            TYPE_CACHE.put(dataSource, type);
+        }
+        return type;
+    }
+
+    private static DataBaseType resolveDataBaseType(DataSource dataSource) {
         try (Connection conn = dataSource.getConnection()) {
             DatabaseMetaData metaData = conn.getMetaData();
             String databaseProductName = metaData.getDatabaseProductName();
@@ -73,6 +95,49 @@ public class DataBaseHelper {
         };
     }
 
+    /**
+     * 生成祖级列表的前缀匹配条件 匹配祖级以 ancestors 开头的全部后代
+     * <p>
+     * 与 {@link #findInSet} 不同 列不被函数包裹 各数据库均可使用 ancestors 列上的索引做范围扫描(PostgreSQL 需使用 text_pattern_ops 索引)
+     * 祖级列表只包含数字与逗号 不含任何数据库的 like 通配符 无需转义
+     *
+     * @param column    存储逗号分隔祖级列表的数据库列名
+     * @param ancestors 祖级前缀 通常为 父部门祖级 + "," + 父部门ID
+     * @return 适用于当前数据库的 SQL 条件字符串
+     */
+    public static String ancestorsStartWith(String column, String ancestors) {
+        checkAncestors(ancestors);
+        // (ancestors = '0,100' or ancestors like '0,100,%')
+        return "(%s = '%s' or %s like '%s,%%')".formatted(column, ancestors, column, ancestors);
+    }
+
+    /**
+     * 生成替换祖级列表前缀的 set 片段 配合 {@link #ancestorsStartWith} 在一条 update 语句内改写整个子树
+     * <p>
+     * 调用方需保证被更新的行均以 oldPrefix 开头 前缀之后的部分原样保留
+     *
+     * @param column    存储逗号分隔祖级列表的数据库列名
+     * @param oldPrefix 旧祖级前缀
+     * @param newPrefix 新祖级前缀
+     * @return 适用于当前数据库的 set 片段 如 ancestors = concat('0,200', substring(ancestors, 6))
+     */
+    public static String replaceAncestorsPrefix(String column, String oldPrefix, String newPrefix) {
+        checkAncestors(oldPrefix);
+        checkAncestors(newPrefix);
+        int start = oldPrefix.length() + 1;
+        return switch (getDataBaseType()) {
+            case ORACLE, POSTGRE_SQL -> "%s = '%s' || substr(%s, %d)".formatted(column, newPrefix, column, start);
+            case SQL_SERVER -> "%s = '%s' + substring(%s, %d, len(%s))".formatted(column, newPrefix, column, start, column);
+            default -> "%s = concat('%s', substring(%s, %d))".formatted(column, newPrefix, column, start);
+        };
+    }
+
+    private static void checkAncestors(String ancestors) {
+        if (ancestors == null || !ANCESTORS_PATTERN.matcher(ancestors).matches()) {
+            throw new ServiceException("祖级列表格式异常 => " + ancestors);
+        }
+    }
+
     /**
      * 获取当前加载的数据库名
      */
@@ -0,0 +1,31 @@
+package cc.infoq.common.mybatis.interceptor;
+
+import com.baomidou.mybatisplus.extension.plugins.inner.InnerInterceptor;
+import org.apache.ibatis.mapping.MappedStatement;
+
+/**
+ * 改写结果可缓存的 sql 改写拦截器
+ * <p>
+ * 由 {@link PlusSqlRewriteInterceptor} 统一调度 改写结果由 原始 sql + 各拦截器的缓存维度 唯一确定
+ *
+ * @author Lion Li
+ */
+public interface CacheableInnerInterceptor extends InnerInterceptor {
+
+    /**
+     * 获取本次改写的缓存维度
+     *
+     * @param ms 映射语句
+     * @return 缓存维度 本次不改写返回空串 不可缓存返回 null
+     */
+    String rewriteKey(MappedStatement ms);
+
+    /**
+     * 命中缓存跳过改写后调用 用于补齐改写过程中的副作用
+     *
+     * @param ms 映射语句
+     */
+    default void afterCacheHit(MappedStatement ms) {
+    }
+
+}
@@ -1,11 +1,12 @@
 package cc.infoq.common.mybatis.interceptor;
 
 import cc.infoq.common.mybatis.handler.PlusDataPermissionHandler;
+import cc.infoq.common.mybatis.helper.DataPermissionHelper;
+import cc.infoq.common.utils.StringUtils;
 import com.baomidou.mybatisplus.core.plugins.InterceptorIgnoreHelper;
 import com.baomidou.mybatisplus.core.toolkit.PluginUtils;
 import com.baomidou.mybatisplus.extension.plugins.handler.MultiDataPermissionHandler;
 import com.baomidou.mybatisplus.extension.plugins.inner.BaseMultiTableInnerInterceptor;
-import com.baomidou.mybatisplus.extension.plugins.inner.InnerInterceptor;
 import lombok.extern.slf4j.Slf4j;
 import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.schema.Table;
@@ -33,10 +34,38 @@ import java.util.List;
  * @version 3.5.0
  */
 @Slf4j
-public class PlusDataPermissionInterceptor extends BaseMultiTableInnerInterceptor implements InnerInterceptor {
+public class PlusDataPermissionInterceptor extends BaseMultiTableInnerInterceptor implements CacheableInnerInterceptor {
 
     private final PlusDataPermissionHandler dataPermissionHandler = new PlusDataPermissionHandler();
 
+    /**
+     * 获取本次改写的缓存维度 即数据过滤条件的缓存key
+     *
+     * @param ms 映射语句对象
+     * @return 缓存维度 不处理数据权限时返回空串
+     */
+    @Override
+    public String rewriteKey(MappedStatement ms) {
+        SqlCommandType sct = ms.getSqlCommandType();
+        if (sct != SqlCommandType.SELECT && sct != SqlCommandType.UPDATE && sct != SqlCommandType.DELETE) {
+            return StringUtils.EMPTY;
+        }
+        if (InterceptorIgnoreHelper.willIgnoreDataPermission(ms.getId()) || dataPermissionHandler.invalid()) {
+            return StringUtils.EMPTY;
+        }
+        return dataPermissionHandler.getCacheKey(sct == SqlCommandType.SELECT);
+    }
+
+    /**
+     * 命中缓存时 与正常改写一样清除当前权限注解
+     *
+     * @param ms 映射语句对象
+     */
+    @Override
+    public void afterCacheHit(MappedStatement ms) {
+        DataPermissionHelper.removePermission();
+    }
+
     /**
      * 在执行查询之前，检查并处理数据权限相关逻辑
      *
@@ -0,0 +1,34 @@
+package cc.infoq.common.mybatis.interceptor;
+
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.inner.PaginationInnerInterceptor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分页拦截器
+ * <p>
+ * count sql 只由原始 sql 与优化选项决定 按此缓存 避免每次分页查询都解析原始 sql
+ *
+ * @author Lion Li
+ */
+public class PlusPaginationInnerInterceptor extends PaginationInnerInterceptor {
+
+    private final Cache<String, String> countSqlCache = Caffeine.newBuilder()
+        .expireAfterAccess(30, TimeUnit.MINUTES)
+        .maximumWeight(2 * 1024 * 1024)
+        .<String, String>weigher((k, v) -> k.length() + v.length())
+        .build();
+
+    @Override
+    public String autoCountSql(IPage<?> page, String sql) {
+        if (!page.optimizeCountSql()) {
+            return super.autoCountSql(page, sql);
+        }
+        String key = (page.optimizeJoinOfCountSql() ? '1' : '0') + sql;
+        return countSqlCache.get(key, k -> super.autoCountSql(page, sql));
+    }
+
+}
@@ -0,0 +1,155 @@
+package cc.infoq.common.mybatis.interceptor;
+
+import cc.infoq.common.mybatis.handler.PlusDataPermissionHandler;
+import cc.infoq.common.redis.manager.CacheInvalidateBus;
+import cc.infoq.common.utils.SpringUtils;
+import com.baomidou.mybatisplus.core.toolkit.ExceptionUtils;
+import com.baomidou.mybatisplus.core.toolkit.PluginUtils;
+import com.baomidou.mybatisplus.extension.plugins.inner.InnerInterceptor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * sql 改写结果缓存拦截器
+ * <p>
+ * 依次调度租户、数据权限等改写拦截器 改写后的 sql 按 原始 sql + 各拦截器缓存维度 缓存
+ * 同一 mapper 语句重复执行时直接替换为缓存的 sql 无需再经过 jsqlparser 解析与序列化
+ * <p>
+ * 数据权限过滤条件失效时随之清空
+ *
+ * @author Lion Li
+ */
+public class PlusSqlRewriteInterceptor implements InnerInterceptor {
+
+    /**
+     * 改写结果缓存组名称
+     */
+    public static final String SQL_CACHE_NAME = "sql_rewrite";
+
+    private static final CacheInvalidateBus BUS = SpringUtils.getBean(CacheInvalidateBus.class);
+
+    private static final char SEPARATOR = '\u0001';
+
+    private final List<CacheableInnerInterceptor> interceptors;
+
+    /**
+     * 改写结果 按字符数限制容量 防止批量插入等长 sql 占用过多内存
+     */
+    private final Cache<Object, Object> sqlCache = Caffeine.newBuilder()
+        .expireAfterAccess(30, TimeUnit.MINUTES)
+        .maximumWeight(4 * 1024 * 1024)
+        .<Object, Object>weigher((k, v) -> ((String) k).length() + ((String) v).length())
+        .build();
+
+    public PlusSqlRewriteInterceptor(List<CacheableInnerInterceptor> interceptors) {
+        this.interceptors = interceptors;
+        BUS.register(SQL_CACHE_NAME, sqlCache);
+        BUS.addDependency(SQL_CACHE_NAME, PlusDataPermissionHandler.SQL_CACHE_NAME::equals);
+    }
+
+    @Override
+    public boolean willDoQuery(Executor executor, MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql) throws SQLException {
+        for (CacheableInnerInterceptor interceptor : interceptors) {
+            if (!interceptor.willDoQuery(executor, ms, parameter, rowBounds, resultHandler, boundSql)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void beforeQuery(Executor executor, MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql) throws SQLException {
+        rewrite(ms, PluginUtils.mpBoundSql(boundSql), interceptor -> {
+            try {
+                interceptor.beforeQuery(executor, ms, parameter, rowBounds, resultHandler, boundSql);
+            } catch (SQLException e) {
+                throw ExceptionUtils.mpe(e);
+            }
+        });
+    }
+
+    @Override
+    public boolean willDoUpdate(Executor executor, MappedStatement ms, Object parameter) throws SQLException {
+        for (CacheableInnerInterceptor interceptor : interceptors) {
+            if (!interceptor.willDoUpdate(executor, ms, parameter)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void beforeUpdate(Executor executor, MappedStatement ms, Object parameter) throws SQLException {
+        for (CacheableInnerInterceptor interceptor : interceptors) {
+            interceptor.beforeUpdate(executor, ms, parameter);
+        }
+    }
+
+    @Override
+    public void beforePrepare(StatementHandler sh, Connection connection, Integer transactionTimeout) {
+        PluginUtils.MPStatementHandler mpSh = PluginUtils.mpStatementHandler(sh);
+        MappedStatement ms = mpSh.mappedStatement();
+        SqlCommandType sct = ms.getSqlCommandType();
+        // 查询语句已在 beforeQuery 中改写
+        if (sct == SqlCommandType.INSERT || sct == SqlCommandType.UPDATE || sct == SqlCommandType.DELETE) {
+            rewrite(ms, mpSh.mPBoundSql(), interceptor -> interceptor.beforePrepare(sh, connection, transactionTimeout));
+        } else {
+            interceptors.forEach(interceptor -> interceptor.beforePrepare(sh, connection, transactionTimeout));
+        }
+    }
+
+    @Override
+    public void beforeGetBoundSql(StatementHandler sh) {
+        interceptors.forEach(interceptor -> interceptor.beforeGetBoundSql(sh));
+    }
+
+    /**
+     * 命中缓存直接替换 sql 未命中则依次执行各拦截器改写并缓存结果
+     */
+    private void rewrite(MappedStatement ms, PluginUtils.MPBoundSql mpBs, Consumer<CacheableInnerInterceptor> action) {
+        String[] keys = new String[interceptors.size()];
+        StringBuilder sb = new StringBuilder(mpBs.sql());
+        boolean rewrite = false;
+        for (int i = 0; i < keys.length; i++) {
+            String key = interceptors.get(i).rewriteKey(ms);
+            if (key == null) {
+                // 本次改写不可缓存
+                interceptors.forEach(action);
+                return;
+            }
+            keys[i] = key;
+            rewrite |= !key.isEmpty();
+            sb.append(SEPARATOR).append(key);
+        }
+        if (!rewrite) {
+            return;
+        }
+        String cacheKey = sb.toString();
+        if (sqlCache.getIfPresent(cacheKey) instanceof String sql) {
+            mpBs.sql(sql);
+            for (int i = 0; i < keys.length; i++) {
+                if (!keys[i].isEmpty()) {
+                    interceptors.get(i).afterCacheHit(ms);
+                }
+            }
+            return;
+        }
+        long stamp = BUS.stamp();
+        interceptors.forEach(action);
+        BUS.putIfFresh(sqlCache, SQL_CACHE_NAME, cacheKey, mpBs.sql(), stamp);
+    }
+
+}
@@ -45,4 +45,12 @@ public @interface RateLimiter {
      */
     int timeout() default 86400;
 
+    /**
+     * 本地预取令牌数 大于0时开启混合限流(默认0 每次请求都访问 redis)
+     * <p>
+     * 每个节点一次从 redis 预取一批令牌在本地扣减 用完再访问 redis
+     * 单次预取不超过 count 的 10% 按使用情况自适应 本地令牌只保留预取数按速率折算的时长 到期未用完作废
+     */
+    int lease() default 0;
+
 }
@@ -0,0 +1,42 @@
+package cc.infoq.common.redis.aspectj;
+
+import cc.infoq.common.redis.manager.CacheInvocation;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+import java.lang.reflect.Method;
+
+/**
+ * 记录 @Cacheable(sync = true) 方法的调用信息 供缓存异步刷新时重新调用目标方法
+ * <p>
+ * 优先级最高 保证在 spring 缓存拦截器之前绑定
+ *
+ * @author Lion Li
+ */
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class CacheInvocationAspect {
+
+    @Around("@annotation(cacheable)")
+    public Object around(ProceedingJoinPoint point, Cacheable cacheable) throws Throwable {
+        // 只有同步加载会以加载器方式读取缓存 其余方式无需记录
+        if (!cacheable.sync()) {
+            return point.proceed();
+        }
+        Object target = point.getTarget();
+        Method method = AopUtils.getMostSpecificMethod(((MethodSignature) point.getSignature()).getMethod(), target.getClass());
+        CacheInvocation previous = CacheInvocation.bind(new CacheInvocation(target, method, point.getArgs().clone()));
+        try {
+            return point.proceed();
+        } finally {
+            CacheInvocation.restore(previous);
+        }
+    }
+
+}
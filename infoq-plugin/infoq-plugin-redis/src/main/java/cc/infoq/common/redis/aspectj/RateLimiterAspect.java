@@ -4,17 +4,21 @@ import cc.infoq.common.constant.GlobalConstants;
 import cc.infoq.common.exception.ServiceException;
 import cc.infoq.common.redis.annotation.RateLimiter;
 import cc.infoq.common.redis.enums.LimitType;
+import cc.infoq.common.redis.limiter.LeaseRateLimiter;
 import cc.infoq.common.redis.utils.RedisUtils;
 import cc.infoq.common.utils.MessageUtils;
 import cc.infoq.common.utils.ServletUtils;
 import cc.infoq.common.utils.SpringUtils;
 import cc.infoq.common.utils.StringUtils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Before;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.redisson.api.RateType;
+import org.redisson.client.RedisException;
 import org.springframework.context.expression.BeanFactoryResolver;
 import org.springframework.context.expression.MethodBasedEvaluationContext;
 import org.springframework.core.DefaultParameterNameDiscoverer;
@@ -26,7 +30,10 @@ import org.springframework.expression.common.TemplateParserContext;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 
 import java.lang.reflect.Method;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 限流处理
@@ -49,6 +56,19 @@ public class RateLimiterAspect {
      * 方法参数解析器
      */
     private final ParameterNameDiscoverer pnd = new DefaultParameterNameDiscoverer();
+    /**
+     * 已解析的spel表达式(每个方法的 key 固定 只需解析一次)
+     */
+    private final Map<Method, Expression> expressionCache = new ConcurrentHashMap<>();
+    /**
+     * 混合限流本地令牌(按限流key)
+     */
+    private final Cache<String, LeaseRateLimiter> leases = Caffeine.newBuilder()
+        .expireAfterAccess(1, TimeUnit.HOURS)
+        .maximumSize(10000)
+        .build();
+
+    private BeanFactoryResolver beanResolver;
 
 
     @Before("@annotation(rateLimiter)")
@@ -62,7 +82,12 @@ public class RateLimiterAspect {
             if (rateLimiter.limitType() == LimitType.CLUSTER) {
                 rateType = RateType.PER_CLIENT;
             }
-            long number = RedisUtils.rateLimiter(combineKey, rateType, count, time, timeout);
+            long number;
+            if (rateLimiter.lease() > 0) {
+                number = acquireLease(combineKey, rateType, rateLimiter);
+            } else {
+                number = RedisUtils.rateLimiter(combineKey, rateType, count, time, timeout);
+            }
             if (number == -1) {
                 String message = rateLimiter.message();
                 if (StringUtils.startsWith(message, "{") && StringUtils.endsWith(message, "}")) {
@@ -80,6 +105,32 @@ public class RateLimiterAspect {
         }
     }
 
+    /**
+     * 混合限流 优先扣减本地预取的令牌 用完再从 redis 批量预取
+     * <p>
+     * 速率在创建本地令牌时设置一次 redis 中的限流配置随 timeout 过期后 预取失败时重新设置并重试一次
+     *
+     * @return 本地剩余令牌 -1 表示失败
+     */
+    private long acquireLease(String combineKey, RateType rateType, RateLimiter rateLimiter) {
+        LeaseRateLimiter lease = leases.get(combineKey, k -> {
+            initRate(combineKey, rateType, rateLimiter);
+            return new LeaseRateLimiter(rateLimiter.count(), rateLimiter.time(), rateLimiter.lease(), System::currentTimeMillis);
+        });
+        return lease.tryAcquire(permits -> {
+            try {
+                return RedisUtils.rateLimiterLease(combineKey, permits);
+            } catch (RedisException e) {
+                initRate(combineKey, rateType, rateLimiter);
+                return RedisUtils.rateLimiterLease(combineKey, permits);
+            }
+        });
+    }
+
+    private static void initRate(String combineKey, RateType rateType, RateLimiter rateLimiter) {
+        RedisUtils.rateLimiterInit(combineKey, rateType, rateLimiter.count(), rateLimiter.time(), rateLimiter.timeout());
+    }
+
     private String getCombineKey(RateLimiter rateLimiter, JoinPoint point) {
         String key = rateLimiter.key();
         // 判断 key 不为空 和 不是表达式
@@ -89,14 +140,8 @@ public class RateLimiterAspect {
             Object[] args = point.getArgs();
             MethodBasedEvaluationContext context =
                 new MethodBasedEvaluationContext(null, targetMethod, args, pnd);
-            context.setBeanResolver(new BeanFactoryResolver(SpringUtils.getBeanFactory()));
-            Expression expression;
-            if (StringUtils.startsWith(key, parserContext.getExpressionPrefix())
-                && StringUtils.endsWith(key, parserContext.getExpressionSuffix())) {
-                expression = parser.parseExpression(key, parserContext);
-            } else {
-                expression = parser.parseExpression(key);
-            }
+            context.setBeanResolver(getBeanResolver());
+            Expression expression = expressionCache.computeIfAbsent(targetMethod, m -> parseExpression(rateLimiter.key()));
             key = expression.getValue(context, String.class);
         }
         StringBuilder stringBuffer = new StringBuilder(GlobalConstants.RATE_LIMIT_KEY);
@@ -110,4 +155,20 @@ public class RateLimiterAspect {
         }
         return stringBuffer.append(key).toString();
     }
+
+    private Expression parseExpression(String key) {
+        if (StringUtils.startsWith(key, parserContext.getExpressionPrefix())
+            && StringUtils.endsWith(key, parserContext.getExpressionSuffix())) {
+            return parser.parseExpression(key, parserContext);
+        }
+        return parser.parseExpression(key);
+    }
+
+    private BeanFactoryResolver getBeanResolver() {
+        if (beanResolver == null) {
+            beanResolver = new BeanFactoryResolver(SpringUtils.getBeanFactory());
+        }
+        return beanResolver;
+    }
+
 }
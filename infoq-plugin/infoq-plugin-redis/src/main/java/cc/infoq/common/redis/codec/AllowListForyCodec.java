@@ -0,0 +1,86 @@
+package cc.infoq.common.redis.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import org.apache.fory.Fory;
+import org.apache.fory.ThreadLocalFory;
+import org.apache.fory.ThreadSafeFory;
+import org.apache.fory.config.CompatibleMode;
+import org.apache.fory.config.Language;
+import org.apache.fory.resolver.AllowListChecker;
+import org.redisson.client.codec.BaseCodec;
+import org.redisson.client.protocol.Decoder;
+import org.redisson.client.protocol.Encoder;
+
+import java.util.Collection;
+
+/**
+ * 基于 fory 的二进制序列化(类白名单)
+ * <p>
+ * 反序列化时只允许白名单内的类 防止任意类反序列化漏洞
+ * 白名单支持通配符 例如 cc.infoq.*
+ *
+ * @author Lion Li
+ */
+public class AllowListForyCodec extends BaseCodec {
+
+    private final Collection<String> allowList;
+
+    private final ThreadSafeFory fory;
+
+    private final Encoder encoder = new Encoder() {
+        @Override
+        public ByteBuf encode(Object in) {
+            byte[] bytes = fory.serialize(in);
+            ByteBuf out = ByteBufAllocator.DEFAULT.buffer(bytes.length);
+            out.writeBytes(bytes);
+            return out;
+        }
+    };
+
+    private final Decoder<Object> decoder = (buf, state) -> fory.deserialize(ByteBufUtil.getBytes(buf, buf.readerIndex(), buf.readableBytes(), false));
+
+    public AllowListForyCodec(Collection<String> allowList) {
+        this(allowList, null);
+    }
+
+    public AllowListForyCodec(ClassLoader classLoader, AllowListForyCodec codec) {
+        this(codec.allowList, classLoader);
+    }
+
+    private AllowListForyCodec(Collection<String> allowList, ClassLoader classLoader) {
+        this.allowList = allowList;
+        AllowListChecker checker = new AllowListChecker(AllowListChecker.CheckLevel.STRICT);
+        for (String allow : allowList) {
+            checker.allowClass(allow);
+        }
+        ClassLoader loader = classLoader != null ? classLoader : getClass().getClassLoader();
+        this.fory = new ThreadLocalFory(cl -> {
+            Fory f = Fory.builder()
+                .withLanguage(Language.JAVA)
+                // 使用白名单校验代替逐个类注册 新增类无需改代码
+                .requireClassRegistration(false)
+                .withRefTracking(true)
+                // 允许字段增删 兼容滚动发布期间新旧版本共存
+                .withCompatibleMode(CompatibleMode.COMPATIBLE)
+                .withAsyncCompilation(true)
+                .withClassLoader(loader)
+                .build();
+            f.getClassResolver().setClassChecker(checker);
+            checker.addListener(f.getClassResolver());
+            return f;
+        });
+    }
+
+    @Override
+    public Decoder<Object> getValueDecoder() {
+        return decoder;
+    }
+
+    @Override
+    public Encoder getValueEncoder() {
+        return encoder;
+    }
+
+}
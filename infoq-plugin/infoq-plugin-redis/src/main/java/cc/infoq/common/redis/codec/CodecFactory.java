@@ -0,0 +1,132 @@
+package cc.infoq.common.redis.codec;
+
+import cc.infoq.common.redis.enums.CodecType;
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
+import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.redisson.client.codec.Codec;
+import org.redisson.client.codec.StringCodec;
+import org.redisson.codec.CompositeCodec;
+import org.redisson.codec.TypedJsonJacksonCodec;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * redis 序列化构建
+ *
+ * @author Lion Li
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class CodecFactory {
+
+    /**
+     * 二进制序列化默认白名单
+     * <p>
+     * 除本项目的类外只列出实际会被缓存的 JDK 与 Sa-Token 具体类 不使用包通配符 其余类型通过额外白名单配置追加
+     */
+    public static final List<String> DEFAULT_ALLOW_LIST = List.of(
+        "cc.infoq.*",
+        // Sa-Token 会话
+        "cn.dev33.satoken.session.SaSession",
+        "cn.dev33.satoken.session.SaTerminalInfo",
+        "org.redisson.spring.cache.NullValue",
+        // 基本类型
+        "java.lang.String",
+        "java.lang.Boolean",
+        "java.lang.Byte",
+        "java.lang.Short",
+        "java.lang.Integer",
+        "java.lang.Long",
+        "java.lang.Float",
+        "java.lang.Double",
+        "java.lang.Character",
+        "java.math.BigDecimal",
+        "java.math.BigInteger",
+        // 日期时间
+        "java.util.Date",
+        "java.time.LocalDate",
+        "java.time.LocalTime",
+        "java.time.LocalDateTime",
+        "java.time.Instant",
+        "java.time.Duration",
+        // 集合
+        "java.util.ArrayList",
+        "java.util.LinkedList",
+        "java.util.Vector",
+        "java.util.HashMap",
+        "java.util.LinkedHashMap",
+        "java.util.TreeMap",
+        "java.util.HashSet",
+        "java.util.LinkedHashSet",
+        "java.util.TreeSet",
+        "java.util.Arrays$ArrayList",
+        "java.util.Collections$EmptyList",
+        "java.util.Collections$EmptySet",
+        "java.util.Collections$EmptyMap",
+        "java.util.Collections$SingletonList",
+        "java.util.Collections$UnmodifiableRandomAccessList",
+        "java.util.Collections$UnmodifiableSet",
+        "java.util.Collections$UnmodifiableMap",
+        "java.util.ImmutableCollections$List12",
+        "java.util.ImmutableCollections$ListN",
+        "java.util.ImmutableCollections$Set12",
+        "java.util.ImmutableCollections$SetN",
+        "java.util.ImmutableCollections$Map1",
+        "java.util.ImmutableCollections$MapN",
+        "java.util.concurrent.ConcurrentHashMap",
+        "java.util.concurrent.CopyOnWriteArrayList"
+    );
+
+    /**
+     * 构建组合序列化 key 使用 String 内容按类型使用 json 或 二进制
+     *
+     * @param type      序列化方式
+     * @param allowList 二进制序列化额外白名单
+     */
+    public static CompositeCodec create(CodecType type, Collection<String> allowList) {
+        Codec valueCodec = type == CodecType.BINARY ? binary(allowList) : json();
+        return new CompositeCodec(StringCodec.INSTANCE, valueCodec, valueCodec);
+    }
+
+    /**
+     * 通用 json 序列化(保存全类名)
+     */
+    public static TypedJsonJacksonCodec json() {
+        JavaTimeModule javaTimeModule = new JavaTimeModule();
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        javaTimeModule.addSerializer(LocalDateTime.class, new LocalDateTimeSerializer(formatter));
+        javaTimeModule.addDeserializer(LocalDateTime.class, new LocalDateTimeDeserializer(formatter));
+        ObjectMapper om = new ObjectMapper();
+        om.registerModule(javaTimeModule);
+        om.setTimeZone(TimeZone.getDefault());
+        om.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
+        // 指定序列化输入的类型，类必须是非final修饰的。序列化时将对象全类名一起保存下来
+        om.activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL);
+        return new TypedJsonJacksonCodec(Object.class, om);
+    }
+
+    /**
+     * fory 二进制序列化(默认白名单 + 额外白名单)
+     *
+     * @param allowList 额外白名单
+     */
+    public static AllowListForyCodec binary(Collection<String> allowList) {
+        List<String> list = new ArrayList<>(DEFAULT_ALLOW_LIST);
+        if (allowList != null) {
+            list.addAll(allowList);
+        }
+        return new AllowListForyCodec(list);
+    }
+
+}
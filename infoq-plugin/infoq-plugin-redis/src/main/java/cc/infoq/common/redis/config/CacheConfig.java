@@ -1,14 +1,15 @@
 package cc.infoq.common.redis.config;
 
+import cc.infoq.common.redis.aspectj.CacheInvocationAspect;
+import cc.infoq.common.redis.manager.CacheInvalidateBus;
 import cc.infoq.common.redis.manager.PlusSpringCacheManager;
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
-
-import java.util.concurrent.TimeUnit;
+import org.springframework.core.task.TaskDecorator;
 
 /**
  * 缓存配置
@@ -20,26 +21,31 @@ import java.util.concurrent.TimeUnit;
 public class CacheConfig {
 
     /**
-     * caffeine 本地缓存处理器
+     * 一级缓存跨节点失效总线(各缓存组的 caffeine 本地缓存由 {@link PlusSpringCacheManager} 按组创建)
+     */
+    @Bean
+    public CacheInvalidateBus cacheInvalidateBus(RedissonClient redissonClient) {
+        return new CacheInvalidateBus(redissonClient);
+    }
+
+    /**
+     * 记录缓存方法调用信息(缓存异步刷新时重新调用目标方法)
      */
     @Bean
-    public Cache<Object, Object> caffeine() {
-        return Caffeine.newBuilder()
-            // 设置最后一次写入或访问后经过固定时间过期
-            .expireAfterWrite(30, TimeUnit.SECONDS)
-            // 初始的缓存空间大小
-            .initialCapacity(100)
-            // 缓存的最大条数
-            .maximumSize(1000)
-            .build();
+    public CacheInvocationAspect cacheInvocationAspect() {
+        return new CacheInvocationAspect();
     }
 
     /**
      * 自定义缓存管理器 整合spring-cache
+     *
+     * @param taskDecorators 任务装饰器(传递登录等上下文到缓存异步刷新线程)
      */
     @Bean
-    public CacheManager cacheManager() {
-        return new PlusSpringCacheManager();
+    public CacheManager cacheManager(ObjectProvider<TaskDecorator> taskDecorators) {
+        PlusSpringCacheManager cacheManager = new PlusSpringCacheManager();
+        taskDecorators.orderedStream().forEach(cacheManager::addTaskDecorator);
+        return cacheManager;
     }
 
 }
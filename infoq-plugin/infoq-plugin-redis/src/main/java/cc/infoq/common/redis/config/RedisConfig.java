@@ -1,21 +1,15 @@
 package cc.infoq.common.redis.config;
 
+import cc.infoq.common.redis.codec.CodecFactory;
 import cc.infoq.common.redis.config.properties.RedissonProperties;
+import cc.infoq.common.redis.enums.CodecType;
 import cc.infoq.common.redis.handler.KeyPrefixHandler;
 import cc.infoq.common.redis.handler.RedisExceptionHandler;
 import cc.infoq.common.utils.SpringUtils;
 import cn.hutool.core.util.ObjectUtil;
-import com.fasterxml.jackson.annotation.JsonAutoDetect;
-import com.fasterxml.jackson.annotation.PropertyAccessor;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
-import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
 import lombok.extern.slf4j.Slf4j;
-import org.redisson.client.codec.StringCodec;
+import org.apache.fory.logging.LoggerFactory;
 import org.redisson.codec.CompositeCodec;
-import org.redisson.codec.TypedJsonJacksonCodec;
 import org.redisson.spring.starter.RedissonAutoConfigurationCustomizer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
@@ -23,10 +17,6 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.context.annotation.Bean;
 import org.springframework.core.task.VirtualThreadTaskExecutor;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.TimeZone;
-
 /**
  * redis配置
  *
@@ -43,23 +33,12 @@ public class RedisConfig {
     @Bean
     public RedissonAutoConfigurationCustomizer redissonCustomizer() {
         return config -> {
-            JavaTimeModule javaTimeModule = new JavaTimeModule();
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-            javaTimeModule.addSerializer(LocalDateTime.class, new LocalDateTimeSerializer(formatter));
-            javaTimeModule.addDeserializer(LocalDateTime.class, new LocalDateTimeDeserializer(formatter));
-            ObjectMapper om = new ObjectMapper();
-            om.registerModule(javaTimeModule);
-            om.setTimeZone(TimeZone.getDefault());
-            om.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
-            // 指定序列化输入的类型，类必须是非final修饰的。序列化时将对象全类名一起保存下来
-            om.activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL);
-            // org.apache.fory.logging.LoggerFactory 包别引入错了
-            // LoggerFactory.useSlf4jLogging(true);
-            // ForyCodec foryCodec = new ForyCodec();
-            // CompositeCodec codec = new CompositeCodec(StringCodec.INSTANCE, foryCodec, foryCodec);
-            TypedJsonJacksonCodec jsonCodec = new TypedJsonJacksonCodec(Object.class, om);
-            // 组合序列化 key 使用 String 内容使用通用 json 格式
-            CompositeCodec codec = new CompositeCodec(StringCodec.INSTANCE, jsonCodec, jsonCodec);
+            if (redissonProperties.getCodec() == CodecType.BINARY) {
+                // org.apache.fory.logging.LoggerFactory 包别引入错了
+                LoggerFactory.useSlf4jLogging(true);
+            }
+            // 组合序列化 key 使用 String 内容默认使用通用 json 格式 可选 fory 二进制
+            CompositeCodec codec = CodecFactory.create(redissonProperties.getCodec(), redissonProperties.getCodecAllowList());
             config.setThreads(redissonProperties.getThreads())
                 .setNettyThreads(redissonProperties.getNettyThreads())
                 // 缓存 Lua 脚本 减少网络传输(redisson 大部分的功能都是基于 Lua 脚本实现)
@@ -1,11 +1,14 @@
 package cc.infoq.common.redis.config.properties;
 
+import cc.infoq.common.redis.enums.CodecType;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.redisson.config.ReadMode;
 import org.redisson.config.SubscriptionMode;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.List;
+
 /**
  * Redisson 配置属性
  *
@@ -30,6 +33,18 @@ public class RedissonProperties {
      */
     private int nettyThreads;
 
+    /**
+     * 序列化方式 默认 json
+     * <p>
+     * binary 为 fory 二进制序列化 体积更小速度更快 所有节点需保持一致 切换前需清空 redis 数据
+     */
+    private CodecType codec = CodecType.JSON;
+
+    /**
+     * 二进制序列化额外允许反序列化的类(默认已包含 cc.infoq.* 等) 支持通配符 例如 com.example.*
+     */
+    private List<String> codecAllowList;
+
     /**
      * 单机服务配置
      */
@@ -0,0 +1,19 @@
+package cc.infoq.common.redis.enums;
+
+/**
+ * redis 序列化方式
+ *
+ * @author Lion Li
+ */
+public enum CodecType {
+
+    /**
+     * 带类型信息的 json (默认 可读性好 兼容性强)
+     */
+    JSON,
+
+    /**
+     * fory 二进制 (体积小 编解码快 仅允许白名单内的类)
+     */
+    BINARY
+}
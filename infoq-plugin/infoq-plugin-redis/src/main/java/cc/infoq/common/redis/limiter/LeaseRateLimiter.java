@@ -0,0 +1,166 @@
+package cc.infoq.common.redis.limiter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 混合限流的本地令牌 优先扣减本地预取的令牌 用完再从 redis 批量预取
+ * <p>
+ * 单次预取不超过速率的 {@link #MAX_LEASE_PERCENT}% 避免单个节点预取整个周期的令牌使其他节点被饿死
+ * 本地令牌只保留 预取令牌数按速率折算的时长 到期未用完的令牌作废
+ * 预取数量按使用情况自适应 到期前用完则加倍 到期仍有剩余则减半 低流量节点退化为逐个获取 不会空耗令牌
+ *
+ * @author Lion Li
+ */
+public class LeaseRateLimiter {
+
+    /**
+     * 单次预取令牌数占速率的最大百分比
+     */
+    public static final int MAX_LEASE_PERCENT = 10;
+
+    /**
+     * 远端令牌获取
+     */
+    @FunctionalInterface
+    public interface Acquirer {
+
+        /**
+         * 批量获取令牌 剩余不足时可退化为获取单个令牌
+         *
+         * @param permits 期望获取的令牌数
+         * @return 获取到的令牌数 0 表示失败
+         */
+        long acquire(int permits);
+
+    }
+
+    private final int maxPermits;
+
+    private final long leaseMillis;
+
+    private final LongSupplier clock;
+
+    private int size = 1;
+
+    private long permits;
+
+    private long expireTime;
+
+    /**
+     * 进行中的远端预取(结果为获取到的令牌数)
+     */
+    private CompletableFuture<Long> inFlight;
+
+    /**
+     * @param rate         速率
+     * @param rateInterval 速率间隔(秒)
+     * @param lease        注解配置的预取令牌数
+     * @param clock        时钟(毫秒)
+     */
+    public LeaseRateLimiter(int rate, int rateInterval, int lease, LongSupplier clock) {
+        this.maxPermits = Math.max(Math.min(lease, rate * MAX_LEASE_PERCENT / 100), 1);
+        this.leaseMillis = Math.max(TimeUnit.SECONDS.toMillis(rateInterval) * maxPermits / Math.max(rate, 1), 1);
+        this.clock = clock;
+    }
+
+    /**
+     * 获取一个令牌
+     * <p>
+     * 只在扣减本地令牌与更新状态时加锁 远端预取在锁外执行
+     * 同一时刻只有一个线程预取 其余线程等待该次预取完成后重新从本地扣减 预取失败说明令牌已耗尽 直接失败
+     *
+     * @param acquirer 远端令牌获取
+     * @return 本地剩余令牌 -1 表示失败
+     */
+    public long tryAcquire(Acquirer acquirer) {
+        while (true) {
+            CompletableFuture<Long> pending;
+            long now;
+            int request = 0;
+            synchronized (this) {
+                now = clock.getAsLong();
+                if (permits > 0 && now < expireTime) {
+                    return --permits;
+                }
+                pending = inFlight;
+                if (pending == null) {
+                    if (expireTime > 0) {
+                        if (permits > 0) {
+                            size = Math.max(size / 2, 1);
+                        } else if (now < expireTime) {
+                            size = Math.min(size * 2, maxPermits);
+                        }
+                    }
+                    request = size;
+                    inFlight = new CompletableFuture<>();
+                }
+            }
+            if (pending != null) {
+                if (await(pending) <= 0) {
+                    return -1;
+                }
+                continue;
+            }
+            return lease(acquirer, request, now);
+        }
+    }
+
+    /**
+     * 执行远端预取 完成后更新本地令牌并通知等待的线程
+     */
+    private long lease(Acquirer acquirer, int request, long now) {
+        long acquired;
+        CompletableFuture<Long> pending;
+        try {
+            acquired = acquirer.acquire(request);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pending = inFlight;
+                inFlight = null;
+                permits = 0;
+                expireTime = 0;
+            }
+            pending.completeExceptionally(e);
+            throw e;
+        }
+        long remain;
+        synchronized (this) {
+            pending = inFlight;
+            inFlight = null;
+            if (acquired <= 0) {
+                permits = 0;
+                expireTime = 0;
+                remain = -1;
+            } else {
+                // 当前请求消耗一个 其余留在本地
+                permits = acquired - 1;
+                expireTime = now + leaseMillis;
+                remain = permits;
+            }
+        }
+        pending.complete(acquired);
+        return remain;
+    }
+
+    private static long await(CompletableFuture<Long> pending) {
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException ex) {
+                throw ex;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 单次最多预取的令牌数
+     */
+    public int getMaxPermits() {
+        return maxPermits;
+    }
+
+}
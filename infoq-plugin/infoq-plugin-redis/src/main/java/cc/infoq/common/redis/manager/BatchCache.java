@@ -0,0 +1,48 @@
+package cc.infoq.common.redis.manager;
+
+import org.springframework.cache.Cache;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 支持批量读写的缓存
+ *
+ * @author Lion Li
+ */
+public interface BatchCache {
+
+    /**
+     * 批量获取已缓存的值(一次网络往返)
+     *
+     * @param keys 缓存key集合
+     * @return 命中的 key 与值包装(值为 null 表示缓存了空值) 未命中的 key 不包含在结果中
+     */
+    <K> Map<K, Cache.ValueWrapper> getAllPresent(Collection<K> keys);
+
+    /**
+     * 批量写入缓存(一次网络往返)
+     *
+     * @param values key与值 值为 null 时按是否允许缓存空值处理
+     */
+    void putAll(Map<?, ?> values);
+
+    /**
+     * 批量回填读穿透加载的值(一次网络往返)
+     * <p>
+     * 回填不是数据变更 与 {@link #putAll} 的区别在于多级缓存只在本地写入一级缓存 不广播失效
+     *
+     * @param values key与值 值为 null 时按是否允许缓存空值处理
+     */
+    default void fillAll(Map<?, ?> values) {
+        putAll(values);
+    }
+
+    /**
+     * 批量删除缓存(一次网络往返)
+     *
+     * @param keys 缓存key集合
+     */
+    void evictAll(Collection<?> keys);
+
+}
@@ -0,0 +1,287 @@
+package cc.infoq.common.redis.manager;
+
+import cc.infoq.common.constant.GlobalConstants;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 一级缓存(Caffeine)跨节点失效总线
+ * <p>
+ * 任意节点 put/evict/clear 后通过 redisson topic 广播失效消息 其他节点收到后删除本地一级缓存
+ * <p>
+ * 每个缓存组拥有独立的 Caffeine 实例 创建时注册到总线 失效与清空只影响对应缓存组
+ * <p>
+ * 每个条目采用逻辑时钟(Lamport)版本: 本地加载开始时记录版本 收到失效消息时推进时钟并记录失效版本
+ * 若加载期间出现了更新的失效版本 则本次加载结果只返回不落入一级缓存 避免并发加载把旧值写回
+ * <p>
+ * 由其他缓存组数据计算得出的派生缓存可声明依赖 上游缓存组失效时在各节点同步清空
+ *
+ * @author Lion Li
+ */
+@Slf4j
+public class CacheInvalidateBus {
+
+    /**
+     * 失效广播通道
+     */
+    public static final String INVALIDATE_TOPIC = GlobalConstants.GLOBAL_REDIS_KEY + "cache_invalidate";
+
+    /**
+     * 各缓存组的一级缓存实例
+     */
+    private final Map<String, Cache<Object, Object>> localCaches = new ConcurrentHashMap<>();
+
+    private final RTopic topic;
+
+    private final String nodeId;
+
+    /**
+     * 本节点逻辑时钟
+     */
+    private final AtomicLong clock = new AtomicLong();
+
+    /**
+     * 条目失效版本(只需覆盖加载窗口 短时间过期即可)
+     */
+    private final Cache<String, Long> keyVersions = Caffeine.newBuilder()
+        .expireAfterWrite(1, TimeUnit.MINUTES)
+        .maximumSize(10000)
+        .build();
+
+    /**
+     * 缓存组清空版本
+     */
+    private final Map<String, Long> clearVersions = new ConcurrentHashMap<>();
+
+    /**
+     * 派生缓存组 => 上游缓存组匹配规则
+     */
+    private final Map<String, Predicate<String>> dependencies = new ConcurrentHashMap<>();
+
+    public CacheInvalidateBus(RedissonClient client) {
+        this.nodeId = client.getId();
+        this.topic = client.getTopic(INVALIDATE_TOPIC);
+        this.topic.addListener(CacheInvalidateMessage.class, (channel, msg) -> onMessage(msg));
+        log.info("初始化一级缓存失效总线 nodeId => {}", nodeId);
+    }
+
+    /**
+     * 注册缓存组的一级缓存实例
+     *
+     * @param cacheName 缓存组名称
+     * @param caffeine  一级缓存实例
+     */
+    public void register(String cacheName, Cache<Object, Object> caffeine) {
+        localCaches.put(cacheName, caffeine);
+    }
+
+    /**
+     * 声明派生缓存组依赖的上游缓存组 上游任一条目失效或清空时 派生缓存组随之清空
+     * <p>
+     * 各节点收到上游失效消息后各自清空 无需额外广播 依赖可以传递但不可成环
+     *
+     * @param cacheName 派生缓存组名称
+     * @param upstream  上游缓存组名称匹配规则(缓存组名称可能带有租户前缀)
+     */
+    public void addDependency(String cacheName, Predicate<String> upstream) {
+        dependencies.put(cacheName, upstream);
+    }
+
+    /**
+     * 获取各缓存组的一级缓存统计
+     */
+    public Map<String, CacheStats> stats() {
+        Map<String, CacheStats> stats = new HashMap<>(localCaches.size());
+        localCaches.forEach((name, caffeine) -> stats.put(name, caffeine.stats()));
+        return stats;
+    }
+
+    /**
+     * 读取一级缓存 未命中则通过 loader 加载
+     *
+     * @param caffeine  一级缓存实例
+     * @param cacheName 缓存组名称
+     * @param uniqueKey 缓存唯一key
+     * @param loader    二级缓存加载器
+     */
+    public Object get(Cache<Object, Object> caffeine, String cacheName, String uniqueKey, Supplier<Object> loader) {
+        long[] stamp = new long[1];
+        Object o = caffeine.get(uniqueKey, k -> {
+            stamp[0] = tick();
+            return loader.get();
+        });
+        // 加载期间收到了失效消息 加载结果可能为旧值 不保留在一级缓存中
+        if (stamp[0] > 0 && isStale(uniqueKey, cacheName, stamp[0])) {
+            caffeine.invalidate(uniqueKey);
+        }
+        return o;
+    }
+
+    /**
+     * 失效本地及所有节点的缓存条目
+     */
+    public void invalidate(String cacheName, String uniqueKey) {
+        long version = tick();
+        keyVersions.put(uniqueKey, version);
+        invalidateLocal(cacheName, uniqueKey);
+        cascade(cacheName, version);
+        publish(new CacheInvalidateMessage(cacheName, uniqueKey, version, nodeId));
+    }
+
+    /**
+     * 批量失效本地及所有节点的缓存条目(合并为一条消息)
+     */
+    public void invalidate(String cacheName, Collection<String> uniqueKeys) {
+        if (uniqueKeys.isEmpty()) {
+            return;
+        }
+        long version = tick();
+        List<String> keys = new ArrayList<>(uniqueKeys);
+        for (String uniqueKey : keys) {
+            keyVersions.put(uniqueKey, version);
+            invalidateLocal(cacheName, uniqueKey);
+        }
+        cascade(cacheName, version);
+        publish(new CacheInvalidateMessage(cacheName, keys, version, nodeId));
+    }
+
+    /**
+     * 记录加载开始时的版本 配合 {@link #putIfFresh} 使用
+     */
+    public long stamp() {
+        return tick();
+    }
+
+    /**
+     * 加载期间未收到失效消息时 写入一级缓存
+     */
+    public void putIfFresh(Cache<Object, Object> caffeine, String cacheName, String uniqueKey, Object value, long stamp) {
+        if (!isStale(uniqueKey, cacheName, stamp)) {
+            caffeine.put(uniqueKey, value);
+        }
+    }
+
+    /**
+     * 清空本地及所有节点的缓存组
+     */
+    public void invalidateAll(String cacheName) {
+        long version = tick();
+        clearVersions.put(cacheName, version);
+        clearLocal(cacheName);
+        cascade(cacheName, version);
+        publish(new CacheInvalidateMessage(cacheName, (String) null, version, nodeId));
+    }
+
+    /**
+     * 批量清空本地及所有节点的缓存组(合并为一条消息)
+     */
+    public void invalidateAll(Collection<String> cacheNames) {
+        if (cacheNames.isEmpty()) {
+            return;
+        }
+        long version = tick();
+        List<String> names = new ArrayList<>(cacheNames);
+        for (String cacheName : names) {
+            clearVersions.put(cacheName, version);
+            clearLocal(cacheName);
+            cascade(cacheName, version);
+        }
+        publish(new CacheInvalidateMessage(names, version, nodeId));
+    }
+
+    private void onMessage(CacheInvalidateMessage msg) {
+        if (nodeId.equals(msg.getNodeId())) {
+            return;
+        }
+        // 推进本地逻辑时钟 保证收到消息之后开始的加载版本一定更大
+        long version = clock.updateAndGet(v -> Math.max(v, msg.getVersion()) + 1);
+        if (msg.getCacheNames() != null) {
+            for (String cacheName : msg.getCacheNames()) {
+                clearVersions.put(cacheName, version);
+                clearLocal(cacheName);
+                cascade(cacheName, version);
+            }
+            return;
+        }
+        if (msg.getKeys() != null) {
+            for (String key : msg.getKeys()) {
+                keyVersions.put(key, version);
+                invalidateLocal(msg.getCacheName(), key);
+            }
+        } else if (msg.getKey() == null) {
+            clearVersions.put(msg.getCacheName(), version);
+            clearLocal(msg.getCacheName());
+        } else {
+            keyVersions.put(msg.getKey(), version);
+            invalidateLocal(msg.getCacheName(), msg.getKey());
+        }
+        cascade(msg.getCacheName(), version);
+    }
+
+    /**
+     * 清空依赖上游缓存组的派生缓存组(逐级传递) 并记录清空版本 防止并发加载写回旧值
+     */
+    private void cascade(String upstream, long version) {
+        if (dependencies.isEmpty()) {
+            return;
+        }
+        dependencies.forEach((cacheName, predicate) -> {
+            if (!cacheName.equals(upstream) && predicate.test(upstream)) {
+                clearVersions.put(cacheName, version);
+                clearLocal(cacheName);
+                cascade(cacheName, version);
+            }
+        });
+    }
+
+    private void invalidateLocal(String cacheName, String uniqueKey) {
+        Cache<Object, Object> caffeine = localCaches.get(cacheName);
+        if (caffeine != null) {
+            caffeine.invalidate(uniqueKey);
+        }
+    }
+
+    private void clearLocal(String cacheName) {
+        Cache<Object, Object> caffeine = localCaches.get(cacheName);
+        if (caffeine != null) {
+            caffeine.invalidateAll();
+        }
+    }
+
+    private boolean isStale(String uniqueKey, String cacheName, long stamp) {
+        Long keyVersion = keyVersions.getIfPresent(uniqueKey);
+        if (keyVersion != null && keyVersion > stamp) {
+            return true;
+        }
+        Long clearVersion = clearVersions.get(cacheName);
+        return clearVersion != null && clearVersion > stamp;
+    }
+
+    private long tick() {
+        return clock.incrementAndGet();
+    }
+
+    private void publish(CacheInvalidateMessage msg) {
+        topic.publishAsync(msg).whenComplete((r, e) -> {
+            if (e != null) {
+                log.error("一级缓存失效消息发送失败 cacheName => {}, key => {}", msg.getCacheName(), msg.getKey(), e);
+            }
+        });
+    }
+
+}
@@ -0,0 +1,72 @@
+package cc.infoq.common.redis.manager;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 一级缓存失效广播消息
+ *
+ * @author Lion Li
+ */
+@Data
+@NoArgsConstructor
+public class CacheInvalidateMessage implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 缓存组名称
+     */
+    private String cacheName;
+
+    /**
+     * 缓存唯一key(cacheName:key) key 与 keys 均为空表示清空整个缓存组
+     */
+    private String key;
+
+    /**
+     * 批量失效的缓存唯一key
+     */
+    private List<String> keys;
+
+    /**
+     * 批量清空的缓存组名称(不为空时忽略 cacheName)
+     */
+    private List<String> cacheNames;
+
+    /**
+     * 发送节点的逻辑时钟版本
+     */
+    private long version;
+
+    /**
+     * 发送节点id
+     */
+    private String nodeId;
+
+    public CacheInvalidateMessage(String cacheName, String key, long version, String nodeId) {
+        this.cacheName = cacheName;
+        this.key = key;
+        this.version = version;
+        this.nodeId = nodeId;
+    }
+
+    public CacheInvalidateMessage(String cacheName, List<String> keys, long version, String nodeId) {
+        this.cacheName = cacheName;
+        this.keys = keys;
+        this.version = version;
+        this.nodeId = nodeId;
+    }
+
+    public CacheInvalidateMessage(List<String> cacheNames, long version, String nodeId) {
+        this.cacheNames = cacheNames;
+        this.version = version;
+        this.nodeId = nodeId;
+    }
+
+}
@@ -0,0 +1,69 @@
+package cc.infoq.common.redis.manager;
+
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
+import java.util.Optional;
+
+/**
+ * 缓存方法调用信息(目标 bean 方法 + 参数)
+ * <p>
+ * 由 {@link cc.infoq.common.redis.aspectj.CacheInvocationAspect} 在调用 @Cacheable(sync = true) 方法时绑定到当前线程
+ * 异步刷新时直接以反射调用目标对象的方法重新加载 不再复用 spring 缓存拦截器传入的加载器
+ * (加载器内部持有的方法调用链只能在原线程执行一次 在其他线程重复执行会跳过其余拦截器)
+ *
+ * @param target 目标对象(非代理)
+ * @param method 目标方法
+ * @param args   调用参数
+ * @author Lion Li
+ */
+public record CacheInvocation(Object target, Method method, Object[] args) {
+
+    private static final ThreadLocal<CacheInvocation> CURRENT = new ThreadLocal<>();
+
+    /**
+     * 获取当前线程正在执行的缓存方法调用
+     *
+     * @return 调用信息 非注解方式访问缓存时返回 null
+     */
+    public static CacheInvocation current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 绑定当前线程的调用信息
+     *
+     * @param invocation 调用信息
+     * @return 之前绑定的调用信息(嵌套调用时) 执行完成后需通过 {@link #restore} 恢复
+     */
+    public static CacheInvocation bind(CacheInvocation invocation) {
+        CacheInvocation previous = CURRENT.get();
+        CURRENT.set(invocation);
+        return previous;
+    }
+
+    /**
+     * 恢复之前绑定的调用信息
+     *
+     * @param previous 之前绑定的调用信息
+     */
+    public static void restore(CacheInvocation previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * 重新调用目标方法 返回值与 spring 缓存写入的值一致(Optional 解包)
+     *
+     * @return 方法返回值
+     */
+    public Object invoke() {
+        ReflectionUtils.makeAccessible(method);
+        Object value = ReflectionUtils.invokeMethod(method, target, args);
+        return value instanceof Optional<?> optional ? optional.orElse(null) : value;
+    }
+
+}
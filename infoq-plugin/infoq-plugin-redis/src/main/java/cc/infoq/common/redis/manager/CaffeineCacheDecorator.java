@@ -1,26 +1,67 @@
 package cc.infoq.common.redis.manager;
 
 import cc.infoq.common.utils.SpringUtils;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
 
+import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Cache 装饰器模式(用于扩展 Caffeine 一级缓存)
+ * <p>
+ * 每个缓存组独立一个 Caffeine 实例 容量/过期时间由 {@link LocalCacheConfig} 配置
+ * <p>
+ * 写操作通过 {@link CacheInvalidateBus} 广播 保证所有节点的一级缓存同步失效
  *
  * @author LionLi
  */
-public class CaffeineCacheDecorator implements Cache {
+public class CaffeineCacheDecorator implements Cache, BatchCache {
 
-    private static final com.github.benmanes.caffeine.cache.Cache<Object, Object>
-        CAFFEINE = SpringUtils.getBean("caffeine");
+    private static final CacheInvalidateBus BUS = SpringUtils.getBean(CacheInvalidateBus.class);
 
     private final String name;
     private final Cache cache;
+    private final com.github.benmanes.caffeine.cache.Cache<Object, Object> caffeine;
 
     public CaffeineCacheDecorator(String name, Cache cache) {
+        this(name, cache, new LocalCacheConfig());
+    }
+
+    public CaffeineCacheDecorator(String name, Cache cache, LocalCacheConfig config) {
         this.name = name;
         this.cache = cache;
+        this.caffeine = buildCaffeine(config);
+    }
+
+    /**
+     * 将一级缓存注册到失效总线
+     * <p>
+     * 须在缓存实例确定生效(放入缓存管理器)之后调用 并发创建时落选的实例不能注册 否则会覆盖生效实例的注册而收不到失效通知
+     */
+    public void register() {
+        BUS.register(name, caffeine);
+    }
+
+    private static com.github.benmanes.caffeine.cache.Cache<Object, Object> buildCaffeine(LocalCacheConfig config) {
+        long ttl = config.getTtl() > 0 ? config.getTtl() : LocalCacheConfig.DEFAULT_TTL;
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+            // 设置最后一次写入后经过固定时间过期
+            .expireAfterWrite(ttl, TimeUnit.MILLISECONDS)
+            // 初始的缓存空间大小
+            .initialCapacity(16)
+            .recordStats();
+        if (config.getMaxWeight() > 0) {
+            // 按权重限制容量 大集合占用更多配额
+            builder.maximumWeight(config.getMaxWeight()).weigher(LocalCacheWeigher.INSTANCE);
+        } else {
+            // 缓存的最大条数
+            builder.maximumSize(config.getMaxSize() > 0 ? config.getMaxSize() : LocalCacheConfig.DEFAULT_MAX_SIZE);
+        }
+        return builder.build();
     }
 
     @Override
@@ -37,29 +78,51 @@ public class CaffeineCacheDecorator implements Cache {
         return name + ":" + key;
     }
 
+    /**
+     * 一级缓存统计信息
+     */
+    public CacheStats getLocalStats() {
+        return caffeine.stats();
+    }
+
     @Override
     public ValueWrapper get(Object key) {
-        Object o = CAFFEINE.get(getUniqueKey(key), k -> cache.get(key));
+        Object o = BUS.get(caffeine, name, getUniqueKey(key), () -> cache.get(key));
         return (ValueWrapper) o;
     }
 
     @SuppressWarnings("unchecked")
     @Override
     public <T> T get(Object key, Class<T> type) {
-        Object o = CAFFEINE.get(getUniqueKey(key), k -> cache.get(key, type));
-        return (T) o;
+        // 一级缓存统一存放 ValueWrapper 不同读取方式共用同一条目
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
     }
 
     @Override
     public void put(Object key, Object value) {
-        CAFFEINE.invalidate(getUniqueKey(key));
         cache.put(key, value);
+        BUS.invalidate(name, getUniqueKey(key));
     }
 
     @Override
     public ValueWrapper putIfAbsent(Object key, Object value) {
-        CAFFEINE.invalidate(getUniqueKey(key));
-        return cache.putIfAbsent(key, value);
+        ValueWrapper wrapper = cache.putIfAbsent(key, value);
+        BUS.invalidate(name, getUniqueKey(key));
+        return wrapper;
+    }
+
+    /**
+     * 二级缓存已由其他途径(如异步刷新)更新 广播失效各节点的一级缓存条目
+     *
+     * @param key 缓存 key
+     */
+    public void invalidateLocal(Object key) {
+        BUS.invalidate(name, getUniqueKey(key));
     }
 
     @Override
@@ -70,28 +133,110 @@ public class CaffeineCacheDecorator implements Cache {
     @Override
     public boolean evictIfPresent(Object key) {
         boolean b = cache.evictIfPresent(key);
-        if (b) {
-            CAFFEINE.invalidate(getUniqueKey(key));
-        }
+        // 其他节点的一级缓存可能比二级缓存存活更久 无论是否命中都需要广播
+        BUS.invalidate(name, getUniqueKey(key));
         return b;
     }
 
     @Override
     public void clear() {
-        CAFFEINE.invalidateAll();
         cache.clear();
+        BUS.invalidateAll(name);
     }
 
     @Override
     public boolean invalidate() {
-        return cache.invalidate();
+        boolean b = cache.invalidate();
+        BUS.invalidateAll(name);
+        return b;
     }
 
     @SuppressWarnings("unchecked")
     @Override
     public <T> T get(Object key, Callable<T> valueLoader) {
-        Object o = CAFFEINE.get(getUniqueKey(key), k -> cache.get(key, valueLoader));
-        return (T) o;
+        // caffeine 同 key 加载互斥 本节点并发请求只会有一个穿透到二级缓存
+        Object o = BUS.get(caffeine, name, getUniqueKey(key), () -> new SimpleValueWrapper(cache.get(key, valueLoader)));
+        return (T) ((ValueWrapper) o).get();
+    }
+
+    /**
+     * 批量获取 先查一级缓存 未命中部分一次性从二级缓存获取并回填一级缓存
+     */
+    @Override
+    public <K> Map<K, ValueWrapper> getAllPresent(Collection<K> keys) {
+        Map<K, ValueWrapper> result = new HashMap<>(keys.size());
+        List<K> misses = new ArrayList<>();
+        for (K key : keys) {
+            if (caffeine.getIfPresent(getUniqueKey(key)) instanceof ValueWrapper wrapper) {
+                result.put(key, wrapper);
+            } else {
+                misses.add(key);
+            }
+        }
+        if (misses.isEmpty()) {
+            return result;
+        }
+        long stamp = BUS.stamp();
+        Map<K, ValueWrapper> remote;
+        if (cache instanceof BatchCache batchCache) {
+            remote = batchCache.getAllPresent(misses);
+        } else {
+            remote = new HashMap<>(misses.size());
+            for (K key : misses) {
+                ValueWrapper wrapper = cache.get(key);
+                if (wrapper != null) {
+                    remote.put(key, wrapper);
+                }
+            }
+        }
+        remote.forEach((key, wrapper) -> BUS.putIfFresh(caffeine, name, getUniqueKey(key), wrapper, stamp));
+        result.putAll(remote);
+        return result;
+    }
+
+    @Override
+    public void putAll(Map<?, ?> values) {
+        if (cache instanceof BatchCache batchCache) {
+            batchCache.putAll(values);
+        } else {
+            values.forEach(cache::put);
+        }
+        List<String> uniqueKeys = new ArrayList<>(values.size());
+        values.keySet().forEach(key -> uniqueKeys.add(getUniqueKey(key)));
+        BUS.invalidate(name, uniqueKeys);
+    }
+
+    /**
+     * 批量回填 写入二级缓存后直接回填本节点一级缓存
+     * <p>
+     * 与单 key 读穿透一致 不广播失效 其他节点的一级缓存不受影响 回填期间收到失效消息的 key 不写入一级缓存
+     */
+    @Override
+    public void fillAll(Map<?, ?> values) {
+        long stamp = BUS.stamp();
+        if (cache instanceof BatchCache batchCache) {
+            batchCache.fillAll(values);
+        } else {
+            values.forEach(cache::put);
+        }
+        values.forEach((key, value) -> {
+            // 空值是否缓存由二级缓存决定 一级缓存不回填 读取时由二级缓存返回
+            if (value != null) {
+                BUS.putIfFresh(caffeine, name, getUniqueKey(key), new SimpleValueWrapper(value), stamp);
+            }
+        });
+    }
+
+    @Override
+    public void evictAll(Collection<?> keys) {
+        if (cache instanceof BatchCache batchCache) {
+            batchCache.evictAll(keys);
+        } else {
+            keys.forEach(cache::evict);
+        }
+        List<String> uniqueKeys = new ArrayList<>(keys.size());
+        keys.forEach(key -> uniqueKeys.add(getUniqueKey(key)));
+        BUS.invalidate(name, uniqueKeys);
     }
 
 }
@@ -0,0 +1,42 @@
+package cc.infoq.common.redis.manager;
+
+import lombok.Data;
+
+/**
+ * 一级缓存(Caffeine)配置
+ * <p>
+ * 每个缓存组独立一份 对应 cacheNames#ttl#maxIdleTime#maxSize#local#localMaxSize#localTtl#localMaxWeight 的后三段
+ *
+ * @author Lion Li
+ */
+@Data
+public class LocalCacheConfig {
+
+    /**
+     * 默认最大条数
+     */
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    /**
+     * 默认过期时间 30秒
+     */
+    public static final long DEFAULT_TTL = 30000;
+
+    /**
+     * 最大条数 小于等于0则使用默认值
+     */
+    private int maxSize = DEFAULT_MAX_SIZE;
+
+    /**
+     * 写入后过期时间(毫秒) 小于等于0则使用默认值
+     */
+    private long ttl = DEFAULT_TTL;
+
+    /**
+     * 最大权重 大于0时按权重限制容量(忽略 maxSize)
+     *
+     * @see LocalCacheWeigher
+     */
+    private long maxWeight;
+
+}
@@ -0,0 +1,41 @@
+package cc.infoq.common.redis.manager;
+
+import com.github.benmanes.caffeine.cache.Weigher;
+import org.springframework.cache.Cache;
+
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 一级缓存权重计算
+ * <p>
+ * 集合按元素数量计算 字符串按每64个字符计1 其他对象计1
+ *
+ * @author Lion Li
+ */
+public class LocalCacheWeigher implements Weigher<Object, Object> {
+
+    public static final LocalCacheWeigher INSTANCE = new LocalCacheWeigher();
+
+    @Override
+    public int weigh(Object key, Object value) {
+        if (value instanceof Cache.ValueWrapper wrapper) {
+            value = wrapper.get();
+        }
+        if (value instanceof Collection<?> collection) {
+            return collection.size() + 1;
+        }
+        if (value instanceof Map<?, ?> map) {
+            return map.size() + 1;
+        }
+        if (value instanceof CharSequence str) {
+            return str.length() / 64 + 1;
+        }
+        if (value != null && value.getClass().isArray()) {
+            return Array.getLength(value) + 1;
+        }
+        return 1;
+    }
+
+}
@@ -0,0 +1,293 @@
+package cc.infoq.common.redis.manager;
+
+import cc.infoq.common.redis.utils.RedisUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBatch;
+import org.redisson.api.RFuture;
+import org.redisson.api.RLock;
+import org.redisson.api.RMap;
+import org.redisson.api.RMapCache;
+import org.redisson.api.RMapCacheAsync;
+import org.redisson.spring.cache.CacheConfig;
+import org.redisson.spring.cache.NullValue;
+import org.redisson.spring.cache.RedissonCache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.core.task.TaskDecorator;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * 扩展 RedissonCache 支持批量读写
+ * <p>
+ * 带加载器读取(@Cacheable(sync = true))时 同一 key 本节点只有一个线程加载 其余线程等待结果
+ * 跨节点通过短租期的 redisson 锁保证只有一个节点回源 等锁超时则直接回源 避免长时间阻塞
+ * <p>
+ * 配置了提前刷新窗口时 值与剩余存活时间一次往返读取 命中的条目剩余存活时间小于窗口则继续返回旧值
+ * 并以反射直接调用目标方法异步刷新(见 {@link CacheInvocation})
+ *
+ * @author Lion Li
+ */
+@Slf4j
+public class PlusRedissonCache extends RedissonCache implements BatchCache {
+
+    /**
+     * 等待其他节点加载的最长时间(毫秒)
+     */
+    private static final long LOCK_WAIT = 3000;
+
+    /**
+     * 加载锁租期(毫秒) 节点宕机时锁自动释放
+     */
+    private static final long LOCK_LEASE = 10000;
+
+    private final RMap<Object, Object> map;
+
+    private final RMapCache<Object, Object> mapCache;
+
+    private final CacheConfig config;
+
+    private final boolean allowNullValues;
+
+    /**
+     * 本节点正在加载的 key
+     */
+    private final ConcurrentMap<Object, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+
+    /**
+     * 本节点正在异步刷新的 key
+     */
+    private final Set<Object> refreshing = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 提前刷新窗口(毫秒) 0为不刷新
+     */
+    private final long refreshAhead;
+
+    private final Executor executor;
+
+    private final TaskDecorator taskDecorator;
+
+    /**
+     * 异步刷新写入后的回调(参数为缓存 key) 用于失效各节点的一级缓存
+     */
+    private Consumer<Object> refreshListener;
+
+    public PlusRedissonCache(RMapCache<Object, Object> mapCache, CacheConfig config, boolean allowNullValues) {
+        this(mapCache, config, allowNullValues, 0, null, null);
+    }
+
+    /**
+     * @param refreshAhead  提前刷新窗口(毫秒)
+     * @param executor      异步刷新线程池
+     * @param taskDecorator 异步刷新任务装饰(传递租户等上下文) 可为空
+     */
+    public PlusRedissonCache(RMapCache<Object, Object> mapCache, CacheConfig config, boolean allowNullValues,
+                             long refreshAhead, Executor executor, TaskDecorator taskDecorator) {
+        super(mapCache, config, allowNullValues);
+        this.map = mapCache;
+        this.mapCache = mapCache;
+        this.config = config;
+        this.allowNullValues = allowNullValues;
+        this.refreshAhead = executor != null ? refreshAhead : 0;
+        this.executor = executor;
+        this.taskDecorator = taskDecorator;
+    }
+
+    public PlusRedissonCache(RMap<Object, Object> map, boolean allowNullValues) {
+        super(map, allowNullValues);
+        this.map = map;
+        this.mapCache = null;
+        this.config = null;
+        this.allowNullValues = allowNullValues;
+        this.refreshAhead = 0;
+        this.executor = null;
+        this.taskDecorator = null;
+    }
+
+    /**
+     * 设置异步刷新写入后的回调
+     *
+     * @param refreshListener 回调(参数为缓存 key)
+     */
+    public void setRefreshListener(Consumer<Object> refreshListener) {
+        this.refreshListener = refreshListener;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Object value = refreshAhead > 0 ? getAndRefresh(key) : map.get(key);
+        if (value == null) {
+            value = load(key, valueLoader);
+        }
+        return value instanceof NullValue ? null : (T) value;
+    }
+
+    /**
+     * 值与剩余存活时间在同一批次内读取(一次往返) 剩余存活时间进入刷新窗口时异步刷新
+     */
+    private Object getAndRefresh(Object key) {
+        RBatch batch = RedisUtils.getClient().createBatch();
+        RMapCacheAsync<Object, Object> async = batch.getMapCache(mapCache.getName());
+        RFuture<Object> value = async.getAsync(key);
+        RFuture<Long> ttl = async.remainTimeToLiveAsync(key);
+        batch.execute();
+        Object o = value.toCompletableFuture().join();
+        if (o != null) {
+            refreshIfNeeded(key, ttl.toCompletableFuture().join());
+        }
+        return o;
+    }
+
+    /**
+     * 单飞加载 返回存储值(空值为 NullValue)
+     */
+    private Object load(Object key, Callable<?> valueLoader) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = loading.putIfAbsent(key, future);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof ValueRetrievalException ex ? ex : new ValueRetrievalException(key, valueLoader, e.getCause());
+            }
+        }
+        try {
+            Object value = loadLocked(key, valueLoader);
+            future.complete(value);
+            return value;
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+            throw e instanceof ValueRetrievalException ex ? ex : new ValueRetrievalException(key, valueLoader, e);
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    private Object loadLocked(Object key, Callable<?> valueLoader) {
+        RLock lock = map.getLock(key);
+        boolean locked = false;
+        try {
+            locked = lock.tryLock(LOCK_WAIT, LOCK_LEASE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            // 等锁期间其他节点可能已经加载完成
+            Object value = map.get(key);
+            if (value != null) {
+                return value;
+            }
+            Object loaded;
+            try {
+                loaded = valueLoader.call();
+            } catch (Exception e) {
+                throw new ValueRetrievalException(key, valueLoader, e);
+            }
+            put(key, loaded);
+            return loaded == null ? NullValue.INSTANCE : loaded;
+        } finally {
+            if (locked && lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 剩余存活时间进入刷新窗口时 异步重新加载(其他节点正在刷新则跳过)
+     * <p>
+     * 以 {@link CacheInvocation} 记录的目标方法与参数重新调用 非注解方式访问缓存时没有调用信息 不刷新
+     */
+    private void refreshIfNeeded(Object key, long remain) {
+        if (remain < 0 || remain > refreshAhead) {
+            return;
+        }
+        CacheInvocation invocation = CacheInvocation.current();
+        if (invocation == null || !refreshing.add(key)) {
+            return;
+        }
+        Runnable task = () -> {
+            RLock lock = map.getLock(key);
+            boolean locked = false;
+            try {
+                locked = lock.tryLock(0, LOCK_LEASE, TimeUnit.MILLISECONDS);
+                // 获取锁后再次检查 避免重复刷新其他节点刚刷新过的条目
+                if (locked && mapCache.remainTimeToLive(key) <= refreshAhead) {
+                    put(key, invocation.invoke());
+                    if (refreshListener != null) {
+                        refreshListener.accept(key);
+                    }
+                }
+            } catch (Exception e) {
+                log.warn("缓存异步刷新失败 cacheName => {} key => {}", getName(), key, e);
+            } finally {
+                if (locked && lock.isHeldByCurrentThread()) {
+                    lock.unlock();
+                }
+                refreshing.remove(key);
+            }
+        };
+        try {
+            executor.execute(taskDecorator != null ? taskDecorator.decorate(task) : task);
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(key);
+        }
+    }
+
+    @Override
+    public <K> Map<K, ValueWrapper> getAllPresent(Collection<K> keys) {
+        if (keys.isEmpty()) {
+            return new HashMap<>(0);
+        }
+        // map key 使用 StringCodec 编码 返回的 key 均为字符串 需按字符串映射回原始 key
+        Map<String, K> keyIndex = new HashMap<>(keys.size());
+        for (K key : keys) {
+            keyIndex.put(String.valueOf(key), key);
+        }
+        Map<Object, Object> values = map.getAll(new HashSet<>(keys));
+        Map<K, ValueWrapper> result = new HashMap<>(values.size());
+        values.forEach((k, v) -> {
+            K key = keyIndex.get(String.valueOf(k));
+            if (key != null && v != null) {
+                result.put(key, new SimpleValueWrapper(v instanceof NullValue ? null : v));
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void putAll(Map<?, ?> values) {
+        Map<Object, Object> storeValues = new HashMap<>(values.size());
+        values.forEach((k, v) -> {
+            if (v != null) {
+                storeValues.put(k, v);
+            } else if (allowNullValues) {
+                storeValues.put(k, NullValue.INSTANCE);
+            }
+        });
+        if (storeValues.isEmpty()) {
+            return;
+        }
+        if (mapCache == null) {
+            map.putAll(storeValues);
+            return;
+        }
+        // 带过期策略的条目需逐个设置 ttl/maxIdleTime 使用批处理合并为一次往返
+        RBatch batch = RedisUtils.getClient().createBatch();
+        RMapCacheAsync<Object, Object> async = batch.getMapCache(mapCache.getName());
+        storeValues.forEach((k, v) -> async.fastPutAsync(k, v,
+            config.getTTL(), TimeUnit.MILLISECONDS, config.getMaxIdleTime(), TimeUnit.MILLISECONDS));
+        batch.execute();
+    }
+
+    @Override
+    public void evictAll(Collection<?> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        map.fastRemove(keys.toArray());
+    }
+
+}
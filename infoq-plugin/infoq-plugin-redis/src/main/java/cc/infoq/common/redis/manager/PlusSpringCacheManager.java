@@ -16,14 +16,16 @@
 package cc.infoq.common.redis.manager;
 
 import cc.infoq.common.redis.utils.RedisUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.redisson.api.RMap;
 import org.redisson.api.RMapCache;
 import org.redisson.spring.cache.CacheConfig;
-import org.redisson.spring.cache.RedissonCache;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.boot.convert.DurationStyle;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.core.task.TaskDecorator;
 import org.springframework.util.StringUtils;
 
 import java.util.Collection;
@@ -31,6 +33,9 @@ import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A {@link org.springframework.cache.CacheManager} implementation
@@ -43,7 +48,17 @@ import java.util.concurrent.ConcurrentMap;
  *
  */
 @SuppressWarnings("unchecked")
-public class PlusSpringCacheManager implements CacheManager {
+public class PlusSpringCacheManager implements CacheManager, DisposableBean {
+
+    /**
+     * 异步刷新线程数
+     */
+    private static final int REFRESH_THREADS = 2;
+
+    /**
+     * 异步刷新排队上限 超出时本次不刷新 由下次命中或过期后同步加载
+     */
+    private static final int REFRESH_QUEUE_SIZE = 1000;
 
     private boolean dynamic = true;
 
@@ -51,6 +66,13 @@ public class PlusSpringCacheManager implements CacheManager {
 
     private boolean transactionAware = true;
 
+    private TaskDecorator taskDecorator;
+
+    /**
+     * 缓存异步刷新专用线程池(首次创建带刷新窗口的缓存组时初始化)
+     */
+    private volatile ThreadPoolExecutor refreshExecutor;
+
     Map<String, CacheConfig> configMap = new ConcurrentHashMap<>();
     ConcurrentMap<String, Cache> instanceMap = new ConcurrentHashMap<>();
 
@@ -84,6 +106,25 @@ public class PlusSpringCacheManager implements CacheManager {
         this.transactionAware = transactionAware;
     }
 
+    /**
+     * 设置缓存异步刷新任务装饰器 用于向刷新线程传递调用方上下文
+     *
+     * @param taskDecorator 任务装饰器
+     */
+    public void setTaskDecorator(TaskDecorator taskDecorator) {
+        this.taskDecorator = taskDecorator;
+    }
+
+    /**
+     * 追加缓存异步刷新任务装饰器 与已有装饰器组合(均在发起刷新的线程上调用)
+     *
+     * @param decorator 任务装饰器
+     */
+    public void addTaskDecorator(TaskDecorator decorator) {
+        TaskDecorator current = this.taskDecorator;
+        this.taskDecorator = current == null ? decorator : runnable -> decorator.decorate(current.decorate(runnable));
+    }
+
     /**
      * Defines 'fixed' cache names.
      * A new cache instance will not be created in dynamic for non-defined names.
@@ -116,6 +157,16 @@ public class PlusSpringCacheManager implements CacheManager {
         return new CacheConfig();
     }
 
+    /**
+     * 创建缓存组前调整配置 供子类按缓存组追加限制
+     *
+     * @param name        缓存组名称(不含参数)
+     * @param config      二级缓存配置
+     * @param localConfig 一级缓存配置
+     */
+    protected void customizeConfig(String name, CacheConfig config, LocalCacheConfig localConfig) {
+    }
+
     @Override
     public Cache getCache(String name) {
         // 重写 cacheName 支持多参数
@@ -149,20 +200,36 @@ public class PlusSpringCacheManager implements CacheManager {
         if (array.length > 4) {
             local = Integer.parseInt(array[4]);
         }
+        LocalCacheConfig localConfig = new LocalCacheConfig();
+        if (array.length > 5) {
+            localConfig.setMaxSize(Integer.parseInt(array[5]));
+        }
+        if (array.length > 6) {
+            localConfig.setTtl(DurationStyle.detectAndParse(array[6]).toMillis());
+        }
+        if (array.length > 7) {
+            localConfig.setMaxWeight(Long.parseLong(array[7]));
+        }
+        long refresh = 0;
+        if (array.length > 8) {
+            refresh = DurationStyle.detectAndParse(array[8]).toMillis();
+        }
+        customizeConfig(name, config, localConfig);
 
         if (config.getMaxIdleTime() == 0 && config.getTTL() == 0 && config.getMaxSize() == 0) {
-            return createMap(name, config, local);
+            return createMap(name, config, local, localConfig);
         }
 
-        return createMapCache(name, config, local);
+        return createMapCache(name, config, local, localConfig, refresh);
     }
 
-    private Cache createMap(String name, CacheConfig config, int local) {
+    private Cache createMap(String name, CacheConfig config, int local, LocalCacheConfig localConfig) {
         RMap<Object, Object> map = RedisUtils.getClient().getMap(name);
 
-        Cache cache = new RedissonCache(map, allowNullValues);
+        Cache cache = new PlusRedissonCache(map, allowNullValues);
+        CaffeineCacheDecorator localCache = null;
         if (local == 1) {
-            cache = new CaffeineCacheDecorator(name, cache);
+            cache = localCache = new CaffeineCacheDecorator(name, cache, localConfig);
         }
         if (transactionAware) {
             cache = new TransactionAwareCacheDecorator(cache);
@@ -170,16 +237,30 @@ public class PlusSpringCacheManager implements CacheManager {
         Cache oldCache = instanceMap.putIfAbsent(name, cache);
         if (oldCache != null) {
             cache = oldCache;
+        } else if (localCache != null) {
+            // 仅注册实际生效的一级缓存
+            localCache.register();
         }
         return cache;
     }
 
-    private Cache createMapCache(String name, CacheConfig config, int local) {
+    private Cache createMapCache(String name, CacheConfig config, int local, LocalCacheConfig localConfig, long refresh) {
         RMapCache<Object, Object> map = RedisUtils.getClient().getMapCache(name);
 
-        Cache cache = new RedissonCache(map, config, allowNullValues);
+        Cache cache;
+        PlusRedissonCache redissonCache;
+        if (refresh > 0 && config.getTTL() > 0) {
+            // 提前刷新仅对设置了过期时间的缓存生效
+            redissonCache = new PlusRedissonCache(map, config, allowNullValues, refresh, getRefreshExecutor(), taskDecorator);
+        } else {
+            redissonCache = new PlusRedissonCache(map, config, allowNullValues);
+        }
+        cache = redissonCache;
+        CaffeineCacheDecorator localCache = null;
         if (local == 1) {
-            cache = new CaffeineCacheDecorator(name, cache);
+            cache = localCache = new CaffeineCacheDecorator(name, cache, localConfig);
+            // 异步刷新直接写入二级缓存 需广播失效各节点的一级缓存
+            redissonCache.setRefreshListener(localCache::invalidateLocal);
         }
         if (transactionAware) {
             cache = new TransactionAwareCacheDecorator(cache);
@@ -189,6 +270,9 @@ public class PlusSpringCacheManager implements CacheManager {
             cache = oldCache;
         } else {
             map.setMaxSize(config.getMaxSize());
+            if (localCache != null) {
+                localCache.register();
+            }
         }
         return cache;
     }
@@ -198,5 +282,31 @@ public class PlusSpringCacheManager implements CacheManager {
         return Collections.unmodifiableSet(configMap.keySet());
     }
 
+    private ThreadPoolExecutor getRefreshExecutor() {
+        ThreadPoolExecutor executor = refreshExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = refreshExecutor;
+                if (executor == null) {
+                    BasicThreadFactory factory = new BasicThreadFactory.Builder()
+                        .namingPattern("cache-refresh-%d").daemon(true).build();
+                    // 队列满时抛出 RejectedExecutionException 由缓存放弃本次刷新
+                    executor = new ThreadPoolExecutor(REFRESH_THREADS, REFRESH_THREADS, 0L, TimeUnit.MILLISECONDS,
+                        new LinkedBlockingQueue<>(REFRESH_QUEUE_SIZE), factory);
+                    refreshExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    @Override
+    public void destroy() {
+        ThreadPoolExecutor executor = refreshExecutor;
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
 
 }
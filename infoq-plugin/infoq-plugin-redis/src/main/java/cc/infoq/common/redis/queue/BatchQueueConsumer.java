@@ -0,0 +1,286 @@
+package cc.infoq.common.redis.queue;
+
+import cc.infoq.common.utils.SpringUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.redisson.api.RBlockingQueue;
+import org.redisson.api.RedissonClient;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 批量队列消费者
+ * <p>
+ * 单个拉取线程一次最多拉取 batchSize 条 交给 concurrency 个工作线程并行处理(开启虚拟线程时使用虚拟线程)
+ * 处理中的消息达到 concurrency 时暂停拉取 形成背压
+ * 处理方法正常返回即确认 抛出异常按间隔重试 重试耗尽后写入死信队列
+ * <p>
+ * 消息拉取后即从 redis 移除 节点宕机时处理中的消息会丢失(与 subscribeOnElements 一致)
+ * 停止时已拉取但尚未提交处理的消息会放回队列尾部 并等待已提交的消息处理完成(最长 shutdownTimeout)
+ *
+ * @author Lion Li
+ */
+@Slf4j
+public class BatchQueueConsumer<T> {
+
+    /**
+     * 死信队列后缀
+     */
+    public static final String DEAD_LETTER_SUFFIX = ":dead_letter";
+
+    private final RedissonClient client;
+
+    private final RBlockingQueue<T> queue;
+
+    private final QueueConsumerOptions options;
+
+    private final Consumer<T> handler;
+
+    private final Semaphore permits;
+
+    private final Executor executor;
+
+    private final AtomicLong processed = new AtomicLong();
+
+    private final AtomicLong retried = new AtomicLong();
+
+    private final AtomicLong deadLettered = new AtomicLong();
+
+    private volatile boolean running;
+
+    private Thread pollThread;
+
+    public BatchQueueConsumer(RedissonClient client, RBlockingQueue<T> queue, QueueConsumerOptions options, Consumer<T> handler) {
+        this.client = client;
+        this.queue = queue;
+        this.options = options;
+        this.handler = handler;
+        this.permits = new Semaphore(Math.max(options.getConcurrency(), 1));
+        if (SpringUtils.isVirtual()) {
+            this.executor = new VirtualThreadTaskExecutor("queue-" + queue.getName() + "-");
+        } else {
+            BasicThreadFactory factory = new BasicThreadFactory.Builder()
+                .namingPattern("queue-" + queue.getName() + "-%d").daemon(true).build();
+            this.executor = Executors.newFixedThreadPool(Math.max(options.getConcurrency(), 1), factory);
+        }
+        if (options.isDelayed()) {
+            // 订阅延迟队列 启动到期数据转移
+            client.getDelayedQueue(queue);
+        }
+    }
+
+    /**
+     * 启动消费
+     */
+    public synchronized BatchQueueConsumer<T> start() {
+        if (running) {
+            return this;
+        }
+        running = true;
+        pollThread = new Thread(this::pollLoop, "queue-poll-" + queue.getName());
+        pollThread.setDaemon(true);
+        pollThread.start();
+        return this;
+    }
+
+    /**
+     * 停止消费 已拉取未提交的消息放回队列 并等待已提交的消息处理完成
+     * <p>
+     * 处理位在消息处理完成后归还 全部归还即表示处理完毕 虚拟线程执行器没有 shutdown 同样适用
+     *
+     * @return 是否在 shutdownTimeout 内全部处理完成
+     */
+    public boolean stop() {
+        Thread thread;
+        synchronized (this) {
+            running = false;
+            thread = pollThread;
+            pollThread = null;
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(options.getShutdownTimeout());
+        int concurrency = Math.max(options.getConcurrency(), 1);
+        try {
+            if (thread != null) {
+                // 拉取线程退出后不会再提交新的消息
+                TimeUnit.NANOSECONDS.timedJoin(thread, Math.max(deadline - System.nanoTime(), 1));
+            }
+            if (!permits.tryAcquire(concurrency, Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS)) {
+                log.warn("队列停止超时 仍有消息在处理中 queue => {} inFlight => {}", queue.getName(), getInFlight());
+                return false;
+            }
+            permits.release(concurrency);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            if (executor instanceof ExecutorService service) {
+                service.shutdown();
+            }
+        }
+    }
+
+    /**
+     * 队列积压数(未被拉取的消息数 需访问 redis)
+     */
+    public int getLag() {
+        return queue.size();
+    }
+
+    /**
+     * 处理中的消息数
+     */
+    public int getInFlight() {
+        return Math.max(options.getConcurrency(), 1) - permits.availablePermits();
+    }
+
+    /**
+     * 处理成功数
+     */
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    /**
+     * 重试次数
+     */
+    public long getRetried() {
+        return retried.get();
+    }
+
+    /**
+     * 写入死信队列数
+     */
+    public long getDeadLettered() {
+        return deadLettered.get();
+    }
+
+    private void pollLoop() {
+        while (running) {
+            int slots = 0;
+            try {
+                // 至少有一个空闲处理位才拉取 有多少空闲位拉取多少
+                permits.acquire();
+                slots = 1 + permits.drainPermits();
+                List<T> batch = drain(Math.min(slots, Math.max(options.getBatchSize(), 1)));
+                permits.release(slots - batch.size());
+                slots = 0;
+                for (int i = 0; i < batch.size(); i++) {
+                    if (!running) {
+                        // 拉取期间已停止 未提交的消息放回队列 由其他节点或重启后继续消费
+                        requeue(batch.subList(i, batch.size()));
+                        return;
+                    }
+                    T message = batch.get(i);
+                    try {
+                        executor.execute(() -> process(message));
+                    } catch (RejectedExecutionException e) {
+                        requeue(batch.subList(i, batch.size()));
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                if (slots > 0) {
+                    permits.release(slots);
+                }
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                if (slots > 0) {
+                    permits.release(slots);
+                }
+                if (running) {
+                    log.error("队列拉取异常 queue => {}", queue.getName(), e);
+                    sleep(options.getRetryInterval());
+                }
+            }
+        }
+    }
+
+    /**
+     * 非阻塞批量拉取 队列为空时阻塞等待一条
+     * <p>
+     * 阻塞拉取到一条后若补充拉取失败(例如停止时被中断) 已取出的一条照常返回 不会丢失
+     */
+    private List<T> drain(int limit) throws InterruptedException {
+        List<T> batch = new ArrayList<>(queue.poll(limit));
+        if (batch.isEmpty()) {
+            T first = queue.poll(options.getPollTimeout(), TimeUnit.SECONDS);
+            if (first != null) {
+                batch.add(first);
+                if (limit > 1) {
+                    try {
+                        batch.addAll(queue.poll(limit - 1));
+                    } catch (Exception e) {
+                        log.warn("队列补充拉取中断 queue => {}", queue.getName(), e);
+                    }
+                }
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * 将未处理的消息放回队列并归还对应的处理位
+     */
+    private void requeue(List<T> messages) {
+        permits.release(messages.size());
+        try {
+            queue.addAll(messages);
+        } catch (Exception e) {
+            log.error("队列消息放回失败 queue => {} messages => {}", queue.getName(), messages, e);
+        }
+    }
+
+    private void process(T message) {
+        try {
+            for (int attempt = 0; ; attempt++) {
+                try {
+                    handler.accept(message);
+                    processed.incrementAndGet();
+                    return;
+                } catch (Exception e) {
+                    if (attempt >= options.getMaxRetries()) {
+                        log.error("队列消息处理失败 queue => {} message => {}", queue.getName(), message, e);
+                        deadLetter(message);
+                        return;
+                    }
+                    retried.incrementAndGet();
+                    sleep(options.getRetryInterval() * (attempt + 1));
+                }
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void deadLetter(T message) {
+        if (!options.isDeadLetter()) {
+            return;
+        }
+        try {
+            RBlockingQueue<T> dlq = client.getBlockingQueue(queue.getName() + DEAD_LETTER_SUFFIX);
+            dlq.offer(message);
+            deadLettered.incrementAndGet();
+        } catch (Exception e) {
+            log.error("写入死信队列失败 queue => {} message => {}", queue.getName(), message, e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
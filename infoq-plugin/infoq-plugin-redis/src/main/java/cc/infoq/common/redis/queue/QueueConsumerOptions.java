@@ -0,0 +1,53 @@
+package cc.infoq.common.redis.queue;
+
+import lombok.Data;
+
+/**
+ * 批量队列消费配置
+ *
+ * @author Lion Li
+ */
+@Data
+public class QueueConsumerOptions {
+
+    /**
+     * 每次从 redis 拉取的最大条数
+     */
+    private int batchSize = 100;
+
+    /**
+     * 并发处理数(同时处理中的消息上限 达到上限后暂停拉取)
+     */
+    private int concurrency = 8;
+
+    /**
+     * 处理失败最大重试次数 超过后进入死信队列
+     */
+    private int maxRetries = 3;
+
+    /**
+     * 重试间隔(毫秒) 按重试次数递增
+     */
+    private long retryInterval = 1000;
+
+    /**
+     * 队列为空时阻塞等待时间(秒)
+     */
+    private int pollTimeout = 5;
+
+    /**
+     * 是否为延迟队列
+     */
+    private boolean delayed;
+
+    /**
+     * 重试耗尽后是否写入死信队列 队列名为 {@code queueName + ":dead_letter"}
+     */
+    private boolean deadLetter = true;
+
+    /**
+     * 停止时等待处理中消息完成的最长时间(毫秒)
+     */
+    private long shutdownTimeout = 30000;
+
+}
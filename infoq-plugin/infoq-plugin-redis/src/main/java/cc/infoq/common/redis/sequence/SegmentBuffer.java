@@ -0,0 +1,183 @@
+package cc.infoq.common.redis.sequence;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 号段双缓冲 当前号段发放过半时异步预取下一段
+ * <p>
+ * 号段最长使用 {@link #MAX_SEGMENT_AGE} 超过后丢弃剩余序号重新获取 每次获取都会续期计数器
+ * 且计数器有效期不小于 {@link #MIN_COUNTER_TTL} 保证号段使用期间计数器不会过期后从 0 重新计数而发出重复序号
+ *
+ * @author Lion Li
+ */
+@Slf4j
+public class SegmentBuffer {
+
+    /**
+     * 号段最小长度
+     */
+    public static final int MIN_SEGMENT_SIZE = 10;
+
+    /**
+     * 号段最大长度
+     */
+    public static final int MAX_SEGMENT_SIZE = 10000;
+
+    /**
+     * 号段期望使用时长 小于该时长用完则下次号段加倍 超过两倍则减半
+     */
+    public static final long SEGMENT_DURATION = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * 号段最长使用时长(自获取时起 含预取未使用的号段)
+     */
+    public static final long MAX_SEGMENT_AGE = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * 计数器最小有效期 远大于号段最长使用时长
+     */
+    public static final Duration MIN_COUNTER_TTL = Duration.ofMillis(MAX_SEGMENT_AGE * 3);
+
+    /**
+     * 号段分配器
+     */
+    @FunctionalInterface
+    public interface Allocator {
+
+        /**
+         * 计数器增加 size 并续期(需为一次原子往返)
+         *
+         * @param key  计数器key
+         * @param size 号段长度
+         * @param ttl  计数器有效期
+         * @return 增加后的计数器值(即号段的最后一个序号)
+         */
+        long allocate(String key, int size, Duration ttl);
+
+    }
+
+    private final String key;
+
+    private final Duration ttl;
+
+    private final Allocator allocator;
+
+    private final Executor executor;
+
+    private final LongSupplier clock;
+
+    private Segment current;
+
+    private CompletableFuture<Segment> next;
+
+    private int size = MIN_SEGMENT_SIZE;
+
+    private long lastAllocateTime;
+
+    /**
+     * @param key        计数器key
+     * @param expireTime 业务期望的过期时间(小于 {@link #MIN_COUNTER_TTL} 时按其计算)
+     * @param allocator  号段分配器
+     * @param executor   预取线程池
+     * @param clock      时钟(毫秒)
+     */
+    public SegmentBuffer(String key, Duration expireTime, Allocator allocator, Executor executor, LongSupplier clock) {
+        this.key = key;
+        this.ttl = expireTime == null || expireTime.compareTo(MIN_COUNTER_TTL) < 0 ? MIN_COUNTER_TTL : expireTime;
+        this.allocator = allocator;
+        this.executor = executor;
+        this.clock = clock;
+    }
+
+    /**
+     * 获取下一个序号(从 1 开始)
+     */
+    public synchronized long next() {
+        long now = clock.getAsLong();
+        if (current == null || current.cursor > current.end || isExpired(current, now)) {
+            current = takeNext(now);
+        }
+        long id = current.cursor++;
+        if (next == null && current.end - current.cursor < current.size / 2) {
+            // 号段大小在锁内计算 预取线程只负责访问 redis
+            int allocateSize = adjustSize(now);
+            next = CompletableFuture.supplyAsync(() -> allocate(allocateSize), executor);
+        }
+        return id;
+    }
+
+    private Segment takeNext(long now) {
+        CompletableFuture<Segment> future = next;
+        next = null;
+        if (future != null) {
+            try {
+                Segment segment = future.join();
+                if (!isExpired(segment, now)) {
+                    return segment;
+                }
+            } catch (Exception e) {
+                log.warn("号段预取失败 重新获取 key => {}", key, e);
+            }
+        }
+        return allocate(adjustSize(now));
+    }
+
+    /**
+     * 一次往返完成号段预留与续期
+     */
+    private Segment allocate(int allocateSize) {
+        // 以请求前的时间作为号段起点 保守计算号段年龄
+        long allocateTime = clock.getAsLong();
+        long end = allocator.allocate(key, allocateSize, ttl);
+        return new Segment(end, allocateSize, allocateTime);
+    }
+
+    private static boolean isExpired(Segment segment, long now) {
+        return now - segment.allocateTime >= MAX_SEGMENT_AGE;
+    }
+
+    /**
+     * 根据上一号段的使用时长调整号段大小
+     */
+    private int adjustSize(long now) {
+        if (lastAllocateTime > 0) {
+            long duration = now - lastAllocateTime;
+            if (duration < SEGMENT_DURATION) {
+                size = Math.min(size * 2, MAX_SEGMENT_SIZE);
+            } else if (duration > SEGMENT_DURATION * 2) {
+                size = Math.max(size / 2, MIN_SEGMENT_SIZE);
+            }
+        }
+        lastAllocateTime = now;
+        return size;
+    }
+
+    /**
+     * 号段 [cursor, end] 为本地可发放的序号
+     */
+    private static class Segment {
+
+        private long cursor;
+
+        private final long end;
+
+        private final int size;
+
+        private final long allocateTime;
+
+        Segment(long end, int size, long allocateTime) {
+            this.cursor = end - size + 1;
+            this.end = end;
+            this.size = size;
+            this.allocateTime = allocateTime;
+        }
+
+    }
+
+}
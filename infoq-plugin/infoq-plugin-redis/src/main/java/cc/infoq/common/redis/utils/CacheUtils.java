@@ -1,10 +1,17 @@
 package cc.infoq.common.redis.utils;
 
+import cc.infoq.common.redis.manager.BatchCache;
 import cc.infoq.common.utils.SpringUtils;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.function.Function;
 
 /**
  * 缓存操作工具类
@@ -39,6 +46,115 @@ public class CacheUtils {
         CACHE_MANAGER.getCache(cacheNames).put(key, value);
     }
 
+    /**
+     * 批量获取缓存值
+     * <p>
+     * 先查一级缓存 未命中部分一次性从 redis 获取 仍未命中的 key 交给 bulkLoader 一次性加载并回写缓存
+     *
+     * @param cacheNames 缓存组名称
+     * @param keys       缓存key集合
+     * @param bulkLoader 批量加载器 入参为未命中的key 返回 key 与值(不存在的 key 不返回即可) 为 null 则不加载
+     * @return key 与值(按入参顺序 不含空值)
+     */
+    public static <K, V> Map<K, V> getAll(String cacheNames, Collection<K> keys, Function<Collection<K>, Map<K, V>> bulkLoader) {
+        Map<K, V> result = new LinkedHashMap<>(keys.size());
+        if (keys.isEmpty()) {
+            return result;
+        }
+        Collection<K> distinctKeys = new LinkedHashSet<>(keys);
+        Cache cache = getTargetCache(cacheNames);
+        Map<K, Cache.ValueWrapper> present;
+        if (cache instanceof BatchCache batchCache) {
+            present = batchCache.getAllPresent(distinctKeys);
+        } else {
+            present = new HashMap<>(distinctKeys.size());
+            for (K key : distinctKeys) {
+                Cache.ValueWrapper wrapper = cache.get(key);
+                if (wrapper != null) {
+                    present.put(key, wrapper);
+                }
+            }
+        }
+        List<K> misses = new ArrayList<>();
+        for (K key : distinctKeys) {
+            if (!present.containsKey(key)) {
+                misses.add(key);
+            }
+        }
+        Map<K, V> loaded = null;
+        if (!misses.isEmpty() && bulkLoader != null) {
+            loaded = bulkLoader.apply(misses);
+            Map<K, Object> store = new HashMap<>(misses.size());
+            for (K key : misses) {
+                // 不存在的 key 同样回写(空值) 防止缓存穿透
+                store.put(key, loaded == null ? null : loaded.get(key));
+            }
+            // 读穿透回填 不广播一级缓存失效
+            afterCommit(() -> {
+                if (cache instanceof BatchCache batchCache) {
+                    batchCache.fillAll(store);
+                } else {
+                    store.forEach(cache::put);
+                }
+            });
+        }
+        for (K key : distinctKeys) {
+            Cache.ValueWrapper wrapper = present.get(key);
+            Object value = wrapper != null ? wrapper.get() : (loaded == null ? null : loaded.get(key));
+            if (value != null) {
+                result.put(key, (V) value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 批量保存缓存值(存在事务时在事务提交后执行)
+     *
+     * @param cacheNames 缓存组名称
+     * @param values     key与值
+     */
+    public static void putAll(String cacheNames, Map<?, ?> values) {
+        if (values.isEmpty()) {
+            return;
+        }
+        Cache cache = getTargetCache(cacheNames);
+        afterCommit(() -> {
+            if (cache instanceof BatchCache batchCache) {
+                batchCache.putAll(values);
+            } else {
+                values.forEach(cache::put);
+            }
+        });
+    }
+
+    /**
+     * 存在事务时在事务提交后执行 否则立即执行
+     */
+    private static void afterCommit(Runnable runnable) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    runnable.run();
+                }
+            });
+        } else {
+            runnable.run();
+        }
+    }
+
+    /**
+     * 获取去除事务装饰后的缓存
+     */
+    private static Cache getTargetCache(String cacheNames) {
+        Cache cache = CACHE_MANAGER.getCache(cacheNames);
+        if (cache instanceof TransactionAwareCacheDecorator decorator) {
+            return decorator.getTargetCache();
+        }
+        return cache;
+    }
+
     /**
      * 删除缓存值
      *
@@ -49,6 +165,28 @@ public class CacheUtils {
         CACHE_MANAGER.getCache(cacheNames).evict(key);
     }
 
+    /**
+     * 批量删除缓存值(存在事务时在事务提交后执行)
+     *
+     * @param cacheNames 缓存组名称
+     * @param keys       缓存key集合
+     */
+    public static void evictAll(String cacheNames, Collection<?> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        Cache cache = getTargetCache(cacheNames);
+        afterCommit(() -> doEvictAll(cache, keys));
+    }
+
+    private static void doEvictAll(Cache cache, Collection<?> keys) {
+        if (cache instanceof BatchCache batchCache) {
+            batchCache.evictAll(keys);
+        } else {
+            keys.forEach(cache::evict);
+        }
+    }
+
     /**
      * 清空缓存值
      *
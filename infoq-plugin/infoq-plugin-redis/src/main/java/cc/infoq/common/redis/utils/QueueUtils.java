@@ -1,5 +1,7 @@
 package cc.infoq.common.redis.utils;
 
+import cc.infoq.common.redis.queue.BatchQueueConsumer;
+import cc.infoq.common.redis.queue.QueueConsumerOptions;
 import cc.infoq.common.utils.SpringUtils;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
@@ -7,6 +9,7 @@ import org.redisson.api.*;
 
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 /**
@@ -236,4 +239,41 @@ public class QueueUtils {
         queue.subscribeOnElements(consumer);
     }
 
+    /**
+     * 批量订阅阻塞队列(普通 延迟 由 options.delayed 决定)
+     * <p>
+     * 每次往返最多拉取 batchSize 条 并发处理 失败重试 重试耗尽写入死信队列
+     *
+     * @param queueName 队列名
+     * @param options   消费配置
+     * @param handler   处理方法 正常返回即确认 抛出异常则重试
+     * @return 消费者(可获取积压等指标 或停止消费)
+     */
+    public static <T> BatchQueueConsumer<T> subscribeBatchQueue(String queueName, QueueConsumerOptions options, Consumer<T> handler) {
+        RBlockingQueue<T> queue = CLIENT.getBlockingQueue(queueName);
+        return subscribeBatchQueue(queue, options, handler);
+    }
+
+    /**
+     * 批量订阅阻塞队列(可订阅所有实现类 例如: 优先 有界 等)
+     *
+     * @param queue   队列
+     * @param options 消费配置
+     * @param handler 处理方法 正常返回即确认 抛出异常则重试
+     * @return 消费者(可获取积压等指标 或停止消费)
+     */
+    public static <T> BatchQueueConsumer<T> subscribeBatchQueue(RBlockingQueue<T> queue, QueueConsumerOptions options, Consumer<T> handler) {
+        return new BatchQueueConsumer<>(CLIENT, queue, options, handler).start();
+    }
+
+    /**
+     * 获取死信队列数据 没有数据返回 null
+     *
+     * @param queueName 原队列名
+     */
+    public static <T> T getDeadLetterQueueObject(String queueName) {
+        RBlockingQueue<T> queue = CLIENT.getBlockingQueue(queueName + BatchQueueConsumer.DEAD_LETTER_SUFFIX);
+        return queue.poll();
+    }
+
 }
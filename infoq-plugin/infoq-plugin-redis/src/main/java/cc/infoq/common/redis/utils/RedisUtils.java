@@ -5,13 +5,16 @@ import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import org.redisson.api.*;
 import org.redisson.api.options.KeysScanOptions;
+import org.redisson.client.codec.StringCodec;
 
 import java.time.Duration;
-import java.util.Collection;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -27,6 +30,11 @@ public class RedisUtils {
 
     private static final RedissonClient CLIENT = SpringUtils.getBean(RedissonClient.class);
 
+    /**
+     * 批量操作默认分块大小(每块一次网络往返)
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+
     /**
      * 限流
      *
@@ -60,6 +68,38 @@ public class RedisUtils {
         }
     }
 
+    /**
+     * 设置限流速率(已存在则不修改)
+     * <p>
+     * 批量预取令牌前按 key 设置一次即可 无需每次获取令牌时设置
+     *
+     * @param key          限流key
+     * @param rateType     限流类型
+     * @param rate         速率
+     * @param rateInterval 速率间隔
+     * @param timeout      超时时间
+     */
+    public static void rateLimiterInit(String key, RateType rateType, int rate, int rateInterval, int timeout) {
+        CLIENT.getRateLimiter(key).trySetRate(rateType, rate, Duration.ofSeconds(rateInterval), Duration.ofSeconds(timeout));
+    }
+
+    /**
+     * 限流(批量预取令牌 需先通过 {@link #rateLimiterInit} 设置速率)
+     * <p>
+     * 一次往返获取 permits 个令牌 剩余不足时再请求一次 退化为获取单个令牌
+     *
+     * @param key     限流key
+     * @param permits 预取令牌数
+     * @return 获取到的令牌数 0 表示失败
+     */
+    public static long rateLimiterLease(String key, int permits) {
+        RRateLimiter rateLimiter = CLIENT.getRateLimiter(key);
+        if (permits > 1 && rateLimiter.tryAcquire(permits)) {
+            return permits;
+        }
+        return rateLimiter.tryAcquire() ? 1 : 0;
+    }
+
     /**
      * 获取客户端实例
      */
@@ -175,6 +215,29 @@ public class RedisUtils {
         return bucket.setIfExists(value, duration);
     }
 
+    /**
+     * 如果存在则更新 并保留剩余存活时间(单条 lua 原子执行 兼容 redis 5.X)
+     *
+     * @param key   缓存的键值
+     * @param value 缓存的值
+     * @return 是否更新(key 不存在返回 false)
+     */
+    public static <T> boolean updateCacheObject(final String key, final T value) {
+        String lua = """
+            local ttl = redis.call('pttl', KEYS[1])
+            if ttl == -2 then
+                return 0
+            end
+            if ttl > 0 then
+                redis.call('set', KEYS[1], ARGV[1], 'PX', ttl)
+            else
+                redis.call('set', KEYS[1], ARGV[1])
+            end
+            return 1
+            """;
+        return CLIENT.getScript().eval(RScript.Mode.READ_WRITE, lua, RScript.ReturnType.BOOLEAN, List.of(key), value);
+    }
+
     /**
      * 注册对象监听器
      * <p>
@@ -211,6 +274,34 @@ public class RedisUtils {
         return rBucket.expire(duration);
     }
 
+    /**
+     * 在批处理中只延长不缩短有效时间 剩余存活时间小于 duration 时才设置(单条 lua 原子执行 兼容 redis 5.X 不依赖 EXPIRE NX/GT)
+     *
+     * @param batch    批处理
+     * @param key      Redis键
+     * @param duration 超时时间
+     * @param ifNotSet 未设置过期时间(永不过期)的 key 是否设置 true 对应 NX+GT 语义 false 对应 GT 语义
+     * @return 是否设置(key 不存在返回 false)
+     */
+    public static RFuture<Boolean> expireIfGreaterAsync(final RBatch batch, final String key, final Duration duration, final boolean ifNotSet) {
+        String lua = """
+            local ttl = redis.call('pttl', KEYS[1])
+            if ttl == -2 then
+                return 0
+            end
+            if ttl == -1 and ARGV[2] ~= '1' then
+                return 0
+            end
+            if ttl >= tonumber(ARGV[1]) then
+                return 0
+            end
+            redis.call('pexpire', KEYS[1], ARGV[1])
+            return 1
+            """;
+        return batch.getScript(StringCodec.INSTANCE).evalAsync(RScript.Mode.READ_WRITE, lua, RScript.ReturnType.BOOLEAN,
+            List.of(key), String.valueOf(duration.toMillis()), ifNotSet ? "1" : "0");
+    }
+
     /**
      * 获得缓存的基本对象。
      *
@@ -248,11 +339,215 @@ public class RedisUtils {
      * @param collection 多个对象
      */
     public static void deleteObject(final Collection collection) {
-        RBatch batch = CLIENT.createBatch();
-        collection.forEach(t -> {
-            batch.getBucket(t.toString()).deleteAsync();
+        List<String> keys = new ArrayList<>(collection.size());
+        collection.forEach(t -> keys.add(t.toString()));
+        deleteObjects(keys, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * 批量获取缓存对象(按分块流水线执行 每块一次网络往返)
+     *
+     * @param keys 缓存键值集合
+     * @return 键值与对象映射(按传入顺序 不包含不存在的键)
+     */
+    public static <T> Map<String, T> getMultiCacheObject(final Collection<String> keys) {
+        return getMultiCacheObject(keys, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * 批量获取缓存对象
+     *
+     * @param keys      缓存键值集合
+     * @param chunkSize 分块大小
+     * @return 键值与对象映射(按传入顺序 不包含不存在的键)
+     */
+    public static <T> Map<String, T> getMultiCacheObject(final Collection<String> keys, final int chunkSize) {
+        return join(getMultiCacheObjectAsync(keys, chunkSize));
+    }
+
+    /**
+     * 异步批量获取缓存对象
+     *
+     * @param keys      缓存键值集合
+     * @param chunkSize 分块大小
+     * @return 键值与对象映射(按传入顺序 不包含不存在的键)
+     */
+    public static <T> CompletionStage<Map<String, T>> getMultiCacheObjectAsync(final Collection<String> keys, final int chunkSize) {
+        return batchAsync(keys, chunkSize, (batch, key) -> batch.<T>getBucket(key).getAsync())
+            .thenApply(result -> {
+                result.values().removeIf(Objects::isNull);
+                return result;
+            });
+    }
+
+    /**
+     * 批量缓存对象
+     *
+     * @param values   键值与对象映射
+     * @param duration 有效时间 为空则不过期
+     */
+    public static <T> void setMultiCacheObject(final Map<String, T> values, final Duration duration) {
+        setMultiCacheObject(values, duration, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * 批量缓存对象
+     *
+     * @param values    键值与对象映射
+     * @param duration  有效时间 为空则不过期
+     * @param chunkSize 分块大小
+     */
+    public static <T> void setMultiCacheObject(final Map<String, T> values, final Duration duration, final int chunkSize) {
+        join(setMultiCacheObjectAsync(values, duration, chunkSize));
+    }
+
+    /**
+     * 异步批量缓存对象
+     *
+     * @param values    键值与对象映射
+     * @param duration  有效时间 为空则不过期
+     * @param chunkSize 分块大小
+     */
+    public static <T> CompletionStage<Void> setMultiCacheObjectAsync(final Map<String, T> values, final Duration duration, final int chunkSize) {
+        return batchAsync(values.keySet(), chunkSize, (batch, key) -> {
+            RBucketAsync<T> bucket = batch.getBucket(key);
+            return duration == null ? bucket.setAsync(values.get(key)) : bucket.setAsync(values.get(key), duration);
+        }).thenApply(result -> null);
+    }
+
+    /**
+     * 批量删除缓存对象
+     *
+     * @param keys      缓存键值集合
+     * @param chunkSize 分块大小
+     * @return 删除的数量
+     */
+    public static long deleteObjects(final Collection<String> keys, final int chunkSize) {
+        return join(deleteObjectsAsync(keys, chunkSize));
+    }
+
+    /**
+     * 异步批量删除缓存对象
+     *
+     * @param keys      缓存键值集合
+     * @param chunkSize 分块大小
+     * @return 删除的数量
+     */
+    public static CompletionStage<Long> deleteObjectsAsync(final Collection<String> keys, final int chunkSize) {
+        return batchAsync(keys, chunkSize, (batch, key) -> batch.getBucket(key).deleteAsync())
+            .thenApply(result -> result.values().stream().filter(Boolean.TRUE::equals).count());
+    }
+
+    /**
+     * 批量设置有效时间
+     *
+     * @param keys     缓存键值集合
+     * @param duration 超时时间
+     * @return 设置成功的数量
+     */
+    public static long expire(final Collection<String> keys, final Duration duration) {
+        return expire(keys, duration, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * 批量设置有效时间
+     *
+     * @param keys      缓存键值集合
+     * @param duration  超时时间
+     * @param chunkSize 分块大小
+     * @return 设置成功的数量
+     */
+    public static long expire(final Collection<String> keys, final Duration duration, final int chunkSize) {
+        return join(expireAsync(keys, duration, chunkSize));
+    }
+
+    /**
+     * 异步批量设置有效时间
+     *
+     * @param keys      缓存键值集合
+     * @param duration  超时时间
+     * @param chunkSize 分块大小
+     * @return 设置成功的数量
+     */
+    public static CompletionStage<Long> expireAsync(final Collection<String> keys, final Duration duration, final int chunkSize) {
+        return batchAsync(keys, chunkSize, (batch, key) -> batch.getBucket(key).expireAsync(duration))
+            .thenApply(result -> result.values().stream().filter(Boolean.TRUE::equals).count());
+    }
+
+    /**
+     * 批量获得key剩余存活时间
+     *
+     * @param keys 缓存键值集合
+     * @return 键值与剩余存活时间(毫秒 -1 不过期 -2 不存在)映射
+     */
+    public static Map<String, Long> getTimeToLive(final Collection<String> keys) {
+        return getTimeToLive(keys, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * 批量获得key剩余存活时间
+     *
+     * @param keys      缓存键值集合
+     * @param chunkSize 分块大小
+     * @return 键值与剩余存活时间(毫秒 -1 不过期 -2 不存在)映射
+     */
+    public static Map<String, Long> getTimeToLive(final Collection<String> keys, final int chunkSize) {
+        return join(getTimeToLiveAsync(keys, chunkSize));
+    }
+
+    /**
+     * 异步批量获得key剩余存活时间
+     *
+     * @param keys      缓存键值集合
+     * @param chunkSize 分块大小
+     * @return 键值与剩余存活时间(毫秒 -1 不过期 -2 不存在)映射
+     */
+    public static CompletionStage<Map<String, Long>> getTimeToLiveAsync(final Collection<String> keys, final int chunkSize) {
+        return batchAsync(keys, chunkSize, (batch, key) -> batch.getBucket(key).remainTimeToLiveAsync());
+    }
+
+    /**
+     * 按分块构建批处理并发执行 每块为一次流水线往返
+     *
+     * @param keys      键值集合
+     * @param chunkSize 分块大小
+     * @param operation 单个键值在批处理中的操作
+     * @return 键值与操作结果映射(按传入顺序)
+     */
+    private static <R> CompletionStage<Map<String, R>> batchAsync(Collection<String> keys, int chunkSize,
+                                                                  BiFunction<RBatch, String, RFuture<R>> operation) {
+        if (keys == null || keys.isEmpty()) {
+            return CompletableFuture.completedFuture(new LinkedHashMap<>());
+        }
+        int size = chunkSize > 0 ? chunkSize : DEFAULT_CHUNK_SIZE;
+        List<String> keyList = new ArrayList<>(keys);
+        List<RFuture<R>> futures = new ArrayList<>(keyList.size());
+        List<CompletableFuture<?>> batches = new ArrayList<>();
+        for (int i = 0; i < keyList.size(); i += size) {
+            RBatch batch = CLIENT.createBatch();
+            for (String key : keyList.subList(i, Math.min(i + size, keyList.size()))) {
+                futures.add(operation.apply(batch, key));
+            }
+            batches.add(batch.executeAsync().toCompletableFuture());
+        }
+        return CompletableFuture.allOf(batches.toArray(new CompletableFuture[0])).thenApply(v -> {
+            Map<String, R> result = new LinkedHashMap<>(keyList.size());
+            for (int i = 0; i < keyList.size(); i++) {
+                result.put(keyList.get(i), futures.get(i).toCompletableFuture().join());
+            }
+            return result;
         });
-        batch.execute();
+    }
+
+    private static <R> R join(CompletionStage<R> stage) {
+        try {
+            return stage.toCompletableFuture().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException ex) {
+                throw ex;
+            }
+            throw e;
+        }
     }
 
     /**
@@ -560,13 +855,95 @@ public class RedisUtils {
         return keysStream.collect(Collectors.toList());
     }
 
+    /**
+     * 游标扫描匹配的 key 并逐个处理(全局匹配忽略租户 自行拼接租户id)
+     * <p>
+     * 基于 SCAN 命令按需拉取 不会一次性加载全部 key 集群模式下会依次遍历所有主节点
+     *
+     * @param pattern 匹配模式
+     * @param count   每次扫描的数量(SCAN COUNT)
+     * @param handler 处理方法 返回 false 时终止扫描
+     * @return 已处理的 key 数量
+     */
+    public static long scanKeys(final String pattern, final int count, final Predicate<String> handler) {
+        long scanned = 0;
+        for (String key : CLIENT.getKeys().getKeys(KeysScanOptions.defaults().pattern(pattern).chunkSize(count))) {
+            scanned++;
+            if (!handler.test(key)) {
+                break;
+            }
+        }
+        return scanned;
+    }
+
+    /**
+     * 游标扫描匹配的 key 并分批处理(全局匹配忽略租户 自行拼接租户id)
+     * <p>
+     * 可配合批量操作方法使用 每批 key 只需一次网络往返
+     *
+     * @param pattern   匹配模式
+     * @param count     每次扫描的数量(SCAN COUNT)
+     * @param batchSize 每批处理的 key 数量
+     * @param handler   处理方法 返回 false 时终止扫描
+     * @return 已处理的 key 数量
+     */
+    public static long scanKeyBatches(final String pattern, final int count, final int batchSize, final Predicate<List<String>> handler) {
+        long scanned = 0;
+        List<String> batch = new ArrayList<>(batchSize);
+        for (String key : CLIENT.getKeys().getKeys(KeysScanOptions.defaults().pattern(pattern).chunkSize(count))) {
+            batch.add(key);
+            if (batch.size() >= batchSize) {
+                scanned += batch.size();
+                if (!handler.test(batch)) {
+                    return scanned;
+                }
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            scanned += batch.size();
+            handler.test(batch);
+        }
+        return scanned;
+    }
+
+    /**
+     * 分页获取匹配的 key(全局匹配忽略租户 自行拼接租户id)
+     * <p>
+     * 取满 limit 条后立即停止扫描 扫描期间 key 有增删时分页结果可能重复或遗漏
+     *
+     * @param pattern 匹配模式
+     * @param offset  跳过的数量
+     * @param limit   获取的数量
+     * @return key列表
+     */
+    public static List<String> keys(final String pattern, final int offset, final int limit) {
+        List<String> list = new ArrayList<>(Math.max(limit, 0));
+        if (limit <= 0) {
+            return list;
+        }
+        long[] index = {0};
+        scanKeys(pattern, 1000, key -> {
+            if (index[0]++ >= offset) {
+                list.add(key);
+            }
+            return list.size() < limit;
+        });
+        return list;
+    }
+
     /**
      * 删除缓存的基本对象列表(全局匹配忽略租户 自行拼接租户id)
+     * <p>
+     * 游标扫描后分批删除 避免一次性加载全部 key
      *
      * @param pattern 字符串前缀
      */
     public static void deleteKeys(final String pattern) {
-        CLIENT.getKeys().deleteByPattern(pattern);
+        scanKeyBatches(pattern, 1000, DEFAULT_CHUNK_SIZE, keys -> {
+            CLIENT.getKeys().delete(keys.toArray(new String[0]));
+            return true;
+        });
     }
 
     /**
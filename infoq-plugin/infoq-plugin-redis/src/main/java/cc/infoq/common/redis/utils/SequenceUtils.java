@@ -1,11 +1,16 @@
 package cc.infoq.common.redis.utils;
 
+import cc.infoq.common.redis.sequence.SegmentBuffer;
 import cc.infoq.common.utils.SpringUtils;
 import cc.infoq.common.utils.StringUtils;
 import cn.hutool.core.convert.Convert;
 import cn.hutool.core.date.DatePattern;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
+import org.redisson.api.RBatch;
+import org.redisson.api.RFuture;
 import org.redisson.api.RIdGenerator;
 import org.redisson.api.RedissonClient;
 
@@ -14,9 +19,15 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.TemporalAccessor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 发号器工具类
+ * <p>
+ * 号段模式(getSegment*)参考 Leaf-segment 每个节点一次从 redis 预留一段ID在本地内存发放
+ * 当前号段消耗过半时异步预取下一段 号段大小根据消耗速度自适应调整(见 {@link SegmentBuffer})
+ * 号段模式只保证唯一 不保证多节点之间递增 节点重启会丢弃未发放的ID
  *
  * @author 秋辞未寒
  * @date 2024-12-10
@@ -49,11 +60,29 @@ public class SequenceUtils {
      */
     public static final int DEFAULT_MIN_ID_CAPACITY_BITS = 6;
 
+    /**
+     * 号段 redis key 前缀(与 RIdGenerator 的数据隔离)
+     */
+    private static final String SEGMENT_KEY_PREFIX = "sequence_segment:";
+
     /**
      * 获取Redisson客户端实例
      */
     private static final RedissonClient REDISSON_CLIENT = SpringUtils.getBean(RedissonClient.class);
 
+    /**
+     * 号段预取线程池
+     */
+    private static final ScheduledExecutorService EXECUTOR = SpringUtils.getBean("scheduledExecutorService", ScheduledExecutorService.class);
+
+    /**
+     * 本地号段缓存(按业务key 时间类key过期后自动清理)
+     */
+    private static final Cache<String, SegmentBuffer> SEGMENTS = Caffeine.newBuilder()
+        .expireAfterAccess(10, TimeUnit.MINUTES)
+        .maximumSize(10000)
+        .build();
+
     /**
      * 获取ID生成器
      *
@@ -146,6 +175,73 @@ public class SequenceUtils {
         return StringUtils.leftPad(getNextIdString(key, expireTime), width, '0');
     }
 
+    /**
+     * 号段模式获取指定业务key的唯一id
+     *
+     * @param key        业务key
+     * @param expireTime 过期时间
+     * @param initValue  ID初始值
+     * @param stepValue  ID步长
+     * @return 唯一id
+     */
+    public static long getNextSegmentId(String key, Duration expireTime, long initValue, long stepValue) {
+        // 初始值和步长不能小于等于0
+        long init = initValue <= 0 ? DEFAULT_INIT_VALUE : initValue;
+        long step = stepValue <= 0 ? DEFAULT_STEP_VALUE : stepValue;
+        SegmentBuffer buffer = SEGMENTS.get(key, k -> new SegmentBuffer(SEGMENT_KEY_PREFIX + k, expireTime,
+            SequenceUtils::allocateSegment, EXECUTOR, System::currentTimeMillis));
+        // 号段内的序号从1开始 换算为 初始值 + (序号 - 1) * 步长
+        return init + (buffer.next() - 1) * step;
+    }
+
+    /**
+     * 一次往返完成号段预留与续期
+     */
+    private static long allocateSegment(String key, int size, Duration ttl) {
+        RBatch batch = REDISSON_CLIENT.createBatch();
+        RFuture<Long> end = batch.getAtomicLong(key).addAndGetAsync(size);
+        batch.getAtomicLong(key).expireAsync(ttl);
+        batch.execute();
+        return end.toCompletableFuture().join();
+    }
+
+    /**
+     * 号段模式获取指定业务key的唯一id (ID初始值=1,ID步长=1)
+     *
+     * @param key        业务key
+     * @param expireTime 过期时间
+     * @return 唯一id
+     */
+    public static long getNextSegmentId(String key, Duration expireTime) {
+        return getNextSegmentId(key, expireTime, DEFAULT_INIT_VALUE, DEFAULT_STEP_VALUE);
+    }
+
+    /**
+     * 号段模式获取 prefix + yyyyMMdd 格式的唯一id
+     *
+     * @param prefix            业务前缀
+     * @param isWithPrefix      id是否携带业务前缀
+     * @param minIdCapacityBits 最小ID容量位数，小于该位数的ID，左补0（小于等于0表示不启用补位）
+     * @return 唯一id
+     */
+    public static String getSegmentDateId(String prefix, boolean isWithPrefix, int minIdCapacityBits) {
+        return getDatePatternId(prefix, isWithPrefix, minIdCapacityBits, LocalDate.now(), DatePattern.PURE_DATE_FORMATTER,
+            DEFAULT_EXPIRE_TIME_DAY, DEFAULT_INIT_VALUE, DEFAULT_STEP_VALUE, true);
+    }
+
+    /**
+     * 号段模式获取 prefix + yyyyMMddHHmmss 格式的唯一id
+     *
+     * @param prefix            业务前缀
+     * @param isWithPrefix      id是否携带业务前缀
+     * @param minIdCapacityBits 最小ID容量位数，小于该位数的ID，左补0（小于等于0表示不启用补位）
+     * @return 唯一id
+     */
+    public static String getSegmentDateTimeId(String prefix, boolean isWithPrefix, int minIdCapacityBits) {
+        return getDatePatternId(prefix, isWithPrefix, minIdCapacityBits, LocalDateTime.now(), DatePattern.PURE_DATETIME_FORMATTER,
+            DEFAULT_EXPIRE_TIME_MINUTE, DEFAULT_INIT_VALUE, DEFAULT_STEP_VALUE, true);
+    }
+
     /**
      * 获取 yyyyMMdd 格式的唯一id
      *
@@ -226,7 +322,7 @@ public class SequenceUtils {
      * @return 唯一id
      */
     public static String getDateId(String prefix, boolean isWithPrefix, int minIdCapacityBits, LocalDate time, long initValue, long stepValue) {
-        return getDatePatternId(prefix, isWithPrefix, minIdCapacityBits, time, DatePattern.PURE_DATE_FORMATTER, DEFAULT_EXPIRE_TIME_DAY, initValue, stepValue);
+        return getDatePatternId(prefix, isWithPrefix, minIdCapacityBits, time, DatePattern.PURE_DATE_FORMATTER, DEFAULT_EXPIRE_TIME_DAY, initValue, stepValue, false);
     }
 
     /**
@@ -308,7 +404,7 @@ public class SequenceUtils {
      * @return 唯一id
      */
     public static String getDateTimeId(String prefix, boolean isWithPrefix, int minIdCapacityBits, LocalDateTime time, long initValue, long stepValue) {
-        return getDatePatternId(prefix, isWithPrefix, minIdCapacityBits, time, DatePattern.PURE_DATETIME_FORMATTER, DEFAULT_EXPIRE_TIME_MINUTE, initValue, stepValue);
+        return getDatePatternId(prefix, isWithPrefix, minIdCapacityBits, time, DatePattern.PURE_DATETIME_FORMATTER, DEFAULT_EXPIRE_TIME_MINUTE, initValue, stepValue, false);
     }
 
     /**
@@ -322,16 +418,19 @@ public class SequenceUtils {
      * @param expireTime        过期时间
      * @param initValue         ID初始值
      * @param stepValue         ID步长
+     * @param segment           是否使用号段模式
      * @return 唯一id
      */
-    private static String getDatePatternId(String prefix, boolean isWithPrefix, int minIdCapacityBits, TemporalAccessor temporalAccessor, DateTimeFormatter timeFormatter, Duration expireTime, long initValue, long stepValue) {
+    private static String getDatePatternId(String prefix, boolean isWithPrefix, int minIdCapacityBits, TemporalAccessor temporalAccessor, DateTimeFormatter timeFormatter, Duration expireTime, long initValue, long stepValue, boolean segment) {
         // 时间前缀
         String timePrefix = timeFormatter.format(temporalAccessor);
         // 业务前缀 + 时间前缀 构建 prefixKey
         String prefixKey = StringUtils.format("{}{}", StringUtils.blankToDefault(prefix, ""), timePrefix);
 
         // 获取id，例 -> 1
-        String nextId = getNextIdString(prefixKey, expireTime, initValue, stepValue);
+        String nextId = segment
+            ? Convert.toStr(getNextSegmentId(prefixKey, expireTime, initValue, stepValue))
+            : getNextIdString(prefixKey, expireTime, initValue, stepValue);
 
         // minIdCapacityBits 大于0，且 nextId 的长度小于 minIdCapacityBits，则左补0
         if (minIdCapacityBits > 0 && nextId.length() < minIdCapacityBits) {
@@ -348,4 +447,5 @@ public class SequenceUtils {
         // 其中 202507031 为 yyyyMMdd 格式时间, 1 为nextId
         return StringUtils.format("{}{}", timePrefix, nextId);
     }
+
 }
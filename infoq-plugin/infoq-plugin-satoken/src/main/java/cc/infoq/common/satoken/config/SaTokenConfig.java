@@ -1,16 +1,26 @@
 package cc.infoq.common.satoken.config;
 
+import cc.infoq.common.domain.model.PermissionMatcher;
 import cc.infoq.common.factory.YmlPropertySourceFactory;
+import cc.infoq.common.satoken.config.properties.SaTokenCacheProperties;
 import cc.infoq.common.satoken.core.dao.PlusSaTokenDao;
 import cc.infoq.common.satoken.core.service.SaPermissionImpl;
 import cc.infoq.common.satoken.handler.SaTokenExceptionHandler;
+import cc.infoq.common.satoken.utils.LoginHelper;
 import cn.dev33.satoken.dao.SaTokenDao;
 import cn.dev33.satoken.jwt.StpLogicJwtForSimple;
 import cn.dev33.satoken.stp.StpInterface;
 import cn.dev33.satoken.stp.StpLogic;
+import cn.dev33.satoken.strategy.SaStrategy;
+import cn.dev33.satoken.util.SaFoxUtil;
+import jakarta.annotation.PostConstruct;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.task.TaskDecorator;
+
+import java.util.List;
 
 /**
  * sa-token 配置
@@ -18,6 +28,7 @@ import org.springframework.context.annotation.PropertySource;
  * @author Lion Li
  */
 @AutoConfiguration
+@EnableConfigurationProperties(SaTokenCacheProperties.class)
 @PropertySource(value = "classpath:common-satoken.yml", factory = YmlPropertySourceFactory.class)
 public class SaTokenConfig {
 
@@ -35,12 +46,30 @@ public class SaTokenConfig {
         return new SaPermissionImpl();
     }
 
+    /**
+     * 权限匹配策略 已编译的权限列表直接使用匹配器 其余列表仍走默认的逐个模糊匹配
+     * <p>
+     * 直接赋值而非包装原策略 容器刷新多次时(如测试上下文)不会层层嵌套
+     */
+    @PostConstruct
+    public void initHasElement() {
+        SaStrategy.instance.hasElement = SaTokenConfig::hasElement;
+    }
+
     /**
      * 自定义dao层存储
      */
     @Bean
-    public SaTokenDao saTokenDao() {
-        return new PlusSaTokenDao();
+    public SaTokenDao saTokenDao(SaTokenCacheProperties saTokenCacheProperties) {
+        return new PlusSaTokenDao(saTokenCacheProperties);
+    }
+
+    /**
+     * 异步任务装饰器 传递登录上下文到 @Async 与虚拟线程任务
+     */
+    @Bean
+    public TaskDecorator loginContextTaskDecorator() {
+        return LoginHelper::wrap;
     }
 
     /**
@@ -51,4 +80,22 @@ public class SaTokenConfig {
         return new SaTokenExceptionHandler();
     }
 
+    private static boolean hasElement(List<String> list, String element) {
+        if (list instanceof PermissionMatcher matcher) {
+            return matcher.matches(element);
+        }
+        if (list == null || list.isEmpty()) {
+            return false;
+        }
+        if (list.contains(element)) {
+            return true;
+        }
+        for (String pattern : list) {
+            if (SaFoxUtil.vagueMatch(pattern, element)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
 }
@@ -0,0 +1,41 @@
+package cc.infoq.common.satoken.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Sa-Token 本地缓存配置
+ *
+ * @author Lion Li
+ */
+@Data
+@ConfigurationProperties(prefix = "sa-token.near-cache")
+public class SaTokenCacheProperties {
+
+    /**
+     * 本地缓存最大条数
+     */
+    private int maxSize = 10000;
+
+    /**
+     * 本地缓存最长存活时间(毫秒) 不会超过 redis 中剩余存活时间
+     */
+    private long ttl = 30000;
+
+    /**
+     * 不存在的 key 本地缓存时间(毫秒)
+     */
+    private long nullTtl = 1000;
+
+    /**
+     * 续期合并窗口(毫秒) 续期使过期时间推后不足该窗口时直接跳过 同一 key 在窗口内每个节点最多续期一次
+     * 小于等于 0 时关闭合并 每次续期立即写入 redis
+     */
+    private long renewWindow = 60000;
+
+    /**
+     * 合并后的续期批量写入 redis 的间隔(毫秒)
+     */
+    private long renewFlushInterval = 1000;
+
+}
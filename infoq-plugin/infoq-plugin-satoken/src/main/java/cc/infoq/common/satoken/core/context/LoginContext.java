@@ -0,0 +1,24 @@
+package cc.infoq.common.satoken.core.context;
+
+import cc.infoq.common.domain.model.LoginUser;
+
+/**
+ * 登录上下文快照(不可变)
+ * <p>
+ * 每个请求只在认证时解析一次 token 扩展信息与登录用户 之后的 {@code LoginHelper} 取值直接读取快照
+ * 异步任务提交时随任务传递 保证异步线程内可获取提交时的登录信息
+ *
+ * @param loginId      登录账号
+ * @param userId       用户ID
+ * @param userName     用户账户
+ * @param tenantId     租户ID
+ * @param deptId       部门ID
+ * @param deptName     部门名
+ * @param deptCategory 部门类别编码
+ * @param clientId     客户端ID
+ * @param loginUser    登录用户信息
+ * @author Lion Li
+ */
+public record LoginContext(String loginId, Long userId, String userName, String tenantId, Long deptId,
+                           String deptName, String deptCategory, String clientId, LoginUser loginUser) {
+}
@@ -1,15 +1,32 @@
 package cc.infoq.common.satoken.core.dao;
 
+import cc.infoq.common.redis.manager.CacheInvalidateBus;
 import cc.infoq.common.redis.utils.RedisUtils;
+import cc.infoq.common.satoken.config.properties.SaTokenCacheProperties;
+import cc.infoq.common.utils.SpringUtils;
+import cc.infoq.common.utils.StringUtils;
 import cn.dev33.satoken.dao.auto.SaTokenDaoBySessionFollowObject;
 import cn.dev33.satoken.util.SaFoxUtil;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBatch;
+import org.redisson.api.RBucketAsync;
+import org.redisson.api.RFuture;
+import org.redisson.api.RScoredSortedSet;
+import org.redisson.api.RScoredSortedSetAsync;
+import org.redisson.client.codec.StringCodec;
 
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -17,13 +34,44 @@ import java.util.concurrent.TimeUnit;
  * <p>
  * 采用 caffeine + redis 多级缓存 优化并发查询效率
  * <p>
+ * 本地缓存同时记录 key 的过期时间 剩余存活时间直接由本地计算
+ * 写操作通过 {@link CacheInvalidateBus} 广播 保证所有节点的本地缓存同步失效
+ * <p>
+ * token 键额外维护按过期时间排序的有序集合索引 搜索 token 时按索引分页读取 无需扫描全部 key
+ * <p>
+ * 续期(修改剩余存活时间)按窗口合并: 本地已知过期时间足够靠后时跳过 其余按固定间隔流水线批量写入
+ * 批量续期只会延后 redis 中的过期时间(lua 比较剩余存活时间 兼容 redis 5.X) 写入失败时有限次重新入队 停机前写入剩余续期
+ * <p>
  * SaTokenDaoBySessionFollowObject 是 SaTokenDao 子集简化了session方法处理
  *
  * @author Lion Li
  */
+@Slf4j
 public class PlusSaTokenDao implements SaTokenDaoBySessionFollowObject {
 
-    private static final Cache<String, Object> CAFFEINE = Caffeine.newBuilder()
+    private static final CacheInvalidateBus BUS = SpringUtils.getBean(CacheInvalidateBus.class);
+
+    /**
+     * 需要维护索引的 key 命名空间后缀 (对应 token 键 tokenName:loginType:token:tokenValue)
+     */
+    private static final String TOKEN_NAMESPACE = ":token:";
+
+    /**
+     * 索引键后缀 由 token 命名空间去掉结尾冒号拼接而成 不会与 sa-token 自身的键冲突
+     */
+    private static final String INDEX_SUFFIX = "-index";
+
+    /**
+     * 永不过期 key 在索引中的分值
+     */
+    private static final double NEVER_EXPIRE_SCORE = Double.MAX_VALUE;
+
+    /**
+     * 单个续期最多尝试写入的次数 超出后丢弃 由下次访问重新续期
+     */
+    private static final int MAX_RENEW_ATTEMPTS = 3;
+
+    private static final Cache<String, Object> SEARCH_CACHE = Caffeine.newBuilder()
         // 设置最后一次写入或访问后经过固定时间过期
         .expireAfterWrite(5, TimeUnit.SECONDS)
         // 初始的缓存空间大小
@@ -32,13 +80,61 @@ public class PlusSaTokenDao implements SaTokenDaoBySessionFollowObject {
         .maximumSize(1000)
         .build();
 
+    /**
+     * 失效广播使用的缓存组名称(各节点一致)
+     */
+    private final String cacheName = getClass().getName();
+
+    private final Cache<Object, Object> caffeine;
+
+    /**
+     * 续期合并窗口(毫秒)
+     */
+    private final long renewWindow;
+
+    /**
+     * 待写入的续期 key -> 续期
+     */
+    private final Map<String, Renew> pendingRenew = new ConcurrentHashMap<>();
+
+    /**
+     * 批量续期与丢弃续期互斥 保证值被重新写入或删除后不会再执行此前的续期
+     */
+    private final Object renewLock = new Object();
+
+    /**
+     * 窗口内本节点已续期的 key -> 续期后的过期时间戳
+     */
+    private final Cache<String, Long> renewed;
+
+    public PlusSaTokenDao(SaTokenCacheProperties properties) {
+        this.caffeine = Caffeine.newBuilder()
+            // 按 key 在 redis 中的剩余存活时间过期 最长不超过 ttl
+            .expireAfter(new EntryExpiry(properties.getTtl(), properties.getNullTtl()))
+            .initialCapacity(100)
+            .maximumSize(properties.getMaxSize())
+            .build();
+        BUS.register(cacheName, caffeine);
+        this.renewWindow = properties.getRenewWindow();
+        if (renewWindow > 0) {
+            this.renewed = Caffeine.newBuilder()
+                .expireAfterWrite(renewWindow, TimeUnit.MILLISECONDS)
+                .maximumSize(properties.getMaxSize())
+                .build();
+            long interval = properties.getRenewFlushInterval();
+            SpringUtils.getBean("scheduledExecutorService", ScheduledExecutorService.class)
+                .scheduleWithFixedDelay(this::flushRenew, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.renewed = null;
+        }
+    }
+
     /**
      * 获取Value，如无返空
      */
     @Override
     public String get(String key) {
-        Object o = CAFFEINE.get(key, k -> RedisUtils.getCacheObject(key));
-        return (String) o;
+        return (String) getEntry(key).value;
     }
 
     /**
@@ -46,16 +142,7 @@ public class PlusSaTokenDao implements SaTokenDaoBySessionFollowObject {
      */
     @Override
     public void set(String key, String value, long timeout) {
-        if (timeout == 0 || timeout <= NOT_VALUE_EXPIRE) {
-            return;
-        }
-        // 判断是否为永不过期
-        if (timeout == NEVER_EXPIRE) {
-            RedisUtils.setCacheObject(key, value);
-        } else {
-            RedisUtils.setCacheObject(key, value, Duration.ofSeconds(timeout));
-        }
-        CAFFEINE.invalidate(key);
+        write(key, value, timeout);
     }
 
     /**
@@ -63,10 +150,7 @@ public class PlusSaTokenDao implements SaTokenDaoBySessionFollowObject {
      */
     @Override
     public void update(String key, String value) {
-        if (RedisUtils.hasKey(key)) {
-            RedisUtils.setCacheObject(key, value, true);
-            CAFFEINE.invalidate(key);
-        }
+        rewrite(key, value);
     }
 
     /**
@@ -74,9 +158,7 @@ public class PlusSaTokenDao implements SaTokenDaoBySessionFollowObject {
      */
     @Override
     public void delete(String key) {
-        if (RedisUtils.deleteObject(key)) {
-            CAFFEINE.invalidate(key);
-        }
+        remove(key);
     }
 
     /**
@@ -84,9 +166,7 @@ public class PlusSaTokenDao implements SaTokenDaoBySessionFollowObject {
      */
     @Override
     public long getTimeout(String key) {
-        long timeout = RedisUtils.getTimeToLive(key);
-        // 加1的目的 解决sa-token使用秒 redis是毫秒导致1秒的精度问题 手动补偿
-        return timeout < 0 ? timeout : timeout / 1000 + 1;
+        return timeout(key);
     }
 
     /**
@@ -94,7 +174,7 @@ public class PlusSaTokenDao implements SaTokenDaoBySessionFollowObject {
      */
     @Override
     public void updateTimeout(String key, long timeout) {
-        RedisUtils.expire(key, Duration.ofSeconds(timeout));
+        expire(key, timeout);
     }
 
 
@@ -103,8 +183,7 @@ public class PlusSaTokenDao implements SaTokenDaoBySessionFollowObject {
      */
     @Override
     public Object getObject(String key) {
-        Object o = CAFFEINE.get(key, k -> RedisUtils.getCacheObject(key));
-        return o;
+        return getEntry(key).value;
     }
 
     /**
@@ -116,8 +195,7 @@ public class PlusSaTokenDao implements SaTokenDaoBySessionFollowObject {
     @SuppressWarnings("unchecked cast")
     @Override
     public <T> T getObject(String key, Class<T> classType) {
-        Object o = CAFFEINE.get(key, k -> RedisUtils.getCacheObject(key));
-        return (T) o;
+        return (T) getEntry(key).value;
     }
 
     /**
@@ -125,16 +203,7 @@ public class PlusSaTokenDao implements SaTokenDaoBySessionFollowObject {
      */
     @Override
     public void setObject(String key, Object object, long timeout) {
-        if (timeout == 0 || timeout <= NOT_VALUE_EXPIRE) {
-            return;
-        }
-        // 判断是否为永不过期
-        if (timeout == NEVER_EXPIRE) {
-            RedisUtils.setCacheObject(key, object);
-        } else {
-            RedisUtils.setCacheObject(key, object, Duration.ofSeconds(timeout));
-        }
-        CAFFEINE.invalidate(key);
+        write(key, object, timeout);
     }
 
     /**
@@ -142,10 +211,7 @@ public class PlusSaTokenDao implements SaTokenDaoBySessionFollowObject {
      */
     @Override
     public void updateObject(String key, Object object) {
-        if (RedisUtils.hasKey(key)) {
-            RedisUtils.setCacheObject(key, object, true);
-            CAFFEINE.invalidate(key);
-        }
+        rewrite(key, object);
     }
 
     /**
@@ -153,9 +219,7 @@ public class PlusSaTokenDao implements SaTokenDaoBySessionFollowObject {
      */
     @Override
     public void deleteObject(String key) {
-        if (RedisUtils.deleteObject(key)) {
-            CAFFEINE.invalidate(key);
-        }
+        remove(key);
     }
 
     /**
@@ -163,9 +227,7 @@ public class PlusSaTokenDao implements SaTokenDaoBySessionFollowObject {
      */
     @Override
     public long getObjectTimeout(String key) {
-        long timeout = RedisUtils.getTimeToLive(key);
-        // 加1的目的 解决sa-token使用秒 redis是毫秒导致1秒的精度问题 手动补偿
-        return timeout < 0 ? timeout : timeout / 1000 + 1;
+        return timeout(key);
     }
 
     /**
@@ -173,7 +235,23 @@ public class PlusSaTokenDao implements SaTokenDaoBySessionFollowObject {
      */
     @Override
     public void updateObjectTimeout(String key, long timeout) {
-        RedisUtils.expire(key, Duration.ofSeconds(timeout));
+        expire(key, timeout);
+    }
+
+    /**
+     * 批量判断 key 是否存在(一次往返)
+     *
+     * @param keys key 列表
+     * @return 与 key 列表一一对应的判断结果
+     */
+    public List<Boolean> exists(List<String> keys) {
+        RBatch batch = RedisUtils.getClient().createBatch();
+        List<RFuture<Boolean>> futures = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            futures.add(batch.getBucket(key).isExistsAsync());
+        }
+        batch.execute();
+        return futures.stream().map(future -> future.toCompletableFuture().join()).toList();
     }
 
     /**
@@ -182,11 +260,344 @@ public class PlusSaTokenDao implements SaTokenDaoBySessionFollowObject {
     @SuppressWarnings("unchecked")
     @Override
     public List<String> searchData(String prefix, String keyword, int start, int size, boolean sortType) {
+        String indexKey = indexKey(prefix);
+        if (indexKey != null) {
+            return searchIndex(indexKey, prefix, keyword, start, size, sortType);
+        }
         String keyStr = prefix + "*" + keyword + "*";
-        return (List<String>) CAFFEINE.get(keyStr, k -> {
-            Collection<String> keys = RedisUtils.keys(keyStr);
-            List<String> list = new ArrayList<>(keys);
+        return (List<String>) SEARCH_CACHE.get(keyStr, k -> {
+            List<String> list;
+            if (sortType && size >= 0) {
+                // 正序分页只需扫描到 start + size 条即可提前结束
+                list = RedisUtils.keys(keyStr, 0, start + size);
+            } else {
+                list = new ArrayList<>(RedisUtils.keys(keyStr));
+            }
             return SaFoxUtil.searchList(list, start, size, sortType);
         });
     }
+
+    /**
+     * 按索引搜索 无关键字时直接按分页区间读取 有关键字时增量扫描索引成员
+     */
+    private List<String> searchIndex(String indexKey, String prefix, String keyword, int start, int size, boolean sortType) {
+        RScoredSortedSet<String> index = getIndex(indexKey);
+        index.removeRangeByScore(0, true, System.currentTimeMillis(), true);
+        if (StringUtils.isNotEmpty(keyword)) {
+            List<String> list = new ArrayList<>();
+            index.iterator(prefix + "*" + keyword + "*").forEachRemaining(list::add);
+            return SaFoxUtil.searchList(list, start, size, sortType);
+        }
+        int from = Math.max(start, 0);
+        int to = size < 0 ? -1 : (int) Math.min((long) from + size, Integer.MAX_VALUE) - 1;
+        if (to != -1 && to < from) {
+            return new ArrayList<>();
+        }
+        // 正序按过期时间由近到远 倒序反之
+        Collection<String> list = sortType ? index.valueRange(from, to) : index.valueRangeReversed(from, to);
+        return new ArrayList<>(list);
+    }
+
+    private void write(String key, Object object, long timeout) {
+        if (timeout == 0 || timeout <= NOT_VALUE_EXPIRE) {
+            return;
+        }
+        discardRenew(key);
+        String indexKey = indexKey(key);
+        if (indexKey != null) {
+            // 值与索引同一批次写入 一次往返
+            RBatch batch = RedisUtils.getClient().createBatch();
+            RBucketAsync<Object> bucket = batch.getBucket(key);
+            if (timeout == NEVER_EXPIRE) {
+                bucket.setAsync(object);
+            } else {
+                bucket.setAsync(object, Duration.ofSeconds(timeout));
+            }
+            indexAsync(batch, indexKey, key, timeout);
+            batch.execute();
+        } else if (timeout == NEVER_EXPIRE) {
+            // 判断是否为永不过期
+            RedisUtils.setCacheObject(key, object);
+        } else {
+            RedisUtils.setCacheObject(key, object, Duration.ofSeconds(timeout));
+        }
+        BUS.invalidate(cacheName, key);
+    }
+
+    /**
+     * 过期时间不变 存在才更新(单次原子调用)
+     */
+    private void rewrite(String key, Object object) {
+        if (RedisUtils.updateCacheObject(key, object)) {
+            BUS.invalidate(cacheName, key);
+        }
+    }
+
+    private void remove(String key) {
+        discardRenew(key);
+        RedisUtils.deleteObject(key);
+        String indexKey = indexKey(key);
+        if (indexKey != null) {
+            getIndex(indexKey).remove(key);
+        }
+        // 其他节点可能缓存了该 key 无论是否删除成功都需要广播
+        BUS.invalidate(cacheName, key);
+    }
+
+    /**
+     * 由本地记录的过期时间计算剩余存活时间
+     */
+    private long timeout(String key) {
+        Entry entry = getEntry(key);
+        if (entry.expireTime < 0) {
+            return entry.expireTime;
+        }
+        long timeout = entry.expireTime - System.currentTimeMillis();
+        if (timeout <= 0) {
+            return NOT_VALUE_EXPIRE;
+        }
+        // 加1的目的 解决sa-token使用秒 redis是毫秒导致1秒的精度问题 手动补偿
+        return timeout / 1000 + 1;
+    }
+
+    private void expire(String key, long timeout) {
+        if (renewWindow > 0 && timeout > 0 && deferRenew(key, timeout)) {
+            return;
+        }
+        discardRenew(key);
+        String indexKey = indexKey(key);
+        if (indexKey != null) {
+            RBatch batch = RedisUtils.getClient().createBatch();
+            batch.getBucket(key).expireAsync(Duration.ofSeconds(timeout));
+            indexAsync(batch, indexKey, key, timeout);
+            batch.execute();
+        } else {
+            RedisUtils.expire(key, Duration.ofSeconds(timeout));
+        }
+        BUS.invalidate(cacheName, key);
+    }
+
+    /**
+     * 合并续期 剩余存活时间足够时直接跳过 否则加入待写入队列并同步更新本地记录的过期时间
+     *
+     * @return 是否已处理 缩短存活时间的操作不合并 返回 false 由调用方立即写入
+     */
+    private boolean deferRenew(String key, long timeout) {
+        long target = System.currentTimeMillis() + timeout * 1000;
+        // 窗口不超过存活时间的一半 保证短时效的 key 依然能正常续期
+        long slack = Math.min(renewWindow, timeout * 1000 / 2);
+        long known = 0;
+        Entry entry = (Entry) caffeine.getIfPresent(key);
+        if (entry != null && entry.expireTime > 0) {
+            known = entry.expireTime;
+        } else {
+            Long marked = renewed.getIfPresent(key);
+            if (marked != null) {
+                known = marked;
+            }
+        }
+        if (known > 0) {
+            if (target < known) {
+                return false;
+            }
+            if (target - known < slack) {
+                return true;
+            }
+        }
+        renewed.put(key, target);
+        pendingRenew.put(key, new Renew(timeout, target, 0));
+        caffeine.asMap().computeIfPresent(key, (k, v) -> {
+            Entry e = (Entry) v;
+            return e.expireTime == NOT_VALUE_EXPIRE ? e : new Entry(e.value, target);
+        });
+        return true;
+    }
+
+    /**
+     * 值被重新写入或删除时 丢弃尚未写入的续期
+     */
+    private void discardRenew(String key) {
+        if (renewed != null) {
+            synchronized (renewLock) {
+                pendingRenew.remove(key);
+                renewed.invalidate(key);
+            }
+        }
+    }
+
+    /**
+     * 停机前写入尚未写入的续期
+     */
+    @PreDestroy
+    public void destroy() {
+        if (renewWindow > 0) {
+            flushRenew();
+        }
+    }
+
+    /**
+     * 将合并后的续期分块流水线写入 redis 对已删除的 key 不会产生任何影响
+     * <p>
+     * 按续期时的目标过期时间 仅在剩余存活时间更短时延长 不会覆盖其他写入设置的更晚(或永不)过期
+     */
+    private void flushRenew() {
+        if (pendingRenew.isEmpty()) {
+            return;
+        }
+        synchronized (renewLock) {
+            Map<String, Renew> chunk = new HashMap<>();
+            for (String key : pendingRenew.keySet()) {
+                Renew renew = pendingRenew.remove(key);
+                if (renew == null) {
+                    continue;
+                }
+                chunk.put(key, renew);
+                if (chunk.size() == RedisUtils.DEFAULT_CHUNK_SIZE) {
+                    executeRenew(chunk);
+                    chunk = new HashMap<>();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                executeRenew(chunk);
+            }
+        }
+    }
+
+    /**
+     * 写入一批续期 失败时重新入队(保留期间产生的更新续期) 并丢弃本地缓存 以 redis 中的实际过期时间为准
+     * <p>
+     * 多次失败的续期直接丢弃 同时清除续期记录 下次访问时重新续期 避免持续失败的批次无限重试
+     */
+    private void executeRenew(Map<String, Renew> chunk) {
+        try {
+            long now = System.currentTimeMillis();
+            RBatch batch = RedisUtils.getClient().createBatch();
+            chunk.forEach((key, renew) -> {
+                long remain = renew.target() - now;
+                if (remain <= 0) {
+                    return;
+                }
+                RedisUtils.expireIfGreaterAsync(batch, key, Duration.ofMillis(remain), false);
+                String indexKey = indexKey(key);
+                if (indexKey != null) {
+                    indexAtAsync(batch, indexKey, key, renew.target());
+                }
+            });
+            batch.execute();
+        } catch (Exception e) {
+            List<String> dropped = new ArrayList<>();
+            chunk.forEach((key, renew) -> {
+                if (renew.attempts() + 1 < MAX_RENEW_ATTEMPTS) {
+                    pendingRenew.putIfAbsent(key, new Renew(renew.timeout(), renew.target(), renew.attempts() + 1));
+                } else {
+                    renewed.invalidate(key);
+                    dropped.add(key);
+                }
+                caffeine.invalidate(key);
+            });
+            log.error("批量续期失败 重新入队 {} 个 丢弃 {} 个: {}", chunk.size() - dropped.size(), dropped.size(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 在批处理中更新索引分值(过期时间戳) 并顺带清理已过期的成员
+     */
+    private static void indexAsync(RBatch batch, String indexKey, String key, long timeout) {
+        indexAtAsync(batch, indexKey, key, timeout == NEVER_EXPIRE ? NEVER_EXPIRE : System.currentTimeMillis() + timeout * 1000);
+    }
+
+    /**
+     * 在批处理中按过期时间戳更新索引分值 -1 永不过期
+     */
+    private static void indexAtAsync(RBatch batch, String indexKey, String key, long expireTime) {
+        RScoredSortedSetAsync<String> index = batch.getScoredSortedSet(indexKey, StringCodec.INSTANCE);
+        index.addAsync(expireTime == NEVER_EXPIRE ? NEVER_EXPIRE_SCORE : expireTime, key);
+        index.removeRangeByScoreAsync(0, true, System.currentTimeMillis(), true);
+    }
+
+    /**
+     * 获取 key 所属命名空间的索引键 非 token 键返回 null
+     */
+    private static String indexKey(String key) {
+        int index = key.lastIndexOf(':');
+        if (index < 0 || !key.startsWith(TOKEN_NAMESPACE, index - TOKEN_NAMESPACE.length() + 1)) {
+            return null;
+        }
+        return key.substring(0, index) + INDEX_SUFFIX;
+    }
+
+    private static RScoredSortedSet<String> getIndex(String indexKey) {
+        return RedisUtils.getClient().getScoredSortedSet(indexKey, StringCodec.INSTANCE);
+    }
+
+    /**
+     * 读取本地缓存 未命中时一次往返同时获取值与剩余存活时间
+     */
+    private Entry getEntry(String key) {
+        return (Entry) BUS.get(caffeine, cacheName, key, () -> load(key));
+    }
+
+    private Entry load(String key) {
+        RBatch batch = RedisUtils.getClient().createBatch();
+        RBucketAsync<Object> bucket = batch.getBucket(key);
+        RFuture<Object> value = bucket.getAsync();
+        RFuture<Long> ttl = bucket.remainTimeToLiveAsync();
+        batch.execute();
+        Object o = value.toCompletableFuture().join();
+        long remain = ttl.toCompletableFuture().join();
+        if (o == null) {
+            return new Entry(null, NOT_VALUE_EXPIRE);
+        }
+        // -1 永不过期 其余为过期时间戳
+        return new Entry(o, remain < 0 ? NEVER_EXPIRE : System.currentTimeMillis() + remain);
+    }
+
+    /**
+     * 本地缓存条目
+     *
+     * @param value      值
+     * @param expireTime 过期时间戳 -1 永不过期 -2 不存在
+     */
+    private record Entry(Object value, long expireTime) {
+    }
+
+    /**
+     * 待写入的续期
+     *
+     * @param timeout  存活时间(秒)
+     * @param target   续期后的过期时间戳
+     * @param attempts 已失败的写入次数
+     */
+    private record Renew(long timeout, long target, int attempts) {
+    }
+
+    /**
+     * 条目过期策略 不超过 redis 中的剩余存活时间
+     */
+    private record EntryExpiry(long ttl, long nullTtl) implements Expiry<Object, Object> {
+
+        @Override
+        public long expireAfterCreate(Object key, Object value, long currentTime) {
+            Entry entry = (Entry) value;
+            long millis = ttl;
+            if (entry.expireTime == NOT_VALUE_EXPIRE) {
+                millis = nullTtl;
+            } else if (entry.expireTime > 0) {
+                millis = Math.min(ttl, Math.max(entry.expireTime - System.currentTimeMillis(), 0));
+            }
+            return TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+
+        @Override
+        public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+    }
+
 }
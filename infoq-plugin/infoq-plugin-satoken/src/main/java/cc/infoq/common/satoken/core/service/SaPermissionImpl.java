@@ -1,6 +1,7 @@
 package cc.infoq.common.satoken.core.service;
 
 import cc.infoq.common.domain.model.LoginUser;
+import cc.infoq.common.domain.model.PermissionMatcher;
 import cc.infoq.common.enums.UserType;
 import cc.infoq.common.exception.ServiceException;
 import cc.infoq.common.satoken.utils.LoginHelper;
@@ -8,14 +9,14 @@ import cc.infoq.common.service.PermissionService;
 import cc.infoq.common.utils.SpringUtils;
 import cc.infoq.common.utils.StringUtils;
 import cn.dev33.satoken.stp.StpInterface;
-import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.ObjectUtil;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
  * sa-token 权限管理实现类
+ * <p>
+ * 返回的权限列表均为 {@link PermissionMatcher} 由 sa-token 的 hasElement 策略直接调用其匹配方法
  *
  * @author Lion Li
  */
@@ -31,7 +32,7 @@ public class SaPermissionImpl implements StpInterface {
             PermissionService permissionService = getPermissionService();
             if (ObjectUtil.isNotNull(permissionService)) {
                 List<String> list = StringUtils.splitList(loginId.toString(), ":");
-                return new ArrayList<>(permissionService.getMenuPermission(Long.parseLong(list.get(1))));
+                return PermissionMatcher.compile(permissionService.getMenuPermission(Long.parseLong(list.get(1))));
             } else {
                 throw new ServiceException("PermissionService 实现类不存在");
             }
@@ -40,12 +41,8 @@ public class SaPermissionImpl implements StpInterface {
         if (userType == UserType.APP_USER) {
             // 其他端 自行根据业务编写
         }
-        if (CollUtil.isNotEmpty(loginUser.getMenuPermission())) {
-            // SYS_USER 默认返回权限
-            return new ArrayList<>(loginUser.getMenuPermission());
-        } else {
-            return new ArrayList<>();
-        }
+        // SYS_USER 默认返回权限 直接返回登录用户上缓存的匹配器 无需复制
+        return loginUser.menuPermissionMatcher();
     }
 
     /**
@@ -58,7 +55,7 @@ public class SaPermissionImpl implements StpInterface {
             PermissionService permissionService = getPermissionService();
             if (ObjectUtil.isNotNull(permissionService)) {
                 List<String> list = StringUtils.splitList(loginId.toString(), ":");
-                return new ArrayList<>(permissionService.getRolePermission(Long.parseLong(list.get(1))));
+                return PermissionMatcher.compile(permissionService.getRolePermission(Long.parseLong(list.get(1))));
             } else {
                 throw new ServiceException("PermissionService 实现类不存在");
             }
@@ -67,12 +64,8 @@ public class SaPermissionImpl implements StpInterface {
         if (userType == UserType.APP_USER) {
             // 其他端 自行根据业务编写
         }
-        if (CollUtil.isNotEmpty(loginUser.getRolePermission())) {
-            // SYS_USER 默认返回权限
-            return new ArrayList<>(loginUser.getRolePermission());
-        } else {
-            return new ArrayList<>();
-        }
+        // SYS_USER 默认返回权限 直接返回登录用户上缓存的匹配器 无需复制
+        return loginUser.rolePermissionMatcher();
     }
 
     private PermissionService getPermissionService() {
@@ -1,9 +1,20 @@
 package cc.infoq.common.satoken.utils;
 
+import cc.infoq.common.constant.GlobalConstants;
 import cc.infoq.common.constant.SystemConstants;
 import cc.infoq.common.constant.TenantConstants;
+import cc.infoq.common.domain.dto.RoleDTO;
 import cc.infoq.common.domain.model.LoginUser;
 import cc.infoq.common.enums.UserType;
+import cc.infoq.common.redis.utils.RedisUtils;
+import cc.infoq.common.satoken.core.context.LoginContext;
+import cc.infoq.common.satoken.core.dao.PlusSaTokenDao;
+import cc.infoq.common.utils.StringUtils;
+import cn.dev33.satoken.SaManager;
+import cn.dev33.satoken.context.SaHolder;
+import cn.dev33.satoken.context.model.SaStorage;
+import cn.dev33.satoken.dao.SaTokenDao;
+import cn.dev33.satoken.exception.NotLoginException;
 import cn.dev33.satoken.session.SaSession;
 import cn.dev33.satoken.stp.StpUtil;
 import cn.dev33.satoken.stp.parameter.SaLoginParameter;
@@ -12,7 +23,16 @@ import cn.hutool.core.convert.Convert;
 import cn.hutool.core.util.ObjectUtil;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
+import org.redisson.api.RBatch;
+import org.redisson.api.RLock;
+import org.redisson.api.RSet;
+import org.redisson.api.RSetAsync;
+import org.redisson.client.codec.StringCodec;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 
@@ -39,6 +59,27 @@ public class LoginHelper {
     public static final String DEPT_NAME_KEY = "deptName";
     public static final String DEPT_CATEGORY_KEY = "deptCategory";
     public static final String CLIENT_KEY = "clientid";
+    public static final String LOGIN_CONTEXT_KEY = "loginContext";
+
+    /**
+     * 异步线程内的登录上下文(由任务装饰器在提交时传入)
+     */
+    private static final ThreadLocal<LoginContext> CONTEXT_HOLDER = new ThreadLocal<>();
+
+    /**
+     * 登录账号到角色的反向索引
+     */
+    private static final String ROLE_LOGIN_KEY = GlobalConstants.ONLINE_ROLE_KEY + "login:";
+
+    /**
+     * 角色索引补齐完成标记
+     */
+    private static final String ROLE_INDEX_READY_KEY = GlobalConstants.ONLINE_ROLE_KEY + "ready";
+
+    /**
+     * 角色索引补齐锁
+     */
+    private static final String ROLE_INDEX_LOCK_KEY = GlobalConstants.ONLINE_ROLE_KEY + "rebuild_lock";
 
     /**
      * 登录系统 基于 设备类型
@@ -58,6 +99,269 @@ public class LoginHelper {
                 .setExtra(DEPT_CATEGORY_KEY, loginUser.getDeptCategory())
         );
         StpUtil.getTokenSession().set(LOGIN_USER_KEY, loginUser);
+        indexRoles(loginUser, StpUtil.getTokenTimeout());
+        // 登录前可能已访问过上下文 重新解析
+        if (SaManager.getSaTokenContext().isValid()) {
+            SaHolder.getStorage().delete(LOGIN_CONTEXT_KEY);
+        }
+    }
+
+    /**
+     * 获取当前登录上下文快照
+     * <p>
+     * 优先读取异步任务传入的上下文 其次读取请求内缓存 均不存在时解析一次并缓存到请求内
+     *
+     * @return 登录上下文 未登录返回 null
+     */
+    public static LoginContext getContext() {
+        LoginContext context = CONTEXT_HOLDER.get();
+        if (context != null) {
+            return context;
+        }
+        if (!SaManager.getSaTokenContext().isValid()) {
+            return null;
+        }
+        SaStorage storage = SaHolder.getStorage();
+        context = (LoginContext) storage.get(LOGIN_CONTEXT_KEY);
+        if (context != null) {
+            return context;
+        }
+        context = resolveContext();
+        // 未登录不缓存 避免同一请求内登录后仍读取到空上下文
+        if (context != null) {
+            storage.set(LOGIN_CONTEXT_KEY, context);
+        }
+        return context;
+    }
+
+    /**
+     * 包装异步任务 将提交线程的登录上下文传递到执行线程
+     *
+     * @param runnable 任务
+     * @return 包装后的任务
+     */
+    public static Runnable wrap(Runnable runnable) {
+        LoginContext context = getContext();
+        if (context == null) {
+            return runnable;
+        }
+        return () -> {
+            LoginContext previous = CONTEXT_HOLDER.get();
+            CONTEXT_HOLDER.set(context);
+            try {
+                runnable.run();
+            } finally {
+                if (previous == null) {
+                    CONTEXT_HOLDER.remove();
+                } else {
+                    CONTEXT_HOLDER.set(previous);
+                }
+            }
+        };
+    }
+
+    private static LoginContext resolveContext() {
+        try {
+            Object loginId = StpUtil.getLoginIdDefaultNull();
+            if (loginId == null) {
+                return null;
+            }
+            SaSession session = StpUtil.getTokenSession();
+            LoginUser loginUser = ObjectUtil.isNull(session) ? null : (LoginUser) session.get(LOGIN_USER_KEY);
+            return new LoginContext(loginId.toString(),
+                Convert.toLong(StpUtil.getExtra(USER_KEY)),
+                Convert.toStr(StpUtil.getExtra(USER_NAME_KEY)),
+                Convert.toStr(StpUtil.getExtra(TENANT_KEY)),
+                Convert.toLong(StpUtil.getExtra(DEPT_KEY)),
+                Convert.toStr(StpUtil.getExtra(DEPT_NAME_KEY)),
+                Convert.toStr(StpUtil.getExtra(DEPT_CATEGORY_KEY)),
+                Convert.toStr(StpUtil.getExtra(CLIENT_KEY)),
+                loginUser);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * 注销拥有指定角色的全部在线会话
+     * <p>
+     * 通过角色索引只处理受影响的账号 无需遍历全部在线 token
+     * 索引只记录登录时的角色 注销前按各会话当前的角色再次判断
+     *
+     * @param roleId 角色ID
+     */
+    public static void logoutByRole(Long roleId) {
+        RSet<String> set = RedisUtils.getClient().getSet(GlobalConstants.ONLINE_ROLE_KEY + roleId, StringCodec.INSTANCE);
+        Set<String> loginIds = set.readAll();
+        if (CollUtil.isEmpty(loginIds)) {
+            return;
+        }
+        for (String loginId : loginIds) {
+            for (String token : StpUtil.getTokenValueListByLoginId(loginId)) {
+                // 已过期则跳过
+                if (StpUtil.stpLogic.getTokenActiveTimeoutByToken(token) < -1) {
+                    continue;
+                }
+                LoginUser loginUser = getLoginUser(token);
+                if (ObjectUtil.isNull(loginUser) || CollUtil.isEmpty(loginUser.getRoles())) {
+                    continue;
+                }
+                if (loginUser.getRoles().stream().anyMatch(r -> r.getRoleId().equals(roleId))) {
+                    try {
+                        StpUtil.logoutByTokenValue(token);
+                    } catch (NotLoginException ignored) {
+                    }
+                }
+            }
+        }
+        // 拥有该角色的会话已全部下线 索引随之清空
+        set.removeAll(loginIds);
+    }
+
+    /**
+     * 注销指定用户的全部在线终端(覆盖全部用户类型)
+     * <p>
+     * 先判断各账号会话是否存在 只注销确实在线的账号
+     *
+     * @param userIds 用户ID集合
+     */
+    public static void logoutByUserIds(Collection<Long> userIds) {
+        if (CollUtil.isEmpty(userIds)) {
+            return;
+        }
+        List<String> loginIds = new ArrayList<>(userIds.size() * UserType.values().length);
+        for (Long userId : userIds) {
+            for (UserType userType : UserType.values()) {
+                loginIds.add(userType.getUserType() + ":" + userId);
+            }
+        }
+        filterOnline(loginIds).forEach(StpUtil::logout);
+    }
+
+    /**
+     * 筛选账号会话存在的登录账号
+     * <p>
+     * 经由当前的 SaTokenDao 判断 与会话写入时的 key 规则保持一致(租户模式下 key 带有全局前缀)
+     * 框架持久层以一次批量请求判断 其余实现逐个读取
+     *
+     * @param loginIds 登录账号集合
+     * @return 在线的登录账号
+     */
+    public static List<String> filterOnline(List<String> loginIds) {
+        SaTokenDao dao = SaManager.getSaTokenDao();
+        List<String> keys = loginIds.stream().map(StpUtil.stpLogic::splicingKeySession).toList();
+        List<Boolean> exists = dao instanceof PlusSaTokenDao plusDao
+            ? plusDao.exists(keys)
+            : keys.stream().map(key -> dao.getObject(key) != null).toList();
+        List<String> online = new ArrayList<>();
+        for (int i = 0; i < loginIds.size(); i++) {
+            if (Boolean.TRUE.equals(exists.get(i))) {
+                online.add(loginIds.get(i));
+            }
+        }
+        return online;
+    }
+
+    /**
+     * 重建角色索引
+     * <p>
+     * 角色索引只在登录时写入 索引上线前已登录的会话不在索引中 需遍历一次在线 token 补齐
+     * 全部节点只需执行一次 由分布式锁保证同一时刻只有一个节点执行 完成后写入标记 之后的启动直接跳过
+     *
+     * @return 补齐的会话数
+     */
+    public static int rebuildRoleIndex() {
+        if (RedisUtils.isExistsObject(ROLE_INDEX_READY_KEY)) {
+            return 0;
+        }
+        RLock lock = RedisUtils.getClient().getLock(ROLE_INDEX_LOCK_KEY);
+        // 其他节点正在补齐
+        if (!lock.tryLock()) {
+            return 0;
+        }
+        try {
+            if (RedisUtils.isExistsObject(ROLE_INDEX_READY_KEY)) {
+                return 0;
+            }
+            List<String> keys = StpUtil.searchTokenValue("", 0, -1, false);
+            int count = 0;
+            for (String key : keys) {
+                String token = StringUtils.substringAfterLast(key, ":");
+                // 已过期则跳过
+                if (StpUtil.stpLogic.getTokenActiveTimeoutByToken(token) < -1) {
+                    continue;
+                }
+                LoginUser loginUser = getLoginUser(token);
+                long timeout = StpUtil.getTokenTimeout(token);
+                if (ObjectUtil.isNull(loginUser) || timeout < -1) {
+                    continue;
+                }
+                indexRoles(loginUser, timeout);
+                count++;
+            }
+            RedisUtils.setCacheObject(ROLE_INDEX_READY_KEY, System.currentTimeMillis());
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 记录角色到登录账号的索引 以及登录账号到角色的反向索引(用于下线时清理)
+     * <p>
+     * 集合过期时间只延长不缩短 保证覆盖其中存活最久的会话
+     *
+     * @param loginUser 登录用户信息
+     * @param timeout   会话存活时间 (单位: 秒) -1 永不过期
+     */
+    private static void indexRoles(LoginUser loginUser, long timeout) {
+        if (CollUtil.isEmpty(loginUser.getRoles())) {
+            return;
+        }
+        String loginId = loginUser.getLoginId();
+        RBatch batch = RedisUtils.getClient().createBatch();
+        for (RoleDTO role : loginUser.getRoles()) {
+            String roleId = String.valueOf(role.getRoleId());
+            indexAsync(batch, GlobalConstants.ONLINE_ROLE_KEY + roleId, loginId, timeout);
+            indexAsync(batch, ROLE_LOGIN_KEY + loginId, roleId, timeout);
+        }
+        batch.execute();
+    }
+
+    private static void indexAsync(RBatch batch, String key, String member, long timeout) {
+        RSetAsync<String> set = batch.getSet(key, StringCodec.INSTANCE);
+        set.addAsync(member);
+        if (timeout == -1) {
+            set.clearExpireAsync();
+        } else {
+            RedisUtils.expireIfGreaterAsync(batch, key, Duration.ofSeconds(timeout), true);
+        }
+    }
+
+    /**
+     * 会话下线时清理角色索引
+     * <p>
+     * 账号仍有其他在线终端时保留 最后一个终端下线时按反向索引将账号移出其登录过的全部角色
+     *
+     * @param loginId    登录账号
+     * @param tokenValue 下线的 token
+     */
+    public static void removeRoleIndex(String loginId, String tokenValue) {
+        List<String> tokens = StpUtil.getTokenValueListByLoginId(loginId);
+        if (tokens.stream().anyMatch(token -> !token.equals(tokenValue))) {
+            return;
+        }
+        RSet<String> roles = RedisUtils.getClient().getSet(ROLE_LOGIN_KEY + loginId, StringCodec.INSTANCE);
+        Set<String> roleIds = roles.readAll();
+        if (CollUtil.isEmpty(roleIds)) {
+            return;
+        }
+        RBatch batch = RedisUtils.getClient().createBatch();
+        for (String roleId : roleIds) {
+            batch.getSet(GlobalConstants.ONLINE_ROLE_KEY + roleId, StringCodec.INSTANCE).removeAsync(loginId);
+        }
+        batch.getSet(ROLE_LOGIN_KEY + loginId, StringCodec.INSTANCE).deleteAsync();
+        batch.execute();
     }
 
     /**
@@ -65,11 +369,13 @@ public class LoginHelper {
      */
     @SuppressWarnings("unchecked cast")
     public static <T extends LoginUser> T getLoginUser() {
-        SaSession session = StpUtil.getTokenSession();
-        if (ObjectUtil.isNull(session)) {
-            return null;
+        LoginContext context = getContext();
+        if (context == null) {
+            // 保持原有语义 未登录时由 sa-token 抛出异常
+            SaSession session = StpUtil.getTokenSession();
+            return ObjectUtil.isNull(session) ? null : (T) session.get(LOGIN_USER_KEY);
         }
-        return (T) session.get(LOGIN_USER_KEY);
+        return (T) context.loginUser();
     }
 
     /**
@@ -88,63 +394,63 @@ public class LoginHelper {
      * 获取用户id
      */
     public static Long getUserId() {
-        return Convert.toLong(getExtra(USER_KEY));
+        LoginContext context = getContext();
+        return context == null ? null : context.userId();
     }
 
     /**
      * 获取用户id
      */
     public static String getUserIdStr() {
-        return Convert.toStr(getExtra(USER_KEY));
+        return Convert.toStr(getUserId());
     }
 
     /**
      * 获取用户账户
      */
     public static String getUsername() {
-        return Convert.toStr(getExtra(USER_NAME_KEY));
+        LoginContext context = getContext();
+        return context == null ? null : context.userName();
     }
 
     /**
      * 获取租户ID
      */
     public static String getTenantId() {
-        return Convert.toStr(getExtra(TENANT_KEY));
+        LoginContext context = getContext();
+        return context == null ? null : context.tenantId();
     }
 
     /**
      * 获取部门ID
      */
     public static Long getDeptId() {
-        return Convert.toLong(getExtra(DEPT_KEY));
+        LoginContext context = getContext();
+        return context == null ? null : context.deptId();
     }
 
     /**
      * 获取部门名
      */
     public static String getDeptName() {
-        return Convert.toStr(getExtra(DEPT_NAME_KEY));
+        LoginContext context = getContext();
+        return context == null ? null : context.deptName();
     }
 
     /**
      * 获取部门类别编码
      */
     public static String getDeptCategory() {
-        return Convert.toStr(getExtra(DEPT_CATEGORY_KEY));
+        LoginContext context = getContext();
+        return context == null ? null : context.deptCategory();
     }
 
     /**
-     * 获取当前 Token 的扩展信息
-     *
-     * @param key 键值
-     * @return 对应的扩展数据
+     * 获取客户端ID
      */
-    private static Object getExtra(String key) {
-        try {
-            return StpUtil.getExtra(key);
-        } catch (Exception e) {
-            return null;
-        }
+    public static String getClientId() {
+        LoginContext context = getContext();
+        return context == null ? null : context.clientId();
     }
 
     /**
@@ -206,6 +512,10 @@ public class LoginHelper {
      * @return 结果
      */
     public static boolean isLogin() {
+        // 请求内已解析过上下文 说明已通过认证
+        if (SaManager.getSaTokenContext().isValid() && SaHolder.getStorage().get(LOGIN_CONTEXT_KEY) != null) {
+            return true;
+        }
         try {
             StpUtil.checkLogin();
             return true;
@@ -64,8 +64,9 @@ public class SecurityConfig implements WebMvcConfigurer {
                         // 检查 header 与 param 里的 clientid 与 token 里的是否一致
                         String headerCid = request.getHeader(LoginHelper.CLIENT_KEY);
                         String paramCid = ServletUtils.getParameter(LoginHelper.CLIENT_KEY);
-                        String clientId = StpUtil.getExtra(LoginHelper.CLIENT_KEY).toString();
-                        if (!StringUtils.equalsAny(clientId, headerCid, paramCid)) {
+                        String clientId = LoginHelper.getClientId();
+                        // token 内无 clientid 时直接判定无效 避免与同为空的 header/param 相等而跳过校验
+                        if (StringUtils.isBlank(clientId) || !StringUtils.equalsAny(clientId, headerCid, paramCid)) {
                             // token 无效
                             throw NotLoginException.newInstance(StpUtil.getLoginType(),
                                 "-100", "客户端ID与Token不匹配",
@@ -2,9 +2,12 @@ package cc.infoq.common.tenant.config;
 
 import cc.infoq.common.redis.config.RedisConfig;
 import cc.infoq.common.redis.config.properties.RedissonProperties;
+import cc.infoq.common.satoken.config.properties.SaTokenCacheProperties;
 import cc.infoq.common.tenant.core.TenantSaTokenDao;
 import cc.infoq.common.tenant.handle.PlusTenantLineHandler;
 import cc.infoq.common.tenant.handle.TenantKeyPrefixHandler;
+import cc.infoq.common.tenant.helper.TenantHelper;
+import cc.infoq.common.tenant.interceptor.PlusTenantLineInnerInterceptor;
 import cc.infoq.common.tenant.manager.TenantSpringCacheManager;
 import cc.infoq.common.tenant.properties.TenantProperties;
 import cc.infoq.common.utils.reflect.ReflectUtils;
@@ -14,6 +17,7 @@ import com.baomidou.mybatisplus.extension.plugins.inner.TenantLineInnerIntercept
 import org.redisson.config.ClusterServersConfig;
 import org.redisson.config.SingleServerConfig;
 import org.redisson.spring.starter.RedissonAutoConfigurationCustomizer;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -21,6 +25,7 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Primary;
+import org.springframework.core.task.TaskDecorator;
 
 /**
  * 租户配置类
@@ -41,7 +46,7 @@ public class TenantConfig {
          */
         @Bean
         public TenantLineInnerInterceptor tenantLineInnerInterceptor(TenantProperties tenantProperties) {
-            return new TenantLineInnerInterceptor(new PlusTenantLineHandler(tenantProperties));
+            return new PlusTenantLineInnerInterceptor(new PlusTenantLineHandler(tenantProperties));
         }
 
     }
@@ -70,8 +75,18 @@ public class TenantConfig {
      */
     @Primary
     @Bean
-    public CacheManager tenantCacheManager() {
-        return new TenantSpringCacheManager();
+    public CacheManager tenantCacheManager(TenantProperties tenantProperties, ObjectProvider<TaskDecorator> taskDecorators) {
+        TenantSpringCacheManager cacheManager = new TenantSpringCacheManager(tenantProperties);
+        taskDecorators.orderedStream().forEach(cacheManager::addTaskDecorator);
+        return cacheManager;
+    }
+
+    /**
+     * 异步任务装饰器 传递租户到缓存刷新等线程池任务
+     */
+    @Bean
+    public TaskDecorator tenantContextTaskDecorator() {
+        return TenantHelper::wrap;
     }
 
     /**
@@ -79,8 +94,8 @@ public class TenantConfig {
      */
     @Primary
     @Bean
-    public SaTokenDao tenantSaTokenDao() {
-        return new TenantSaTokenDao();
+    public SaTokenDao tenantSaTokenDao(SaTokenCacheProperties saTokenCacheProperties) {
+        return new TenantSaTokenDao(saTokenCacheProperties);
     }
 
 }
@@ -1,10 +1,9 @@
 package cc.infoq.common.tenant.core;
 
 import cc.infoq.common.constant.GlobalConstants;
-import cc.infoq.common.redis.utils.RedisUtils;
+import cc.infoq.common.satoken.config.properties.SaTokenCacheProperties;
 import cc.infoq.common.satoken.core.dao.PlusSaTokenDao;
 
-import java.time.Duration;
 import java.util.List;
 
 /**
@@ -14,6 +13,10 @@ import java.util.List;
  */
 public class TenantSaTokenDao extends PlusSaTokenDao {
 
+    public TenantSaTokenDao(SaTokenCacheProperties properties) {
+        super(properties);
+    }
+
     @Override
     public String get(String key) {
         return super.get(GlobalConstants.GLOBAL_REDIS_KEY + key);
@@ -29,12 +32,7 @@ public class TenantSaTokenDao extends PlusSaTokenDao {
      */
     @Override
     public void update(String key, String value) {
-        long expire = getTimeout(key);
-        // -2 = 无此键
-        if (expire == NOT_VALUE_EXPIRE) {
-            return;
-        }
-        this.set(key, value, expire);
+        super.update(GlobalConstants.GLOBAL_REDIS_KEY + key, value);
     }
 
     /**
@@ -69,7 +67,7 @@ public class TenantSaTokenDao extends PlusSaTokenDao {
             }
             return;
         }
-        RedisUtils.expire(GlobalConstants.GLOBAL_REDIS_KEY + key, Duration.ofSeconds(timeout));
+        super.updateTimeout(GlobalConstants.GLOBAL_REDIS_KEY + key, timeout);
     }
 
 
@@ -105,12 +103,7 @@ public class TenantSaTokenDao extends PlusSaTokenDao {
      */
     @Override
     public void updateObject(String key, Object object) {
-        long expire = getObjectTimeout(key);
-        // -2 = 无此键
-        if (expire == NOT_VALUE_EXPIRE) {
-            return;
-        }
-        this.setObject(key, object, expire);
+        super.updateObject(GlobalConstants.GLOBAL_REDIS_KEY + key, object);
     }
 
     /**
@@ -145,7 +138,15 @@ public class TenantSaTokenDao extends PlusSaTokenDao {
             }
             return;
         }
-        RedisUtils.expire(GlobalConstants.GLOBAL_REDIS_KEY + key, Duration.ofSeconds(timeout));
+        super.updateObjectTimeout(GlobalConstants.GLOBAL_REDIS_KEY + key, timeout);
+    }
+
+    /**
+     * 批量判断 key 是否存在
+     */
+    @Override
+    public List<Boolean> exists(List<String> keys) {
+        return super.exists(keys.stream().map(key -> GlobalConstants.GLOBAL_REDIS_KEY + key).toList());
     }
 
     /**
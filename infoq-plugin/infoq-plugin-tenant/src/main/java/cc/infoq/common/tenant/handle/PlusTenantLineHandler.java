@@ -3,26 +3,46 @@ package cc.infoq.common.tenant.handle;
 import cc.infoq.common.tenant.helper.TenantHelper;
 import cc.infoq.common.tenant.properties.TenantProperties;
 import cc.infoq.common.utils.StringUtils;
-import cn.hutool.core.collection.ListUtil;
 import com.baomidou.mybatisplus.extension.plugins.handler.TenantLineHandler;
-import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.expression.NullValue;
 import net.sf.jsqlparser.expression.StringValue;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
 /**
  * 自定义租户处理器
+ * <p>
+ * 排除表在创建时编译为小写哈希集合 判断时不再创建对象
  *
  * @author Lion Li
  */
 @Slf4j
-@AllArgsConstructor
 public class PlusTenantLineHandler implements TenantLineHandler {
 
-    private final TenantProperties tenantProperties;
+    /**
+     * 非业务表
+     */
+    private static final List<String> SYSTEM_TABLES = List.of("gen_table", "gen_table_column");
+
+    /**
+     * 不需要过滤租户的表(小写)
+     */
+    private final Set<String> excludes;
+
+    public PlusTenantLineHandler(TenantProperties tenantProperties) {
+        Set<String> tables = new HashSet<>(SYSTEM_TABLES);
+        if (tenantProperties.getExcludes() != null) {
+            for (String table : tenantProperties.getExcludes()) {
+                tables.add(table.toLowerCase(Locale.ROOT));
+            }
+        }
+        this.excludes = Set.copyOf(tables);
+    }
 
     @Override
     public Expression getTenantId() {
@@ -40,15 +60,8 @@ public class PlusTenantLineHandler implements TenantLineHandler {
         String tenantId = TenantHelper.getTenantId();
         // 判断是否有租户
         if (StringUtils.isNotBlank(tenantId)) {
-            // 不需要过滤租户的表
-            List<String> excludes = tenantProperties.getExcludes();
-            // 非业务表
-            List<String> tables = ListUtil.toList(
-                "gen_table",
-                "gen_table_column"
-            );
-            tables.addAll(excludes);
-            return StringUtils.equalsAnyIgnoreCase(tableName, tables.toArray(new String[0]));
+            // 表名已是小写时 toLowerCase 返回自身 不产生新对象
+            return excludes.contains(tableName.toLowerCase(Locale.ROOT));
         }
         return true;
     }
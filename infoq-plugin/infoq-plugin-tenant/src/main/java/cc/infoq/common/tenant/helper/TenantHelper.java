@@ -6,6 +6,7 @@ import cc.infoq.common.satoken.utils.LoginHelper;
 import cc.infoq.common.utils.SpringUtils;
 import cc.infoq.common.utils.StringUtils;
 import cc.infoq.common.utils.reflect.ReflectUtils;
+import cn.dev33.satoken.SaManager;
 import cn.dev33.satoken.context.SaHolder;
 import cn.dev33.satoken.context.model.SaStorage;
 import cn.hutool.core.collection.CollectionUtil;
@@ -22,6 +23,9 @@ import java.util.function.Supplier;
 
 /**
  * 租户助手
+ * <p>
+ * 每条 sql 都会经过租户解析 此处的常用路径均不创建对象:
+ * 启用状态只读取一次配置 忽略策略直接持有 mybatis-plus 的线程变量 当前租户在请求内只解析一次
  *
  * @author Lion Li
  */
@@ -35,19 +39,37 @@ public class TenantHelper {
 
     private static final ThreadLocal<Stack<Integer>> REENTRANT_IGNORE = ThreadLocal.withInitial(Stack::new);
 
+    /**
+     * 请求内已解析的租户id
+     */
+    private static final String TENANT_CONTEXT_KEY = "tenantContext";
+
+    /**
+     * mybatis-plus 的忽略策略线程变量(静态常量 只需反射获取一次)
+     */
+    private static final ThreadLocal<?> IGNORE_STRATEGY_LOCAL = (ThreadLocal<?>) ReflectUtils.getStaticFieldValue(
+        ReflectUtils.getField(InterceptorIgnoreHelper.class, "IGNORE_STRATEGY_LOCAL"));
+
+    /**
+     * 租户功能是否启用 租户相关组件按该配置在启动时装配 运行期间不会变化
+     */
+    private static volatile Boolean enable;
+
     /**
      * 租户功能是否启用
      */
     public static boolean isEnable() {
-        return Convert.toBool(SpringUtils.getProperty("tenant.enable"), false);
+        Boolean enabled = enable;
+        if (enabled == null) {
+            enabled = Convert.toBool(SpringUtils.getProperty("tenant.enable"), false);
+            enable = enabled;
+        }
+        return enabled;
     }
 
     private static IgnoreStrategy getIgnoreStrategy() {
-        Object ignoreStrategyLocal = ReflectUtils.getStaticFieldValue(ReflectUtils.getField(InterceptorIgnoreHelper.class, "IGNORE_STRATEGY_LOCAL"));
-        if (ignoreStrategyLocal instanceof ThreadLocal<?> IGNORE_STRATEGY_LOCAL) {
-            if (IGNORE_STRATEGY_LOCAL.get() instanceof IgnoreStrategy ignoreStrategy) {
-                return ignoreStrategy;
-            }
+        if (IGNORE_STRATEGY_LOCAL != null && IGNORE_STRATEGY_LOCAL.get() instanceof IgnoreStrategy ignoreStrategy) {
+            return ignoreStrategy;
         }
         return null;
     }
@@ -137,7 +159,9 @@ public class TenantHelper {
         }
         String cacheKey = DYNAMIC_TENANT_KEY + ":" + LoginHelper.getUserId();
         RedisUtils.setCacheObject(cacheKey, tenantId);
-        SaHolder.getStorage().set(cacheKey, tenantId);
+        SaStorage storage = SaHolder.getStorage();
+        storage.set(cacheKey, tenantId);
+        storage.delete(TENANT_CONTEXT_KEY);
     }
 
     /**
@@ -183,7 +207,9 @@ public class TenantHelper {
         TEMP_DYNAMIC_TENANT.remove();
         String cacheKey = DYNAMIC_TENANT_KEY + ":" + LoginHelper.getUserId();
         RedisUtils.deleteObject(cacheKey);
-        SaHolder.getStorage().delete(cacheKey);
+        SaStorage storage = SaHolder.getStorage();
+        storage.delete(cacheKey);
+        storage.delete(TENANT_CONTEXT_KEY);
     }
 
     /**
@@ -214,13 +240,64 @@ public class TenantHelper {
         }
     }
 
+    /**
+     * 包装异步任务 将提交线程的租户传递到执行线程
+     * <p>
+     * 仅设置执行线程内的动态租户 不读写全局动态租户 执行结束后恢复执行线程原有的值
+     *
+     * @param runnable 任务
+     * @return 包装后的任务
+     */
+    public static Runnable wrap(Runnable runnable) {
+        String tenantId = getTenantId();
+        if (StringUtils.isBlank(tenantId)) {
+            return runnable;
+        }
+        return () -> {
+            String previous = TEMP_DYNAMIC_TENANT.get();
+            TEMP_DYNAMIC_TENANT.set(tenantId);
+            try {
+                runnable.run();
+            } finally {
+                if (previous == null) {
+                    TEMP_DYNAMIC_TENANT.remove();
+                } else {
+                    TEMP_DYNAMIC_TENANT.set(previous);
+                }
+            }
+        };
+    }
+
     /**
      * 获取当前租户id(动态租户优先)
+     * <p>
+     * 线程内动态租户直接返回 其余情况(全局动态租户或登录租户)在请求内解析一次后缓存
      */
     public static String getTenantId() {
         if (!isEnable()) {
             return null;
         }
+        String tenantId = TEMP_DYNAMIC_TENANT.get();
+        if (StringUtils.isNotBlank(tenantId)) {
+            return tenantId;
+        }
+        if (!SaManager.getSaTokenContext().isValid()) {
+            return resolveTenantId();
+        }
+        SaStorage storage = SaHolder.getStorage();
+        tenantId = storage.getString(TENANT_CONTEXT_KEY);
+        if (tenantId != null) {
+            return tenantId;
+        }
+        tenantId = resolveTenantId();
+        // 未解析到租户不缓存 避免同一请求内登录后仍读取到空租户
+        if (StringUtils.isNotBlank(tenantId)) {
+            storage.set(TENANT_CONTEXT_KEY, tenantId);
+        }
+        return tenantId;
+    }
+
+    private static String resolveTenantId() {
         String tenantId = TenantHelper.getDynamic();
         if (StringUtils.isBlank(tenantId)) {
             tenantId = LoginHelper.getTenantId();
@@ -0,0 +1,40 @@
+package cc.infoq.common.tenant.interceptor;
+
+import cc.infoq.common.mybatis.interceptor.CacheableInnerInterceptor;
+import cc.infoq.common.tenant.helper.TenantHelper;
+import cc.infoq.common.utils.StringUtils;
+import com.baomidou.mybatisplus.core.plugins.InterceptorIgnoreHelper;
+import com.baomidou.mybatisplus.extension.plugins.handler.TenantLineHandler;
+import com.baomidou.mybatisplus.extension.plugins.inner.TenantLineInnerInterceptor;
+import org.apache.ibatis.mapping.MappedStatement;
+
+/**
+ * 多租户拦截器
+ * <p>
+ * 追加的租户条件与忽略的表只由当前租户决定 改写结果按租户缓存
+ *
+ * @author Lion Li
+ */
+public class PlusTenantLineInnerInterceptor extends TenantLineInnerInterceptor implements CacheableInnerInterceptor {
+
+    public PlusTenantLineInnerInterceptor(TenantLineHandler tenantLineHandler) {
+        super(tenantLineHandler);
+    }
+
+    /**
+     * 获取本次改写的缓存维度 即当前租户id
+     *
+     * @param ms 映射语句对象
+     * @return 缓存维度 忽略租户时返回空串
+     */
+    @Override
+    public String rewriteKey(MappedStatement ms) {
+        if (InterceptorIgnoreHelper.willIgnoreTenantLine(ms.getId())) {
+            return StringUtils.EMPTY;
+        }
+        String tenantId = TenantHelper.getTenantId();
+        // 无租户时所有表均被忽略 仍需与有租户的结果区分
+        return StringUtils.isBlank(tenantId) ? "-" : tenantId;
+    }
+
+}
@@ -1,22 +1,62 @@
 package cc.infoq.common.tenant.manager;
 
 import cc.infoq.common.constant.GlobalConstants;
+import cc.infoq.common.redis.manager.CacheInvalidateBus;
+import cc.infoq.common.redis.manager.LocalCacheConfig;
 import cc.infoq.common.redis.manager.PlusSpringCacheManager;
+import cc.infoq.common.redis.utils.RedisUtils;
 import cc.infoq.common.tenant.helper.TenantHelper;
+import cc.infoq.common.tenant.properties.TenantProperties;
+import cc.infoq.common.utils.SpringUtils;
 import cc.infoq.common.utils.StringUtils;
 import com.baomidou.mybatisplus.core.plugins.InterceptorIgnoreHelper;
 import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBatch;
+import org.redisson.api.RSet;
+import org.redisson.client.codec.StringCodec;
+import org.redisson.spring.cache.CacheConfig;
 import org.springframework.cache.Cache;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 /**
  * 重写 cacheName 处理方法 支持多租户
+ * <p>
+ * 缓存组按租户分区(租户id:缓存组) 经 租户 -> 缓存组 两级映射取得 命中时无需拼接名称
+ * 每个租户的缓存组按 {@link TenantProperties.CacheQuota} 限制容量 并登记到租户的缓存组索引 删除租户缓存时无需扫描 key
  *
  * @author Lion Li
  */
 @Slf4j
 public class TenantSpringCacheManager extends PlusSpringCacheManager {
 
-    public TenantSpringCacheManager() {
+    /**
+     * 租户缓存组索引(集合成员为带租户前缀的缓存组名称)
+     */
+    private static final String TENANT_CACHE_KEY = GlobalConstants.GLOBAL_REDIS_KEY + "tenant_cache:";
+
+    private final TenantProperties.CacheQuota quota;
+
+    /**
+     * 租户id -> 缓存组名称(含参数) -> 缓存
+     */
+    private final ConcurrentMap<String, ConcurrentMap<String, Cache>> tenantCaches = new ConcurrentHashMap<>();
+
+    /**
+     * 租户缓存组名称(不含参数) -> 租户id 供创建缓存组时识别所属租户
+     * <p>
+     * 同一名称始终对应同一租户 创建后不移除 避免并发创建同名缓存组(参数不同)时提前移除导致配额与索引登记被跳过
+     */
+    private final Map<String, String> cacheTenants = new ConcurrentHashMap<>();
+
+    public TenantSpringCacheManager(TenantProperties tenantProperties) {
+        this.quota = tenantProperties.getCache() != null ? tenantProperties.getCache() : new TenantProperties.CacheQuota();
     }
 
     @Override
@@ -30,12 +70,96 @@ public class TenantSpringCacheManager extends PlusSpringCacheManager {
         String tenantId = TenantHelper.getTenantId();
         if (StringUtils.isBlank(tenantId)) {
             log.error("无法获取有效的租户id -> Null");
+            return super.getCache(tenantId + ":" + name);
         }
         if (StringUtils.startsWith(name, tenantId)) {
             // 如果存在则直接返回
             return super.getCache(name);
         }
-        return super.getCache(tenantId + ":" + name);
+        ConcurrentMap<String, Cache> caches = tenantCaches.get(tenantId);
+        if (caches == null) {
+            caches = tenantCaches.computeIfAbsent(tenantId, k -> new ConcurrentHashMap<>());
+        }
+        Cache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        // 同一租户同名缓存组的创建在 computeIfAbsent 内串行 配额与索引登记在创建时完成
+        return caches.computeIfAbsent(name, k -> {
+            String tenantName = tenantId + ":" + k;
+            cacheTenants.putIfAbsent(StringUtils.substringBefore(tenantName, "#"), tenantId);
+            return super.getCache(tenantName);
+        });
+    }
+
+    /**
+     * 按租户配额限制缓存组容量 并登记到租户的缓存组索引
+     */
+    @Override
+    protected void customizeConfig(String name, CacheConfig config, LocalCacheConfig localConfig) {
+        String tenantId = cacheTenants.get(name);
+        if (tenantId == null) {
+            return;
+        }
+        RedisUtils.getClient().getSet(TENANT_CACHE_KEY + tenantId, StringCodec.INSTANCE).add(name);
+        int weight = 1;
+        if (quota.getWeights() != null) {
+            weight = Math.max(quota.getWeights().getOrDefault(tenantId, 1), 1);
+        }
+        // 按权重限制容量的一级缓存保持自身配置
+        if (quota.getLocalMaxSize() > 0 && localConfig.getMaxWeight() <= 0) {
+            int limit = quota.getLocalMaxSize() * weight;
+            localConfig.setMaxSize(localConfig.getMaxSize() > 0 ? Math.min(localConfig.getMaxSize(), limit) : limit);
+        }
+        // 普通 Map 缓存组加上条数限制会改为 MapCache 已有数据将无法读取 因此只限制已是 MapCache 的缓存组
+        boolean mapCache = config.getTTL() > 0 || config.getMaxIdleTime() > 0 || config.getMaxSize() > 0;
+        if (quota.getMaxSize() > 0 && mapCache) {
+            int limit = quota.getMaxSize() * weight;
+            config.setMaxSize(config.getMaxSize() > 0 ? Math.min(config.getMaxSize(), limit) : limit);
+        }
+    }
+
+    /**
+     * 删除租户的全部缓存(二级缓存按索引批量删除 一级缓存经失效总线在各节点清空)
+     *
+     * @param tenantId 租户id
+     */
+    public void dropTenantCache(String tenantId) {
+        RSet<String> index = RedisUtils.getClient().getSet(TENANT_CACHE_KEY + tenantId, StringCodec.INSTANCE);
+        Set<String> names = index.readAll();
+        deleteCaches(names);
+        index.delete();
+    }
+
+    /**
+     * 批量清空多个租户的同一缓存组(二级缓存一次批量删除 一级缓存合并为一条失效消息)
+     *
+     * @param cacheName 缓存组名称(可带参数)
+     * @param tenantIds 租户id集合
+     */
+    public void clearTenantCache(String cacheName, Collection<String> tenantIds) {
+        String name = StringUtils.substringBefore(cacheName, "#");
+        List<String> names = new ArrayList<>(tenantIds.size());
+        for (String tenantId : tenantIds) {
+            names.add(tenantId + ":" + name);
+        }
+        deleteCaches(names);
+    }
+
+    private void deleteCaches(Collection<String> names) {
+        if (names.isEmpty()) {
+            return;
+        }
+        // 缓存组名称已带租户前缀 忽略租户避免重复拼接
+        TenantHelper.ignore(() -> {
+            RBatch batch = RedisUtils.getClient().createBatch();
+            for (String cacheName : names) {
+                // 按 MapCache 删除 同时清理过期时间等附属 key
+                batch.getMapCache(cacheName).deleteAsync();
+            }
+            batch.execute();
+        });
+        SpringUtils.getBean(CacheInvalidateBus.class).invalidateAll(names);
     }
 
 }
@@ -4,6 +4,7 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 租户 配置属性
@@ -24,4 +25,35 @@ public class TenantProperties {
      */
     private List<String> excludes;
 
+    /**
+     * 租户缓存配额
+     */
+    private CacheQuota cache = new CacheQuota();
+
+    /**
+     * 租户缓存配额 按缓存组生效 每个租户的缓存组相互独立 大租户不会淘汰小租户的热点数据
+     */
+    @Data
+    public static class CacheQuota {
+
+        /**
+         * 一级缓存条数上限 0 为使用缓存组自身配置
+         */
+        private int localMaxSize;
+
+        /**
+         * 二级缓存条数上限 0 为使用缓存组自身配置
+         * <p>
+         * 仅对已是 MapCache 的缓存组(配置了 ttl/maxIdleTime/maxSize)生效 普通 Map 缓存组不受限制
+         * 否则改为 MapCache 后已按 Map 写入的数据将无法读取
+         */
+        private int maxSize;
+
+        /**
+         * 租户权重 上限按权重等比放大 未配置的租户权重为 1
+         */
+        private Map<String, Integer> weights;
+
+    }
+
 }
@@ -49,7 +49,8 @@ CREATE TABLE `sys_config` (
     `update_by` bigint DEFAULT NULL COMMENT '更新者',
     `update_time` datetime DEFAULT NULL COMMENT '更新时间',
     `remark` varchar(500) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci DEFAULT NULL COMMENT '备注',
-    PRIMARY KEY (`config_id`) USING BTREE
+    PRIMARY KEY (`config_id`) USING BTREE,
+    KEY `idx_sys_config_t` (`tenant_id`, `config_key`) USING BTREE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='参数配置表';
 
 -- ----------------------------
@@ -85,7 +86,8 @@ CREATE TABLE `sys_dept` (
     `create_time` datetime DEFAULT NULL COMMENT '创建时间',
     `update_by` bigint DEFAULT NULL COMMENT '更新者',
     `update_time` datetime DEFAULT NULL COMMENT '更新时间',
-    PRIMARY KEY (`dept_id`) USING BTREE
+    PRIMARY KEY (`dept_id`) USING BTREE,
+    KEY `idx_sys_dept_a` (`ancestors`) USING BTREE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='部门表';
 
 -- ----------------------------
@@ -107,6 +109,31 @@ INSERT INTO `sys_dept` (`dept_id`, `tenant_id`, `parent_id`, `ancestors`, `dept_
 INSERT INTO `sys_dept` (`dept_id`, `tenant_id`, `parent_id`, `ancestors`, `dept_name`, `dept_category`, `order_num`, `leader`, `phone`, `email`, `status`, `del_flag`, `create_dept`, `create_by`, `create_time`, `update_by`, `update_time`) VALUES (112, '000000', 101, '0,100,101', '其他', NULL, 6, NULL, '15888888888', 'xxx@qq.com', '0', '0', 103, 1, '2025-10-13 23:40:31', 1, '2025-10-13 23:40:31');
 COMMIT;
 
+-- ----------------------------
+-- Table structure for sys_dept_closure
+-- ----------------------------
+DROP TABLE IF EXISTS `sys_dept_closure`;
+CREATE TABLE `sys_dept_closure` (
+    `ancestor_id` bigint NOT NULL COMMENT '祖先部门id',
+    `descendant_id` bigint NOT NULL COMMENT '后代部门id',
+    `depth` int NOT NULL DEFAULT '0' COMMENT '层级距离',
+    PRIMARY KEY (`ancestor_id`,`descendant_id`) USING BTREE,
+    KEY `idx_sys_dept_closure_d` (`descendant_id`) USING BTREE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='部门层级闭包表';
+
+-- ----------------------------
+-- Records of sys_dept_closure
+-- ----------------------------
+INSERT INTO `sys_dept_closure` (`ancestor_id`, `descendant_id`, `depth`)
+WITH RECURSIVE `t` (`ancestor_id`, `descendant_id`, `depth`) AS (
+    SELECT `dept_id`, `dept_id`, 0 FROM `sys_dept` WHERE `del_flag` = '0'
+    UNION ALL
+    SELECT `d`.`parent_id`, `t`.`descendant_id`, `t`.`depth` + 1 FROM `t`
+        JOIN `sys_dept` `d` ON `d`.`dept_id` = `t`.`ancestor_id`
+        JOIN `sys_dept` `p` ON `p`.`dept_id` = `d`.`parent_id` AND `p`.`del_flag` = '0'
+)
+SELECT `ancestor_id`, `descendant_id`, `depth` FROM `t`;
+
 -- ----------------------------
 -- Table structure for sys_dict_data
 -- ----------------------------
@@ -127,7 +154,8 @@ CREATE TABLE `sys_dict_data` (
     `update_by` bigint DEFAULT NULL COMMENT '更新者',
     `update_time` datetime DEFAULT NULL COMMENT '更新时间',
     `remark` varchar(500) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci DEFAULT NULL COMMENT '备注',
-    PRIMARY KEY (`dict_code`) USING BTREE
+    PRIMARY KEY (`dict_code`) USING BTREE,
+    KEY `idx_sys_dict_data_t` (`tenant_id`, `dict_type`, `dict_value`) USING BTREE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='字典数据表';
 
 -- ----------------------------